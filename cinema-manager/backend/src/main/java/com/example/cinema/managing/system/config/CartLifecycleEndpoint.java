@@ -0,0 +1,25 @@
+package com.example.cinema.managing.system.config;
+
+import com.example.cinema.managing.system.service.CartLifecycleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes cart lifecycle counts at {@code /actuator/carts}.
+ */
+@Component
+@Endpoint(id = "carts")
+public class CartLifecycleEndpoint {
+
+    @Autowired
+    private CartLifecycleService cartLifecycleService;
+
+    @ReadOperation
+    public Map<String, Object> carts() {
+        return cartLifecycleService.getStatistics();
+    }
+}
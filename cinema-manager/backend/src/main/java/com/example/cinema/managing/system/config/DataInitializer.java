@@ -19,6 +19,7 @@ import com.example.cinema.managing.system.repository.MovieRepository;
 import com.example.cinema.managing.system.repository.SeatRepository;
 import com.example.cinema.managing.system.repository.ShowtimeRepository;
 import com.example.cinema.managing.system.repository.UserRepository;
+import com.example.cinema.managing.system.service.SeatIds;
 import com.example.cinema.managing.system.service.SystemConfigService;
 
 @Component
@@ -186,6 +187,7 @@ public class DataInitializer implements CommandLineRunner {
         for (int i = 0; i < rows.length; i++) {
             for (int j = 1; j <= seatsPerRow; j++) {
                 Seat seat = new Seat();
+                seat.setId(SeatIds.of(showtime.getId(), rows[i], j));
                 seat.setShowtimeId(showtime.getId());
                 seat.setSeatNumber(String.valueOf(j));
                 seat.setRow(rows[i]);
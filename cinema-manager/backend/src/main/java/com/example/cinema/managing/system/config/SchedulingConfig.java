@@ -0,0 +1,26 @@
+package com.example.cinema.managing.system.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduled jobs run on a shared pool rather than Spring's default single thread, where a long
+ * job (archival, reconciliation, catalogue syncs, sweeps) would hold up the pollers that run every
+ * second or two (email outbox, loyalty and order flushes, webhook inbox). A given job still never
+ * overlaps with itself.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.jobs.pool-size:8}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        return scheduler;
+    }
+}
@@ -21,6 +21,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.example.cinema.managing.system.security.JwtAuthenticationFilter;
 
+import jakarta.servlet.DispatcherType;
 import java.util.Arrays;
 
 @Configuration
@@ -41,6 +42,9 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // 0. Async dispatches of already-authorized requests (e.g. Stripe calls completing)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // 1. Allow Pre-flight OPTIONS requests (Critical for CORS)
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         
@@ -52,6 +56,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/guest/**").permitAll()
                         
+                        // Stripe webhooks authenticate with their signature header
+                        .requestMatchers(HttpMethod.POST, "/api/payments/webhook").permitAll()
+                        
                         // 4. Movie and Showtime access
                         .requestMatchers("/api/movies/**").permitAll()
                         .requestMatchers("/api/categories/**").permitAll()
@@ -4,6 +4,7 @@ import com.example.cinema.managing.system.dto.*;
 import com.example.cinema.managing.system.model.User;
 import com.example.cinema.managing.system.repository.UserRepository;
 import com.example.cinema.managing.system.security.JwtTokenProvider;
+import com.example.cinema.managing.system.service.LoyaltyService;
 import com.example.cinema.managing.system.service.SystemConfigService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -35,6 +36,9 @@ public class AuthController {
     @Autowired
     private SystemConfigService systemConfigService;
 
+    @Autowired
+    private LoyaltyService loyaltyService;
+
     @Value("${app.user.welcome-bonus:100}")
     private int welcomeBonus;
 
@@ -52,7 +56,14 @@ public class AuthController {
         user.setRole("USER");
         user.setLoyaltyPoints(welcomeBonus);
         
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        try {
+            loyaltyService.recordSignupBonus(savedUser);
+        } catch (RuntimeException e) {
+            // A balance without its ledger entry would be reset later; let the user sign up again instead
+            userRepository.delete(savedUser);
+            throw e;
+        }
         return ResponseEntity.ok(new MessageResponse("User registered successfully! Welcome bonus: " + welcomeBonus + " points"));
     }
 
@@ -1,10 +1,12 @@
 package com.example.cinema.managing.system.controller;
 
 import java.util.List;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,10 +14,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.cinema.managing.system.dto.BookingResponse;
 import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.repository.UserRepository;
 import com.example.cinema.managing.system.service.BookingService;
 
 @RestController
@@ -26,6 +30,9 @@ public class BookingController {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Booking>> getAllBookings() {
@@ -34,7 +41,12 @@ public class BookingController {
 
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<List<BookingResponse>> getUserBookings(@PathVariable String userId) {
+    public ResponseEntity<List<BookingResponse>> getUserBookings(@PathVariable String userId,
+                                                                 @RequestParam(required = false) Integer page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        if (page != null) {
+            return ResponseEntity.ok(bookingService.getBookingsByUserId(userId, Math.max(0, page), Math.min(Math.max(1, size), 100)));
+        }
         return ResponseEntity.ok(bookingService.getBookingsByUserId(userId));
     }
 
@@ -51,7 +63,15 @@ public class BookingController {
 
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking) {
+    public ResponseEntity<Booking> createBooking(@RequestBody Booking booking, Authentication authentication) {
+        // Seats are held and loyalty points spent in the caller's name, so it comes from the login
+        String userId = userRepository.findByEmail(authentication.getName())
+                .map(user -> user.getId())
+                .orElse(null);
+        if (userId == null || (booking.getUserId() != null && !Objects.equals(booking.getUserId(), userId))) {
+            return ResponseEntity.status(403).build();
+        }
+        booking.setUserId(userId);
         return ResponseEntity.ok(bookingService.createBooking(booking));
     }
 
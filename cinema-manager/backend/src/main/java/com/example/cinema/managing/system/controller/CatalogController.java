@@ -0,0 +1,56 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.dto.ImportReport;
+import com.example.cinema.managing.system.service.CatalogImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * NDJSON catalogue sync: {@code movies}, {@code food} or {@code merchandise}.
+ */
+@RestController
+@RequestMapping("/api/admin/catalog")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class CatalogController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @PostMapping("/{catalog}/import")
+    public ResponseEntity<?> importCatalog(@PathVariable String catalog,
+                                           @RequestParam("file") MultipartFile file,
+                                           @RequestParam(defaultValue = "false") boolean dryRun) {
+        if (!catalogImportService.supports(catalog)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unknown catalogue: " + catalog));
+        }
+        try (InputStream input = file.getInputStream()) {
+            ImportReport report = catalogImportService.importCatalog(catalog, input, dryRun);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Could not read upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{catalog}/export")
+    public ResponseEntity<?> exportCatalog(@PathVariable String catalog) {
+        if (!catalogImportService.supports(catalog)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Unknown catalogue: " + catalog));
+        }
+        StreamingResponseBody body = output -> catalogImportService.exportCatalog(catalog, output);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + catalog.toLowerCase() + ".ndjson\"")
+                .contentType(NDJSON)
+                .body(body);
+    }
+}
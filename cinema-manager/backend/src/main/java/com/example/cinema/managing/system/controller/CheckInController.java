@@ -0,0 +1,38 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.service.CheckInService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/checkin")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class CheckInController {
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> checkIn(@RequestBody Map<String, String> request) {
+        String token = request.get("token");
+        if (token == null || token.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Ticket token is required"));
+        }
+
+        try {
+            Map<String, Object> result = checkInService.checkIn(token, request.get("showtimeId"), request.get("gate"));
+            return switch ((String) result.get("result")) {
+                case "ADMITTED" -> ResponseEntity.ok(result);
+                case "ALREADY_ADMITTED" -> ResponseEntity.status(409).body(result);
+                default -> ResponseEntity.status(422).body(result);
+            };
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(403).body(Map.of("result", "INVALID", "message", e.getMessage()));
+        }
+    }
+}
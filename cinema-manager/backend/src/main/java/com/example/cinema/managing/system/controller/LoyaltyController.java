@@ -0,0 +1,51 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.model.LoyaltyTransaction;
+import com.example.cinema.managing.system.model.User;
+import com.example.cinema.managing.system.repository.UserRepository;
+import com.example.cinema.managing.system.service.LoyaltyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/loyalty")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class LoyaltyController {
+
+    @Autowired
+    private LoyaltyService loyaltyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @GetMapping("/transactions")
+    public ResponseEntity<List<LoyaltyTransaction>> getMyTransactions(Authentication authentication) {
+        User user = userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return ResponseEntity.ok(loyaltyService.getTransactions(user.getId()));
+    }
+
+    @GetMapping("/users/{userId}/transactions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<LoyaltyTransaction>> getTransactions(@PathVariable String userId) {
+        return ResponseEntity.ok(loyaltyService.getTransactions(userId));
+    }
+
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reconcile() {
+        return ResponseEntity.ok(loyaltyService.reconcile());
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(loyaltyService.getStatistics());
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.cinema.managing.system.controller;
 
 import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.MovieAvailability;
+import com.example.cinema.managing.system.service.MovieAvailabilityService;
 import com.example.cinema.managing.system.service.MovieService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +19,9 @@ public class MovieController {
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private MovieAvailabilityService movieAvailabilityService;
+
     @GetMapping
     public ResponseEntity<List<Movie>> getAllMovies() {
         return ResponseEntity.ok(movieService.getAllMovies());
@@ -29,6 +34,16 @@ public class MovieController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/availability")
+    public ResponseEntity<List<MovieAvailability>> getNowShowingAvailability() {
+        return ResponseEntity.ok(movieAvailabilityService.getNowShowing());
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<MovieAvailability> getAvailability(@PathVariable String id) {
+        return ResponseEntity.ok(movieAvailabilityService.getAvailability(id));
+    }
+
     @GetMapping("/now-showing")
     public ResponseEntity<List<Movie>> getNowShowing() {
         return ResponseEntity.ok(movieService.getNowShowingMovies());
@@ -0,0 +1,81 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.model.Order;
+import com.example.cinema.managing.system.repository.UserRepository;
+import com.example.cinema.managing.system.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("/api/orders")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class OrderController {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @GetMapping("/booking/{bookingId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<List<Order>> getOrdersByBooking(@PathVariable String bookingId, Authentication authentication) {
+        List<Order> orders = orderService.getOrdersByBookingId(bookingId);
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        if (!admin && !orders.isEmpty()) {
+            String userId = userRepository.findByEmail(authentication.getName())
+                    .map(user -> user.getId())
+                    .orElse(null);
+            if (orders.stream().anyMatch(order -> !Objects.equals(order.getUserId(), userId))) {
+                return ResponseEntity.status(403).build();
+            }
+        }
+        return ResponseEntity.ok(orders);
+    }
+
+    @GetMapping("/kitchens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<String>> getKitchens() {
+        return ResponseEntity.ok(orderService.getKitchens());
+    }
+
+    @GetMapping("/kitchens/{kitchen}/queue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Order>> getKitchenQueue(@PathVariable String kitchen) {
+        return ResponseEntity.ok(orderService.getKitchenQueue(kitchen));
+    }
+
+    @GetMapping(value = "/kitchens/{kitchen}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter streamKitchen(@PathVariable String kitchen) {
+        return orderService.subscribe(kitchen);
+    }
+
+    @PostMapping("/kitchens/{kitchen}/next")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Order> startNext(@PathVariable String kitchen) {
+        Order order = orderService.startNext(kitchen);
+        return order == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(order);
+    }
+
+    @PostMapping("/{id}/preparing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Order> startPreparing(@PathVariable String id) {
+        return ResponseEntity.ok(orderService.startPreparing(id));
+    }
+
+    @PostMapping("/{id}/delivered")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Order> markDelivered(@PathVariable String id) {
+        return ResponseEntity.ok(orderService.markDelivered(id));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.cinema.managing.system.controller;
 
 import com.example.cinema.managing.system.model.Payment;
+import com.example.cinema.managing.system.service.PaymentGatewayUnavailableException;
 import com.example.cinema.managing.system.service.PaymentService;
 import com.stripe.exception.StripeException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -29,27 +32,26 @@ public class PaymentController {
     }
 
     @PostMapping("/create-payment-intent")
-    public ResponseEntity<?> createPaymentIntent(
+    public CompletableFuture<ResponseEntity<?>> createPaymentIntent(
             @RequestBody Map<String, Object> request,
             Authentication authentication) {
         try {
             if (authentication == null || !authentication.isAuthenticated()) {
-                return ResponseEntity.status(401)
-                        .body(Map.of("message", "User not authenticated"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(401)
+                        .body(Map.of("message", "User not authenticated")));
             }
 
             String userId = authentication.getName();
             Double amount = ((Number) request.get("amount")).doubleValue();
             String currency = (String) request.getOrDefault("currency", "usd");
 
-            Map<String, String> paymentIntent = paymentService.createPaymentIntent(amount, currency, userId);
-            return ResponseEntity.ok(paymentIntent);
-        } catch (StripeException e) {
-            return ResponseEntity.status(500)
-                    .body(Map.of("message", "Error creating payment intent: " + e.getMessage()));
+            // Stripe is called off the request thread; the response is written when it answers
+            return paymentService.createPaymentIntent(amount, currency, userId)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(error -> paymentError(error, "Error creating payment intent: "));
         } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body(Map.of("message", "Error: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(500)
+                    .body(Map.of("message", "Error: " + e.getMessage())));
         }
     }
 
@@ -75,36 +77,32 @@ public class PaymentController {
     }
 
     @PostMapping("/process/{paymentId}")
-    public ResponseEntity<?> processPayment(
+    public CompletableFuture<ResponseEntity<?>> processPayment(
             @PathVariable String paymentId,
             @RequestBody Map<String, String> request,
             Authentication authentication) {
         try {
             if (authentication == null || !authentication.isAuthenticated()) {
-                return ResponseEntity.status(401)
-                        .body(Map.of("message", "User not authenticated"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(401)
+                        .body(Map.of("message", "User not authenticated")));
             }
 
             String paymentMethod = request.get("paymentMethod");
             String paymentIntentId = request.get("paymentIntentId");
 
-            Payment processedPayment;
-
             // If it's a Stripe payment (CARD), process through Stripe
             if ("CARD".equals(paymentMethod) && paymentIntentId != null) {
-                processedPayment = paymentService.processStripePayment(paymentId, paymentIntentId);
-            } else {
-                // For UPI, Wallet, etc.
-                processedPayment = paymentService.processPayment(paymentId, paymentMethod);
+                return paymentService.processStripePayment(paymentId, paymentIntentId, authentication.getName())
+                        .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                        .exceptionally(error -> paymentError(error, "Error processing payment: "));
             }
 
-            return ResponseEntity.ok(processedPayment);
-        } catch (StripeException e) {
-            return ResponseEntity.status(500)
-                    .body(Map.of("message", "Stripe error: " + e.getMessage()));
+            // For UPI, Wallet, etc.
+            Payment processedPayment = paymentService.processPayment(paymentId, paymentMethod);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(processedPayment));
         } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body(Map.of("message", "Error processing payment: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(500)
+                    .body(Map.of("message", "Error processing payment: " + e.getMessage())));
         }
     }
 
@@ -142,20 +140,36 @@ public class PaymentController {
     }
 
     @PostMapping("/refund/{paymentId}")
-    public ResponseEntity<?> refundPayment(
+    public CompletableFuture<ResponseEntity<?>> refundPayment(
             @PathVariable String paymentId,
             Authentication authentication) {
         try {
             if (authentication == null || !authentication.isAuthenticated()) {
-                return ResponseEntity.status(401)
-                        .body(Map.of("message", "User not authenticated"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(401)
+                        .body(Map.of("message", "User not authenticated")));
             }
 
-            Payment refundedPayment = paymentService.refundPayment(paymentId);
-            return ResponseEntity.ok(refundedPayment);
+            return paymentService.refundPayment(paymentId)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(error -> paymentError(error, "Error processing refund: "));
         } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(500)
+                    .body(Map.of("message", "Error processing refund: " + e.getMessage())));
+        }
+    }
+
+    private ResponseEntity<?> paymentError(Throwable error, String prefix) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof PaymentGatewayUnavailableException) {
+            return ResponseEntity.status(503)
+                    .body(Map.of("message", cause.getMessage()));
+        }
+        if (cause instanceof StripeException) {
             return ResponseEntity.status(500)
-                    .body(Map.of("message", "Error processing refund: " + e.getMessage()));
+                    .body(Map.of("message", "Stripe error: " + cause.getMessage()));
         }
+        return ResponseEntity.status(500)
+                .body(Map.of("message", prefix + cause.getMessage()));
     }
 }
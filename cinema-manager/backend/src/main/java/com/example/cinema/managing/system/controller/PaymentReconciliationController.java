@@ -0,0 +1,39 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.model.ReconciliationReport;
+import com.example.cinema.managing.system.service.PaymentReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/payments/reconciliation")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class PaymentReconciliationController {
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    @PostMapping
+    public ResponseEntity<?> reconcile(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "'from' must be before 'to'"));
+        }
+        if (!reconciliationService.startReconciliation(from, to)) {
+            return ResponseEntity.status(409).body(Map.of("message", "A reconciliation is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Reconciliation started"));
+    }
+
+    @GetMapping("/reports")
+    public ResponseEntity<List<ReconciliationReport>> getReports() {
+        return ResponseEntity.ok(reconciliationService.getRecentReports());
+    }
+}
@@ -31,6 +31,13 @@ public class SeatController {
         return ResponseEntity.ok(seatService.getBookedSeats(showtimeId));
     }
 
+    @GetMapping("/showtime/{showtimeId}/{row}/{column}")
+    public ResponseEntity<Seat> getSeatByPosition(@PathVariable String showtimeId,
+                                                  @PathVariable String row,
+                                                  @PathVariable int column) {
+        return ResponseEntity.ok(seatService.getSeat(showtimeId, row, column));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Seat> getSeatById(@PathVariable String id) {
         return ResponseEntity.ok(seatService.getSeatById(id));
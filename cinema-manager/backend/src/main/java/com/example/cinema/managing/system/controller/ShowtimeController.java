@@ -1,13 +1,34 @@
 package com.example.cinema.managing.system.controller;
 
+import com.example.cinema.managing.system.dto.ImportReport;
+import com.example.cinema.managing.system.dto.PriceQuote;
+import com.example.cinema.managing.system.dto.RepriceResult;
+import com.example.cinema.managing.system.dto.ScheduleResult;
+import com.example.cinema.managing.system.dto.SeatLayoutResult;
+import com.example.cinema.managing.system.dto.WeekScheduleRequest;
+import com.example.cinema.managing.system.model.DailySchedule;
 import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.ShowtimeCancellation;
+import com.example.cinema.managing.system.service.DailyScheduleService;
+import com.example.cinema.managing.system.service.ScheduleConflictException;
+import com.example.cinema.managing.system.service.ShowtimeCancellationService;
+import com.example.cinema.managing.system.service.ShowtimeImportService;
 import com.example.cinema.managing.system.service.ShowtimeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/showtimes")
@@ -17,11 +38,27 @@ public class ShowtimeController {
     @Autowired
     private ShowtimeService showtimeService;
 
+    @Autowired
+    private ShowtimeCancellationService showtimeCancellationService;
+
+    @Autowired
+    private DailyScheduleService dailyScheduleService;
+
+    @Autowired
+    private ShowtimeImportService showtimeImportService;
+
     @GetMapping
     public ResponseEntity<List<Showtime>> getAllShowtimes() {
         return ResponseEntity.ok(showtimeService.getAllShowtimes());
     }
 
+    @GetMapping("/schedule")
+    public ResponseEntity<DailySchedule> getSchedule(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        // One document per day: every active showtime grouped by movie
+        return ResponseEntity.ok(dailyScheduleService.getSchedule(date != null ? date : LocalDate.now()));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Showtime> getShowtimeById(@PathVariable String id) {
         return ResponseEntity.ok(showtimeService.getShowtimeById(id));
@@ -32,6 +69,11 @@ public class ShowtimeController {
         return ResponseEntity.ok(showtimeService.getShowtimesByMovieId(movieId));
     }
 
+    @GetMapping("/{id}/price")
+    public ResponseEntity<PriceQuote> getPriceQuote(@PathVariable String id) {
+        return ResponseEntity.ok(showtimeService.getPriceQuote(id));
+    }
+
     @GetMapping("/upcoming")
     public ResponseEntity<List<Showtime>> getUpcomingShowtimes() {
         return ResponseEntity.ok(showtimeService.getUpcomingShowtimes());
@@ -44,14 +86,52 @@ public class ShowtimeController {
 
     @PostMapping
     // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for bulk import
-    public ResponseEntity<Showtime> createShowtime(@RequestBody Showtime showtime) {
-        return ResponseEntity.ok(showtimeService.createShowtime(showtime));
+    public ResponseEntity<?> createShowtime(@RequestBody Showtime showtime) {
+        try {
+            return ResponseEntity.ok(showtimeService.createShowtime(showtime));
+        } catch (ScheduleConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/schedule/week")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> createWeekSchedule(@RequestBody WeekScheduleRequest request) {
+        try {
+            ScheduleResult result = showtimeService.createWeekSchedule(request);
+            if (result.getCreated() == 0 && !result.getConflicts().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importShowtimes(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(required = false) String format) {
+        // CSV unless asked for NDJSON or the file name says so
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        boolean ndjson = format != null ? format.equalsIgnoreCase("ndjson")
+                : name.endsWith(".ndjson") || name.endsWith(".jsonl");
+        try (InputStream input = file.getInputStream()) {
+            ImportReport report = showtimeImportService.importShowtimes(input, ndjson);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Could not read upload: " + e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Showtime> updateShowtime(@PathVariable String id, @RequestBody Showtime showtime) {
-        return ResponseEntity.ok(showtimeService.updateShowtime(id, showtime));
+    public ResponseEntity<?> updateShowtime(@PathVariable String id, @RequestBody Showtime showtime) {
+        try {
+            return ResponseEntity.ok(showtimeService.updateShowtime(id, showtime));
+        } catch (ScheduleConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -61,17 +141,48 @@ public class ShowtimeController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ShowtimeCancellation> cancelShowtime(@PathVariable String id,
+                                                               @RequestBody(required = false) Map<String, String> request,
+                                                               Authentication authentication) {
+        String reason = request != null ? request.get("reason") : null;
+        String requestedBy = authentication != null ? authentication.getName() : null;
+        return ResponseEntity.accepted().body(showtimeCancellationService.cancelShowtime(id, reason, requestedBy));
+    }
+
+    @GetMapping("/{id}/cancellation")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ShowtimeCancellation> getCancellationProgress(@PathVariable String id) {
+        return ResponseEntity.ok(showtimeCancellationService.getProgress(id));
+    }
+
     @PostMapping("/{id}/regenerate-seats")
-    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
-    public ResponseEntity<String> regenerateSeatsForShowtime(@PathVariable String id) {
-        showtimeService.regenerateSeatsForShowtime(id);
-        return ResponseEntity.ok("Seats regenerated successfully for showtime " + id);
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SeatLayoutResult> regenerateSeatsForShowtime(@PathVariable String id) {
+        return ResponseEntity.ok(showtimeService.regenerateSeatsForShowtime(id));
     }
 
     @PostMapping("/regenerate-all-seats")
-    // @PreAuthorize("hasRole('ADMIN')") // Temporarily disabled for testing
-    public ResponseEntity<String> regenerateAllSeats() {
-        showtimeService.regenerateSeatsForAllShowtimes();
-        return ResponseEntity.ok("Seats regenerated successfully for all showtimes");
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SeatLayoutResult> regenerateAllSeats() {
+        return ResponseEntity.ok(showtimeService.regenerateSeatsForAllShowtimes());
+    }
+
+    @PostMapping("/{id}/reprice")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RepriceResult> repriceSeatsForShowtime(@PathVariable String id) {
+        return ResponseEntity.ok(showtimeService.repriceSeatsForShowtime(id));
+    }
+
+    @PostMapping("/reprice")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> repriceSeatsForShowtimes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "'from' must be before 'to'"));
+        }
+        return ResponseEntity.ok(showtimeService.repriceSeatsForShowtimes(from, to));
     }
 }
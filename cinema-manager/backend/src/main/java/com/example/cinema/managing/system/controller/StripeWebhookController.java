@@ -0,0 +1,40 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.service.StripeWebhookService;
+import com.stripe.exception.SignatureVerificationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/payments/webhook")
+public class StripeWebhookController {
+
+    @Autowired
+    private StripeWebhookService stripeWebhookService;
+
+    @PostMapping
+    public ResponseEntity<?> handleWebhook(
+            @RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        if (!stripeWebhookService.isEnabled()) {
+            return ResponseEntity.status(503)
+                    .body(Map.of("message", "Webhook secret not configured"));
+        }
+        if (signature == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "Missing Stripe-Signature header"));
+        }
+
+        try {
+            boolean stored = stripeWebhookService.ingest(payload, signature);
+            // Stripe only needs a 2xx; processing happens from the inbox
+            return ResponseEntity.ok(Map.of("received", true, "duplicate", !stored));
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "Invalid signature"));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.cinema.managing.system.controller;
+
+import com.example.cinema.managing.system.dto.TicketImage;
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.repository.UserRepository;
+import com.example.cinema.managing.system.service.BookingService;
+import com.example.cinema.managing.system.service.TicketImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tickets")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class TicketController {
+
+    // Tomcat's sendfile contract, the same one its DefaultServlet uses for static files
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // A ticket image never changes once rendered; its URL and ETag change with the image version
+    private static final CacheControl TICKET_CACHE = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
+    @Autowired
+    private TicketImageService ticketImageService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @GetMapping("/{bookingId}/qr.png")
+    public ResponseEntity<?> getTicketQrCode(@PathVariable String bookingId,
+                                            Authentication authentication,
+                                            HttpServletRequest request,
+                                            WebRequest webRequest) {
+        // The QR code is the admission itself, so only the booking's owner (or an admin) may see it
+        Booking booking;
+        try {
+            booking = bookingService.getBookingById(bookingId);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("message", "Ticket not found"));
+        }
+        if (!isOwnerOrAdmin(booking, authentication)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Not your ticket"));
+        }
+
+        String etag = ticketImageService.etag(bookingId);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        TicketImage image;
+        try {
+            image = ticketImageService.getTicketImage(booking);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(404).body(Map.of("message", "Ticket not found"));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(TICKET_CACHE)
+                .eTag(etag)
+                .contentType(MediaType.IMAGE_PNG)
+                .contentLength(image.getLength());
+
+        if (image.getBytes() != null) {
+            return response.body(image.getBytes());
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The connector copies the file to the socket in the kernel once this handler returns
+            request.setAttribute(SENDFILE_FILENAME, image.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, image.getLength());
+            return response.build();
+        }
+        return response.body(new FileSystemResource(image.getFile()));
+    }
+
+    private boolean isOwnerOrAdmin(Booking booking, Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        if (admin) {
+            return true;
+        }
+        return userRepository.findByEmail(authentication.getName())
+                .map(user -> user.getId().equals(booking.getUserId()))
+                .orElse(false);
+    }
+}
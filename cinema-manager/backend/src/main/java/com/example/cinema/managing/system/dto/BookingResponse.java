@@ -27,6 +27,8 @@ public class BookingResponse {
     private String status;
     private String paymentId;
     private Integer loyaltyPointsEarned;
+    private Integer loyaltyPointsRedeemed;
+    private Double loyaltyDiscount;
     private LocalDateTime bookingDate;
     private LocalDateTime showDate;
     private boolean emailSent;
@@ -48,6 +50,8 @@ public class BookingResponse {
         response.setStatus(booking.getStatus());
         response.setPaymentId(booking.getPaymentId());
         response.setLoyaltyPointsEarned(booking.getLoyaltyPointsEarned());
+        response.setLoyaltyPointsRedeemed(booking.getLoyaltyPointsRedeemed());
+        response.setLoyaltyDiscount(booking.getLoyaltyDiscount());
         response.setBookingDate(booking.getBookingDate());
         response.setShowDate(booking.getShowDate());
         response.setEmailSent(booking.isEmailSent());
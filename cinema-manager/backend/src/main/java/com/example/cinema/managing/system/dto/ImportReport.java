@@ -0,0 +1,39 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    private long rows; // data rows read, header excluded
+    private long imported;
+    private long updated; // of the imported rows, those matching an existing document
+    private long failed;
+    private long seats; // seats created along with imported showtimes
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated; // more rows failed than are listed
+    private boolean dryRun; // validated only, nothing written
+
+    public void addError(long line, String message, int maxErrors) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line; // 1-based line in the uploaded file
+        private String message;
+    }
+}
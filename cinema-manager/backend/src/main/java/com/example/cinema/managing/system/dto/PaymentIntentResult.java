@@ -0,0 +1,15 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentIntentResult {
+    private String id;
+    private String clientSecret;
+    private String status; // provider status, e.g. "succeeded", "processing", "requires_payment_method"
+    private Long amountInCents;
+}
@@ -0,0 +1,29 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The dynamic price multiplier in force for one showtime. Seat prices are multiplied by it on read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuote {
+    private String showtimeId;
+    private long version; // changes whenever the multiplier of this showtime changes
+    private long rulesVersion; // version of the compiled DYNAMIC_PRICING_RULES it was computed with
+    private double multiplier;
+    private double occupancy; // 0..1, sold share of the showtime's seats
+    private LocalDateTime computedAt;
+
+    public Double apply(Double seatPrice) {
+        if (seatPrice == null) {
+            return null;
+        }
+        return Math.round(seatPrice * multiplier * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderTransaction {
+    private String transactionId;
+    private String status; // normalized to Payment statuses: PENDING, SUCCESS, FAILED, REFUNDED
+    private Long amountInCents;
+}
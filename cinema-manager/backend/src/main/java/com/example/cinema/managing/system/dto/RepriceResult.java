@@ -0,0 +1,19 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepriceResult {
+    private int showtimes;
+    private long seatsRepriced; // available seats whose price actually changed
+
+    public RepriceResult merge(RepriceResult other) {
+        showtimes += other.showtimes;
+        seatsRepriced += other.seatsRepriced;
+        return this;
+    }
+}
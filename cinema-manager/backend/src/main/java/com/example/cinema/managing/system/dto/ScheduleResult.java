@@ -0,0 +1,18 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleResult {
+    private int created;
+    private long seats;
+    private List<String> showtimeIds = new ArrayList<>();
+    private List<String> conflicts = new ArrayList<>(); // one line per slot that could not be scheduled
+}
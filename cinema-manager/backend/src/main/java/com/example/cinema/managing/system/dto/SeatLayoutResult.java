@@ -0,0 +1,25 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatLayoutResult {
+    private int showtimes;
+    private int added;
+    private int retired; // available seats no longer in the layout
+    private int restored; // retired seats back in the layout
+    private int bookedOutsideLayout; // booked seats left untouched although the layout dropped them
+
+    public SeatLayoutResult merge(SeatLayoutResult other) {
+        showtimes += other.showtimes;
+        added += other.added;
+        retired += other.retired;
+        restored += other.restored;
+        bookedOutsideLayout += other.bookedOutsideLayout;
+        return this;
+    }
+}
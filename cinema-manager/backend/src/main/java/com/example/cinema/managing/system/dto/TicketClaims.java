@@ -0,0 +1,18 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketClaims {
+    private String bookingId;
+    private String showtimeId;
+    private List<String> seats;
+    private Instant expiresAt;
+}
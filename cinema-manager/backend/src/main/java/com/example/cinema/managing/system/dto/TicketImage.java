@@ -0,0 +1,16 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketImage {
+    private byte[] bytes; // set when served from the in-memory cache
+    private Path file; // set when served from the file store
+    private long length;
+}
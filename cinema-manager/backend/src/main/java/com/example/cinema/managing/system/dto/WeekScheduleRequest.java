@@ -0,0 +1,32 @@
+package com.example.cinema.managing.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeekScheduleRequest {
+    private LocalDate weekStart;
+    private Integer days; // defaults to 7
+    private boolean skipConflicts; // create the slots that fit instead of rejecting the whole request
+    private List<Slot> slots;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Slot {
+        private String screenNumber;
+        private String movieId;
+        private LocalTime time; // start time, e.g. "19:30"
+        private String format;
+        private Double price;
+        private List<DayOfWeek> days; // empty for every day
+    }
+}
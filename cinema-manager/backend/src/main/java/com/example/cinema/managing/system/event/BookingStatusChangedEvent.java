@@ -0,0 +1,17 @@
+package com.example.cinema.managing.system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after a booking was created or changed status. Carries only ids so listeners
+ * never act on a stale copy of the booking.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookingStatusChangedEvent {
+    private final String bookingId;
+    private final String status; // CONFIRMED, CANCELLED, COMPLETED
+}
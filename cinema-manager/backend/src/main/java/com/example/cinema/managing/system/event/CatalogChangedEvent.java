@@ -0,0 +1,15 @@
+package com.example.cinema.managing.system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after food or merchandise items were created, edited or removed.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CatalogChangedEvent {
+    private final String catalog; // FOOD, MERCHANDISE
+}
@@ -0,0 +1,22 @@
+package com.example.cinema.managing.system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Published after movies were created, edited or deleted: once per movie from the admin service,
+ * once per batch from a catalogue import.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MovieChangedEvent {
+    private final List<String> movieIds;
+
+    public MovieChangedEvent(String movieId) {
+        this(List.of(movieId));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cinema.managing.system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after a showtime or its seats changed in a way that readers caching it must see,
+ * e.g. a new price or layout.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ShowtimeChangedEvent {
+    private final String showtimeId;
+    private final String reason; // CREATED, UPDATED, CANCELLED, PRICE, LAYOUT, SEATS (seats booked or released)
+}
@@ -0,0 +1,15 @@
+package com.example.cinema.managing.system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after a system config entry was created, updated or deleted.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SystemConfigChangedEvent {
+    private final String configKey; // null when only the id of a deleted entry is known
+}
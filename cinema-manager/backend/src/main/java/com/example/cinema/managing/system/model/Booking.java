@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -11,6 +13,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Document(collection = "bookings")
+@CompoundIndex(name = "status_show_date_idx", def = "{'status': 1, 'showDate': 1}")
+@CompoundIndex(name = "user_booking_date_idx", def = "{'userId': 1, 'bookingDate': -1}")
+@CompoundIndex(name = "loyalty_unposted_idx", def = "{'loyaltyPostedAt': 1, 'status': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +28,7 @@ public class Booking {
 
     private String movieId;
 
+    @Indexed
     private String showtimeId;
 
     private List<String> seatIds;
@@ -33,7 +39,9 @@ public class Booking {
 
     private Double totalAmount;
 
-    private String bookingCode; // unique code for QR
+    private Long priceVersion; // PriceQuote version the seats were priced with
+
+    private String bookingCode; // see BookingCodeGenerator; unique index built by BookingCodeMigrationService
 
     private String qrCodeUrl;
 
@@ -43,8 +51,16 @@ public class Booking {
 
     private Integer loyaltyPointsEarned;
 
+    private Integer loyaltyPointsRedeemed; // requested at checkout, deducted from the user's balance
+
+    private Double loyaltyDiscount = 0.0;
+
+    private LocalDateTime loyaltyPostedAt; // set once the booking's ledger entries are written
+
     private List<BookingFoodItem> foodItems;
 
+    private String foodDeliveryType = "SEAT"; // SEAT, COUNTER
+
     private Double foodTotal = 0.0;
 
     private List<BookingMerchandiseItem> merchandiseItems;
@@ -56,4 +72,8 @@ public class Booking {
     private LocalDateTime showDate;
 
     private boolean emailSent = false;
+
+    private LocalDateTime checkedInAt; // set by the first successful gate scan
+
+    private String checkedInGate;
 }
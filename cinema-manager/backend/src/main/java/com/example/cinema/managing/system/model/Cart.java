@@ -4,12 +4,16 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Document(collection = "carts")
+@CompoundIndex(name = "user_status_idx", def = "{'userId': 1, 'status': 1}")
+@CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updatedAt': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,6 +33,9 @@ public class Cart {
     
     private String status = "ACTIVE"; // ACTIVE, CHECKED_OUT, ABANDONED
     
+    @Indexed(name = "cart_expiry_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expireAt; // set once the cart leaves ACTIVE; MongoDB deletes it after this
+    
     public void calculateTotal() {
         this.total = items.stream()
             .mapToDouble(CartItem::getSubtotal)
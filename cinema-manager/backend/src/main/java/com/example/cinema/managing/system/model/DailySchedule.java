@@ -0,0 +1,58 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read model: the whole programme of one day, every active showtime grouped by movie.
+ * Derived from {@link Showtime} and {@link Movie}; rebuilt by DailyScheduleService, never edited.
+ */
+@Document(collection = "daily_schedules")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySchedule {
+    @Id
+    private String id; // the date, yyyy-MM-dd
+
+    private LocalDate date;
+
+    private List<MovieSchedule> movies;
+
+    private int showtimeCount;
+
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MovieSchedule {
+        private String movieId;
+        private String title;
+        private String posterUrl;
+        private Integer duration;
+        private String rating;
+        private String genre;
+        private List<ScheduleEntry> showtimes; // by start time
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScheduleEntry {
+        private String showtimeId;
+        private LocalDateTime showDateTime;
+        private String format;
+        private String screenNumber;
+        private Double price;
+        private Integer availableSeats;
+        private Integer totalSeats;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting to be sent. Written next to the business change that triggers it and
+ * delivered later by {@code EmailOutboxService}, so SMTP is never on the request path.
+ */
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "type_booking_idx", def = "{'type': 1, 'bookingId': 1}", unique = true)
+@CompoundIndex(name = "status_next_attempt_idx", def = "{'status': 1, 'nextAttemptAt': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutboxMessage {
+    @Id
+    private String id;
+
+    private String type; // BOOKING_CONFIRMATION
+
+    private String bookingId;
+
+    private String status = "PENDING"; // PENDING, SENDING, SENT, FAILED
+
+    private String claimId;
+
+    private Integer attempts = 0;
+
+    private String lastError;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private LocalDateTime lockedUntil;
+
+    @Indexed(name = "sent_ttl", expireAfterSeconds = 30 * 24 * 60 * 60) // keep sent mail 30 days
+    private LocalDateTime sentAt;
+}
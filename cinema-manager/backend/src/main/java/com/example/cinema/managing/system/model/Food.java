@@ -4,10 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "foods")
+@CompoundIndex(name = "name_size_idx", def = "{'name': 1, 'size': 1}") // natural key for catalogue imports
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
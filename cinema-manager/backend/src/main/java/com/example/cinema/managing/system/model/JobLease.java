@@ -0,0 +1,26 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "job_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+    @Id
+    private String id; // job name
+
+    private String owner; // instance holding or last holding the lease
+
+    private LocalDateTime lockedUntil; // others may take the lease after this
+
+    private LocalDateTime lastRunAt;
+
+    private String lastResult;
+}
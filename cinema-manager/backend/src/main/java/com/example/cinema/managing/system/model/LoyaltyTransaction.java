@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -13,15 +14,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class LoyaltyTransaction {
     @Id
-    private String id;
+    private String id; // "<type>:<referenceId>", so an entry can only ever be written once
     
+    @Indexed
     private String userId;
     
-    private Integer points;
+    private Integer points; // signed: the sum of a user's entries is their balance
     
-    private String type; // EARNED, REDEEMED
+    private String type; // EARNED, REDEEMED, REVERSED, REFUNDED, ADJUSTED
     
-    private String source; // BOOKING, ORDER, SIGNUP_BONUS
+    private String source; // BOOKING, ORDER, SIGNUP_BONUS, OPENING_BALANCE, RECONCILIATION
     
     private String referenceId; // bookingId or orderId
     
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -15,6 +16,7 @@ public class Merchandise {
     @Id
     private String id;
     
+    @Indexed // natural key for catalogue imports
     private String name;
     
     private String description;
@@ -0,0 +1,38 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-movie summary of its upcoming active showtimes, for movie cards
+ * ("from LKR X, N shows today, selling fast"). Derived; see MovieAvailabilityService.
+ */
+@Document(collection = "movie_availability")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieAvailability {
+    @Id
+    private String movieId;
+
+    private Double minPrice; // lowest base ticket price among upcoming shows
+
+    private int upcomingShows;
+
+    private int showsToday; // upcoming shows starting today
+
+    private int seatsLeft;
+
+    private int totalSeats;
+
+    private LocalDateTime nextShowTime;
+
+    private boolean sellingFast;
+
+    private LocalDateTime updatedAt;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,13 +31,29 @@ public class Order {
     
     private String seatNumber; // if seat delivery
     
+    @Indexed
     private String bookingId; // linked booking if applicable
+
+    private String showtimeId;
+
+    private LocalDateTime showDateTime; // orders for earlier shows are served first
+
+    private String kitchen; // station preparing the order, see OrderService
+
+    private String firstSeatId; // seat-delivery route order within a show
     
     private String paymentId;
     
     private LocalDateTime orderDate = LocalDateTime.now();
     
     private LocalDateTime deliveryTime;
+
+    private LocalDateTime preparingAt;
+
+    @Indexed
+    private LocalDateTime updatedAt; // also what other instances poll for changes
+
+    private Long stateVersion = 0L; // bumped on every status change; stale write-behind updates are dropped
     
     @Data
     @NoArgsConstructor
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -25,10 +26,12 @@ public class Payment {
     
     private String paymentMethod; // CARD, UPI, WALLET, CASH
     
-    private String transactionId;
+    @Indexed
+    private String transactionId; // Stripe PaymentIntent id (pi_...) for card payments
     
     private String status; // PENDING, SUCCESS, FAILED, REFUNDED
     
+    @Indexed
     private LocalDateTime paymentDate = LocalDateTime.now();
     
     private String paymentType; // BOOKING, ORDER
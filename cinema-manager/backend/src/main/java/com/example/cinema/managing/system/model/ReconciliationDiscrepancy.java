@@ -0,0 +1,26 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationDiscrepancy {
+    private String paymentId;
+
+    private String transactionId;
+
+    private String type; // STATUS_MISMATCH, MISSING_AT_PROVIDER, AMOUNT_MISMATCH, ABANDONED
+
+    private String localStatus;
+
+    private String providerStatus;
+
+    private Double localAmount;
+
+    private Double providerAmount;
+
+    private String action; // CORRECTED, REPORTED
+}
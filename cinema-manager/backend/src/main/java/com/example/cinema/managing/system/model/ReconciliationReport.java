@@ -0,0 +1,52 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Document(collection = "payment_reconciliation_reports")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReport {
+    @Id
+    private String id;
+
+    private String ledger;
+
+    private LocalDateTime windowStart;
+
+    private LocalDateTime windowEnd;
+
+    private String status; // COMPLETED, FAILED, SKIPPED
+
+    private String error;
+
+    private long scanned;
+
+    private long checkedWithProvider;
+
+    private long matched;
+
+    private long corrected;
+
+    private long reported;
+
+    private Map<String, Long> discrepanciesByType = new HashMap<>();
+
+    private List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>(); // first N only, see discrepanciesByType
+
+    @Indexed
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "seats")
@@ -14,6 +15,7 @@ public class Seat {
     @Id
     private String id;
     
+    @Indexed
     private String showtimeId;
     
     private String seatNumber; // e.g., A1, A2, B1
@@ -26,7 +28,7 @@ public class Seat {
     
     private Double price;
     
-    private String status; // AVAILABLE, BOOKED, BLOCKED
+    private String status; // AVAILABLE, BOOKED, BLOCKED, RETIRED (dropped from the layout)
     
     private String bookedBy; // userId if booked
     
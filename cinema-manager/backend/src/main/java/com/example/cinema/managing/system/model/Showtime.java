@@ -4,10 +4,13 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "showtimes")
+@CompoundIndex(name = "active_show_date_idx", def = "{'active': 1, 'showDateTime': 1}")
+@CompoundIndex(name = "screen_show_date_idx", def = "{'screenNumber': 1, 'showDateTime': 1}")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,6 +33,14 @@ public class Showtime {
     private String format; // 2D, 3D, IMAX, etc. - values from SystemConfig
     
     private boolean active = true;
+
+    private LocalDateTime salesClosedAt; // set by ShowtimeLifecycleService shortly before the show starts
+
+    private LocalDateTime finishedAt; // set when the show is over; it is also made inactive then
+
+    private LocalDateTime seatsPurgedAt; // unsold seat documents removed after the show
+
+    private LocalDateTime seatsArchivedAt; // remaining (booked) seats moved to seats_archive
     
     private LocalDateTime createdAt = LocalDateTime.now();
 }
@@ -0,0 +1,54 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress and checkpoint of the cancellation pipeline for one showtime.
+ * The document id is the showtime id, so a showtime can only be cancelled once.
+ */
+@Document(collection = "showtime_cancellations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShowtimeCancellation {
+    @Id
+    private String id; // showtime id
+
+    @Indexed
+    private String status = "RUNNING"; // RUNNING, COMPLETED, COMPLETED_WITH_ERRORS
+
+    private String reason;
+
+    private String requestedBy;
+
+    private Integer totalBookings = 0; // bookings found for the showtime when the job started
+
+    private String lastBookingId; // checkpoint: every booking up to this id has been handled
+
+    private List<String> inFlightBookingIds = new ArrayList<>(); // page cancelled but not yet refunded
+
+    private Integer bookingsCancelled = 0;
+
+    private Integer seatsReleased = 0;
+
+    private Integer refundsIssued = 0;
+
+    private Integer refundsFailed = 0;
+
+    private List<String> failedPaymentIds = new ArrayList<>(); // capped, for manual follow-up
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+}
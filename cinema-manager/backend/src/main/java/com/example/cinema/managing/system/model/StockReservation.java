@@ -0,0 +1,33 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Document(collection = "stock_reservations")
+@CompoundIndex(name = "cart_merchandise_idx", def = "{'cartId': 1, 'merchandiseId': 1}", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    @Id
+    private String id;
+    
+    private String cartId;
+    
+    private String userId;
+    
+    private String merchandiseId;
+    
+    private Integer quantity; // units already taken out of Merchandise.stock
+    
+    @Indexed
+    private LocalDateTime expiresAt; // released back to stock by the sweeper after this
+    
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,45 @@
+package com.example.cinema.managing.system.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Document(collection = "stripe_webhook_events")
+@CompoundIndex(name = "status_next_attempt_idx", def = "{'status': 1, 'nextAttemptAt': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StripeWebhookEvent {
+    @Id
+    private String id; // Stripe event id (evt_...), so redeliveries collide on insert
+    
+    private String type; // e.g. payment_intent.succeeded, charge.refunded
+    
+    @Indexed
+    private String paymentIntentId;
+    
+    private String objectStatus; // status carried by the event: succeeded, failed, refunded
+
+    private Long amountInCents; // intent amount; a success only settles a payment of the same amount
+    
+    private String payload; // raw verified JSON, kept for auditing
+    
+    private String status = "PENDING"; // PENDING, PROCESSING, PROCESSED, UNMATCHED, FAILED
+    
+    private Integer attempts = 0;
+    
+    private String lastError;
+    
+    private LocalDateTime receivedAt = LocalDateTime.now();
+    
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+    
+    private LocalDateTime lockedUntil;
+    
+    private LocalDateTime processedAt;
+}
@@ -40,6 +40,8 @@ public class SystemConfig {
     public static final String SEAT_ROWS = "SEAT_ROWS";
     public static final String SEATS_PER_ROW = "SEATS_PER_ROW";
     public static final String SEAT_TYPES = "SEAT_TYPES";
+    public static final String SEAT_TYPE_MULTIPLIERS = "SEAT_TYPE_MULTIPLIERS";
+    public static final String DYNAMIC_PRICING_RULES = "DYNAMIC_PRICING_RULES";
     public static final String WELCOME_BONUS = "WELCOME_BONUS";
     public static final String DEFAULT_ADMIN_EMAIL = "DEFAULT_ADMIN_EMAIL";
     public static final String DEFAULT_ADMIN_PASSWORD = "DEFAULT_ADMIN_PASSWORD";
@@ -13,6 +13,7 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     List<Booking> findByUserIdOrderByBookingDateDesc(String userId);
     List<Booking> findByMovieId(String movieId);
     List<Booking> findByShowtimeId(String showtimeId);
+    long countByShowtimeId(String showtimeId);
     List<Booking> findByStatus(String status);
     List<Booking> findByBookingDateBetween(LocalDateTime start, LocalDateTime end);
     Optional<Booking> findByBookingCode(String bookingCode);
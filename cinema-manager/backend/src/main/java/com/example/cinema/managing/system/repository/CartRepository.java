@@ -9,4 +9,5 @@ import java.util.Optional;
 public interface CartRepository extends MongoRepository<Cart, String> {
     Optional<Cart> findByUserIdAndStatus(String userId, String status);
     Optional<Cart> findByUserId(String userId);
+    long countByStatus(String status);
 }
@@ -0,0 +1,12 @@
+package com.example.cinema.managing.system.repository;
+
+import com.example.cinema.managing.system.model.EmailOutboxMessage;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxMessageRepository extends MongoRepository<EmailOutboxMessage, String> {
+    List<EmailOutboxMessage> findByClaimId(String claimId);
+    long countByStatus(String status);
+}
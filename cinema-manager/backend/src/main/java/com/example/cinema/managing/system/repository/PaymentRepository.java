@@ -5,6 +5,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends MongoRepository<Payment, String> {
@@ -13,5 +15,7 @@ public interface PaymentRepository extends MongoRepository<Payment, String> {
     List<Payment> findByOrderId(String orderId);
     List<Payment> findByStatus(String status);
     List<Payment> findByPaymentDateBetween(LocalDateTime start, LocalDateTime end);
+    Stream<Payment> streamByPaymentDateBetween(LocalDateTime start, LocalDateTime end);
     List<Payment> findByPaymentType(String paymentType);
+    Optional<Payment> findByTransactionId(String transactionId);
 }
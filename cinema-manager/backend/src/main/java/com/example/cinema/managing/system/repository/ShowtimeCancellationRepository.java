@@ -0,0 +1,11 @@
+package com.example.cinema.managing.system.repository;
+
+import com.example.cinema.managing.system.model.ShowtimeCancellation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ShowtimeCancellationRepository extends MongoRepository<ShowtimeCancellation, String> {
+    List<ShowtimeCancellation> findByStatus(String status);
+}
@@ -0,0 +1,13 @@
+package com.example.cinema.managing.system.repository;
+
+import com.example.cinema.managing.system.model.StockReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends MongoRepository<StockReservation, String> {
+    List<StockReservation> findByCartId(String cartId);
+    Optional<StockReservation> findByCartIdAndMerchandiseId(String cartId, String merchandiseId);
+}
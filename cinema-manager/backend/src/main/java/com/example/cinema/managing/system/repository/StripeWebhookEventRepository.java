@@ -0,0 +1,12 @@
+package com.example.cinema.managing.system.repository;
+
+import com.example.cinema.managing.system.model.StripeWebhookEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface StripeWebhookEventRepository extends MongoRepository<StripeWebhookEvent, String> {
+    List<StripeWebhookEvent> findByPaymentIntentIdAndStatusOrderByReceivedAtAsc(String paymentIntentId, String status);
+    long countByStatus(String status);
+}
@@ -0,0 +1,189 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.Showtime;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cold tier for history. Seats of finished shows, and bookings and payments past the retention
+ * window, are moved from the primary collections into {@code *_archive} collections, so the hot
+ * collections and their indexes only grow with what is current.
+ * A move copies a chunk with idempotent replace-upserts and then deletes exactly the copied ids,
+ * so a run that stops anywhere is resumed by the next one without loss or duplicates. Chunks are
+ * rate-limited, and the run holds a {@link JobLeaseService} lease that it renews per chunk.
+ * Reads that may reach old data ({@link BookingService}) fall back to the archive.
+ */
+@Service
+public class ArchivalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivalService.class);
+
+    static final String BOOKINGS_ARCHIVE = "bookings_archive";
+    static final String PAYMENTS_ARCHIVE = "payments_archive";
+    static final String SEATS_ARCHIVE = "seats_archive";
+
+    private static final String JOB = "archive";
+    private static final List<String> ARCHIVABLE_BOOKING_STATUSES = List.of("COMPLETED", "CANCELLED");
+    private static final List<String> ARCHIVABLE_PAYMENT_STATUSES = List.of("SUCCESS", "FAILED", "REFUNDED");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Value("${app.archive.retention-days:365}")
+    private long retentionDays;
+
+    @Value("${app.archive.seat-retention-days:7}")
+    private long seatRetentionDays;
+
+    @Value("${app.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.archive.chunks-per-second:2}")
+    private double chunksPerSecond;
+
+    @Value("${app.archive.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private TokenBucket rate;
+
+    @PostConstruct
+    public void init() {
+        rate = new TokenBucket(chunksPerSecond);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createArchiveIndexes() {
+        mongoTemplate.indexOps(BOOKINGS_ARCHIVE).createIndex(new Index().on("userId", Sort.Direction.ASC).on("bookingDate", Sort.Direction.DESC));
+        mongoTemplate.indexOps(BOOKINGS_ARCHIVE).createIndex(new Index().on("bookingCode", Sort.Direction.ASC));
+        mongoTemplate.indexOps(PAYMENTS_ARCHIVE).createIndex(new Index().on("bookingId", Sort.Direction.ASC));
+        mongoTemplate.indexOps(SEATS_ARCHIVE).createIndex(new Index().on("showtimeId", Sort.Direction.ASC));
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 0 2 * * *}")
+    public void archive() {
+        jobLeaseService.runExclusively(JOB, lease(), () -> {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            long seats = archiveSeats();
+            long bookings = move("bookings", BOOKINGS_ARCHIVE, Criteria.where("status").in(ARCHIVABLE_BOOKING_STATUSES)
+                    .and("showDate").lt(cutoff));
+            long payments = move("payments", PAYMENTS_ARCHIVE, Criteria.where("status").in(ARCHIVABLE_PAYMENT_STATUSES)
+                    .and("paymentDate").lt(cutoff));
+            logger.info("Archived {} seat(s), {} booking(s) and {} payment(s)", seats, bookings, payments);
+            return "archived " + seats + " seat(s), " + bookings + " booking(s), " + payments + " payment(s)";
+        });
+    }
+
+    public Booking findArchivedBooking(String id) {
+        return mongoTemplate.findById(id, Booking.class, BOOKINGS_ARCHIVE);
+    }
+
+    public Booking findArchivedBookingByCode(String bookingCode) {
+        return mongoTemplate.findOne(new Query(Criteria.where("bookingCode").is(bookingCode)), Booking.class, BOOKINGS_ARCHIVE);
+    }
+
+    public List<Booking> findArchivedBookingsByUserId(String userId, long skip, int limit) {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "bookingDate"))
+                .skip(skip)
+                .limit(limit);
+        return mongoTemplate.find(query, Booking.class, BOOKINGS_ARCHIVE);
+    }
+
+    /**
+     * Unsold seats are already gone (ShowtimeLifecycleService); this moves the booked ones of
+     * shows that finished a while ago, a handful of showtimes at a time.
+     */
+    private long archiveSeats() {
+        long moved = 0;
+        Query due = new Query(Criteria.where("seatsPurgedAt").ne(null)
+                .and("seatsArchivedAt").is(null)
+                .and("finishedAt").lt(LocalDateTime.now().minusDays(seatRetentionDays)))
+                .limit(Math.max(1, chunkSize / 100));
+        due.fields().include("id");
+        List<String> showtimeIds;
+        while (!(showtimeIds = mongoTemplate.find(due, Showtime.class).stream().map(Showtime::getId).toList()).isEmpty()) {
+            moved += move("seats", SEATS_ARCHIVE, Criteria.where("showtimeId").in(showtimeIds));
+            mongoTemplate.updateMulti(new Query(Criteria.where("id").in(showtimeIds)),
+                    new Update().set("seatsArchivedAt", LocalDateTime.now()), Showtime.class);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the documents matching {@code selection} chunk by chunk and returns how many were moved.
+     * Throws if the run has to stop; whatever is left stays for the next run.
+     */
+    private long move(String collection, String archive, Criteria selection) {
+        long moved = 0;
+        while (true) {
+            // Renews our lease; fails only if it expired and another node took over
+            if (!jobLeaseService.tryAcquire(JOB, lease())) {
+                throw new RuntimeException("Lost the archive lease after moving " + moved + " " + collection + " document(s)");
+            }
+            try {
+                rate.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Archiving was interrupted");
+            }
+
+            Query query = new Query(selection).with(Sort.by("_id")).limit(chunkSize);
+            List<Document> chunk = mongoTemplate.find(query, Document.class, collection);
+            if (chunk.isEmpty()) {
+                return moved;
+            }
+
+            BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, archive);
+            for (Document document : chunk) {
+                copy.replaceOne(new Query(Criteria.where("_id").is(document.get("_id"))), document,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            copy.execute();
+            List<Object> ids = chunk.stream().map(document -> document.get("_id")).toList();
+            // Re-checked against the selection, so a document changed after the copy is not lost
+            long removed = mongoTemplate.remove(new Query(new Criteria().andOperator(Criteria.where("_id").in(ids), selection)),
+                    collection).getDeletedCount();
+            if (removed < ids.size()) {
+                // Those left behind are live again; their archived copies are stale
+                Query kept = new Query(Criteria.where("_id").in(ids));
+                kept.fields().include("_id");
+                List<Object> keptIds = mongoTemplate.find(kept, Document.class, collection).stream()
+                        .map(document -> document.get("_id")).toList();
+                mongoTemplate.remove(new Query(Criteria.where("_id").in(keptIds)), archive);
+            }
+
+            moved += removed;
+            if (chunk.size() < chunkSize) {
+                return moved;
+            }
+        }
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.PaymentIntentResult;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs {@link PaymentGateway} calls on virtual threads so a slow provider never holds a
+ * Tomcat worker. Each call has a deadline, at most {@code max-concurrent-calls} may be in flight
+ * (the rest fail fast), and a circuit breaker stops calling a provider that keeps failing.
+ * Rejections and timeouts surface as {@link PaymentGatewayUnavailableException}.
+ */
+@Service
+public class AsyncPaymentGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncPaymentGateway.class);
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Value("${app.payments.call-timeout-ms:10000}")
+    private long callTimeoutMs;
+
+    @Value("${app.payments.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.payments.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.payments.circuit.open-ms:30000}")
+    private long circuitOpenMs;
+
+    private ExecutorService executor;
+    private Semaphore bulkhead;
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new CircuitBreaker(failureThreshold, circuitOpenMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<PaymentIntentResult> createPaymentIntent(long amountInCents, String currency,
+                                                                     Map<String, String> metadata) {
+        return call("createPaymentIntent", () -> paymentGateway.createPaymentIntent(amountInCents, currency, metadata));
+    }
+
+    public CompletableFuture<PaymentIntentResult> retrievePaymentIntent(String paymentIntentId) {
+        return call("retrievePaymentIntent", () -> paymentGateway.retrievePaymentIntent(paymentIntentId));
+    }
+
+    public CompletableFuture<String> refund(String paymentIntentId, String idempotencyKey) {
+        return call("refund", () -> paymentGateway.refund(paymentIntentId, idempotencyKey));
+    }
+
+    public String getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.availablePermits();
+    }
+
+    private <T> CompletableFuture<T> call(String operation, GatewayCall<T> gatewayCall) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new PaymentGatewayUnavailableException(
+                    "Payment provider is temporarily unavailable. Please try again shortly."));
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            return CompletableFuture.failedFuture(new PaymentGatewayUnavailableException(
+                    "Payment provider is busy. Please try again shortly."));
+        }
+
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                T result = gatewayCall.execute();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (StripeException e) {
+                if (isProviderFault(e)) {
+                    circuitBreaker.onFailure();
+                } else {
+                    // Declined cards and bad requests say nothing about provider health
+                    circuitBreaker.onSuccess();
+                }
+                throw new CompletionException(e);
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            } finally {
+                bulkhead.release();
+            }
+        }, executor);
+
+        return future
+                .orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        circuitBreaker.onFailure();
+                        logger.warn("Payment provider call {} timed out after {} ms", operation, callTimeoutMs);
+                        return CompletableFuture.failedFuture(new PaymentGatewayUnavailableException(
+                                "Payment provider did not respond in time. Please try again shortly.", cause));
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private boolean isProviderFault(StripeException e) {
+        return e instanceof ApiConnectionException
+                || (e.getStatusCode() != null && e.getStatusCode() >= 500);
+    }
+
+    @FunctionalInterface
+    private interface GatewayCall<T> {
+        T execute() throws StripeException;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.cinema.managing.system.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates booking codes that are unique by construction.
+ * A code packs 32 bits of seconds since 2024-01-01, a 6-bit node id and a 12-bit per-second
+ * sequence into 50 bits. That is written as 10 Crockford base32 characters, plus Crockford's
+ * mod-37 check symbol. Generation is a single CAS loop, with no locks and no randomness. When a
+ * node issues more than 4096 codes in one second, the sequence carries into the next second, but
+ * never more than {@link #MAX_BORROWED_SECONDS} ahead of the clock.
+ * Node ids come from {@code app.bookings.code-node-id} or, when that is unset, from a lease in
+ * {@code job_leases} that is renewed while the instance runs. Whoever takes a node id over starts
+ * its sequence past any second the previous holder could have borrowed, and a clean shutdown waits
+ * out its own borrowed seconds, so a restart never reissues a code.
+ */
+@Service
+public class BookingCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingCodeGenerator.class);
+
+    private static final String SYMBOLS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final String CHECK_SYMBOLS = SYMBOLS + "*~$=U";
+    private static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int CODE_LENGTH = 10;
+    private static final int LEGACY_CODE_LENGTH = 8;
+    private static final long MAX_BORROWED_SECONDS = 2;
+    private static final String NODE_LEASE_PREFIX = "booking-code-node-";
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Value("${app.bookings.code-node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${app.bookings.code-node-lease-seconds:60}")
+    private long nodeLeaseSeconds;
+
+    private volatile long nodeId;
+
+    // Seconds before this are treated as already used by an earlier holder of the node id
+    private volatile long startSecond;
+
+    // (seconds since epoch << SEQUENCE_BITS) | sequence of the last issued code
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            nodeId = configuredNodeId & ((1 << NODE_BITS) - 1);
+            startPastBorrowedSeconds();
+        } else {
+            acquireNodeId();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.bookings.code-node-renew-ms:20000}")
+    public void renewNodeLease() {
+        if (configuredNodeId >= 0 || jobLeaseService.tryAcquire(NODE_LEASE_PREFIX + nodeId, nodeLease())) {
+            return;
+        }
+        // Only after a pause longer than the lease; any clash meanwhile is caught by the unique index
+        logger.warn("Lost the lease on booking code node id {}, taking another", nodeId);
+        acquireNodeId();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        long borrowedUntil = lastIssued.get() >>> SEQUENCE_BITS;
+        while (currentSecond() <= borrowedUntil) {
+            Thread.sleep(100);
+        }
+        if (configuredNodeId < 0) {
+            jobLeaseService.release(NODE_LEASE_PREFIX + nodeId, "released");
+        }
+    }
+
+    public String nextCode() {
+        long issued;
+        while (true) {
+            long now = Math.max(currentSecond(), startSecond) << SEQUENCE_BITS;
+            long last = lastIssued.get();
+            // Same second (or a borrowed future one): next sequence number, carrying into the seconds
+            issued = now > last ? now : last + 1;
+            if ((issued >>> SEQUENCE_BITS) - (now >>> SEQUENCE_BITS) > MAX_BORROWED_SECONDS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (lastIssued.compareAndSet(last, issued)) {
+                break;
+            }
+        }
+
+        long seconds = issued >>> SEQUENCE_BITS;
+        long sequence = issued & ((1 << SEQUENCE_BITS) - 1);
+        long value = (seconds << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+
+        char[] code = new char[CODE_LENGTH + 1];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = SYMBOLS.charAt((int) (value & 31));
+            value >>>= 5;
+        }
+        code[CODE_LENGTH] = checkSymbol(code, CODE_LENGTH);
+        return new String(code);
+    }
+
+    /**
+     * Canonical form of a code typed or read back by a person: upper case, no separators,
+     * and O/I/L read as 0/1/1. Returns null when the input cannot be a booking code,
+     * so lookups can be skipped. Eight-character codes from before this generator pass through.
+     */
+    public static String normalize(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(input.length());
+        for (char c : input.trim().toUpperCase().toCharArray()) {
+            switch (c) {
+                case '-', ' ' -> { }
+                case 'O' -> normalized.append('0');
+                case 'I', 'L' -> normalized.append('1');
+                default -> normalized.append(c);
+            }
+        }
+        String code = normalized.toString();
+
+        if (code.length() == LEGACY_CODE_LENGTH) {
+            return code.matches("[0-9A-F]{8}") ? code : null;
+        }
+        if (code.length() != CODE_LENGTH + 1) {
+            return null;
+        }
+        char[] chars = code.toCharArray();
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            if (SYMBOLS.indexOf(chars[i]) < 0) {
+                return null;
+            }
+        }
+        return checkSymbol(chars, CODE_LENGTH) == chars[CODE_LENGTH] ? code : null;
+    }
+
+    private static char checkSymbol(char[] code, int length) {
+        // Crockford's check: the value mod 37, computed digit by digit
+        int remainder = 0;
+        for (int i = 0; i < length; i++) {
+            remainder = (remainder * 32 + SYMBOLS.indexOf(code[i])) % 37;
+        }
+        return CHECK_SYMBOLS.charAt(remainder);
+    }
+
+    private synchronized void acquireNodeId() {
+        for (int candidate = 0; candidate < 1 << NODE_BITS; candidate++) {
+            if (jobLeaseService.tryAcquire(NODE_LEASE_PREFIX + candidate, nodeLease())) {
+                nodeId = candidate;
+                startPastBorrowedSeconds();
+                logger.info("Booking code node id {} leased; set app.bookings.code-node-id to pin it", candidate);
+                return;
+            }
+        }
+        throw new IllegalStateException("All " + (1 << NODE_BITS) + " booking code node ids are leased");
+    }
+
+    /**
+     * The previous user of this node id may have issued codes up to MAX_BORROWED_SECONDS ahead of
+     * the clock before it stopped; the first code issued here comes after all of them.
+     */
+    private void startPastBorrowedSeconds() {
+        startSecond = currentSecond() + MAX_BORROWED_SECONDS + 1;
+        lastIssued.accumulateAndGet((startSecond << SEQUENCE_BITS) - 1, Math::max);
+    }
+
+    private static long currentSecond() {
+        return Instant.now().getEpochSecond() - EPOCH_SECONDS;
+    }
+
+    private Duration nodeLease() {
+        return Duration.ofSeconds(nodeLeaseSeconds);
+    }
+}
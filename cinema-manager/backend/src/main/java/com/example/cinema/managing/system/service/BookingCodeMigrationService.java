@@ -0,0 +1,85 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Booking;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the unique booking code index, which startup index creation cannot: codes issued before
+ * {@link BookingCodeGenerator} were random 8-character prefixes and may collide. Every booking but
+ * the oldest of a duplicated code gets a fresh code, each one logged so customers can be told, and
+ * the index is created afterwards. Until it exists lookups by code still work, just unindexed.
+ */
+@Service
+public class BookingCodeMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingCodeMigrationService.class);
+
+    // Same name the field annotation used to create, so existing deployments keep their index
+    private static final String INDEX_NAME = "bookingCode";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookingCodeGenerator bookingCodeGenerator;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUniqueIndex() {
+        boolean exists = mongoTemplate.indexOps(Booking.class).getIndexInfo().stream()
+                .anyMatch(index -> INDEX_NAME.equals(index.getName()) && index.isUnique());
+        if (exists) {
+            return;
+        }
+
+        int reissued = reissueDuplicates();
+        try {
+            mongoTemplate.indexOps(Booking.class).createIndex(new Index().on("bookingCode", Sort.Direction.ASC)
+                    .named(INDEX_NAME).unique().sparse());
+            logger.info("Created unique booking code index after reissuing {} duplicate code(s)", reissued);
+        } catch (RuntimeException e) {
+            // Codes duplicated while this ran; the next start picks them up
+            logger.error("Could not create the unique booking code index, will retry on next start: {}", e.getMessage());
+        }
+    }
+
+    private int reissueDuplicates() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("bookingCode").ne(null)),
+                        Aggregation.group("bookingCode").count().as("count").push("_id").as("ids"),
+                        Aggregation.match(Criteria.where("count").gt(1)))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        int reissued = 0;
+        for (Document duplicate : mongoTemplate.aggregate(duplicates, Booking.class, Document.class)) {
+            String code = duplicate.getString("_id");
+            List<Object> ids = new ArrayList<>(duplicate.getList("ids", Object.class));
+            // ObjectIds sort by creation, so the first booking to get the code keeps it
+            ids.sort((a, b) -> a.toString().compareTo(b.toString()));
+            for (Object id : ids.subList(1, ids.size())) {
+                String newCode = bookingCodeGenerator.nextCode();
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id).and("bookingCode").is(code)),
+                        new Update().set("bookingCode", newCode), Booking.class);
+                logger.warn("Booking {} shared code {} with booking {}; reissued as {}", id, code, ids.get(0), newCode);
+                reissued++;
+            }
+        }
+        return reissued;
+    }
+}
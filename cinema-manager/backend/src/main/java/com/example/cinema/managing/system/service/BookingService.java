@@ -1,31 +1,52 @@
 package com.example.cinema.managing.system.service;
 
 import com.example.cinema.managing.system.dto.BookingResponse;
+import com.example.cinema.managing.system.dto.PriceQuote;
+import com.example.cinema.managing.system.event.BookingStatusChangedEvent;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
 import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.BookingFoodItem;
+import com.example.cinema.managing.system.model.BookingMerchandiseItem;
 import com.example.cinema.managing.system.model.Movie;
 import com.example.cinema.managing.system.model.Seat;
 import com.example.cinema.managing.system.model.Showtime;
 import com.example.cinema.managing.system.repository.BookingRepository;
 import com.example.cinema.managing.system.repository.MovieRepository;
-import com.example.cinema.managing.system.repository.SeatRepository;
 import com.example.cinema.managing.system.repository.ShowtimeRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class BookingService {
 
+    private static final int ARCHIVED_BOOKINGS_PAGE = 20;
+
     @Autowired
     private BookingRepository bookingRepository;
 
     @Autowired
-    private SeatRepository seatRepository;
+    private SeatService seatService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     @Autowired
     private ShowtimeRepository showtimeRepository;
@@ -33,12 +54,70 @@ public class BookingService {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private TicketImageService ticketImageService;
+
+    @Autowired
+    private BookingCodeGenerator bookingCodeGenerator;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private CatalogPriceSnapshot catalogPriceSnapshot;
+
+    @Autowired
+    private LoyaltyService loyaltyService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ArchivalService archivalService;
+
+    @Value("${app.lifecycle.sales-close-minutes:15}")
+    private long salesCloseMinutes;
+
     public List<Booking> getAllBookings() {
         return bookingRepository.findAll();
     }
 
+    /**
+     * All of the user's current bookings and only the newest page of archived ones; older history
+     * is reached through the paged variant, so a profile load never reads the whole archive.
+     */
     public List<BookingResponse> getBookingsByUserId(String userId) {
-        List<Booking> bookings = bookingRepository.findByUserIdOrderByBookingDateDesc(userId);
+        List<Booking> bookings = new ArrayList<>(bookingRepository.findByUserIdOrderByBookingDateDesc(userId));
+        bookings.addAll(archivalService.findArchivedBookingsByUserId(userId, 0, ARCHIVED_BOOKINGS_PAGE));
+        return bookings.stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Newest first. Pages are served from the bookings collection until it runs out for the user,
+     * then continue into the archive, which only holds bookings older than the retention window.
+     */
+    public List<BookingResponse> getBookingsByUserId(String userId, int page, int size) {
+        Query recentQuery = new Query(Criteria.where("userId").is(userId));
+        long recent = mongoTemplate.count(recentQuery, Booking.class);
+        long offset = (long) page * size;
+
+        List<Booking> bookings = new ArrayList<>(size);
+        if (offset < recent) {
+            recentQuery.with(Sort.by(Sort.Direction.DESC, "bookingDate")).skip(offset).limit(size);
+            bookings.addAll(mongoTemplate.find(recentQuery, Booking.class));
+        }
+        if (bookings.size() < size) {
+            bookings.addAll(archivalService.findArchivedBookingsByUserId(userId,
+                    Math.max(0, offset - recent), size - bookings.size()));
+        }
         return bookings.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
@@ -53,11 +132,18 @@ public class BookingService {
 
     public Booking getBookingById(String id) {
         return bookingRepository.findById(id)
+                .or(() -> Optional.ofNullable(archivalService.findArchivedBooking(id)))
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
 
     public Booking getBookingByCode(String bookingCode) {
-        return bookingRepository.findByBookingCode(bookingCode)
+        // Malformed or mistyped codes fail the check symbol and never reach the database
+        String code = BookingCodeGenerator.normalize(bookingCode);
+        if (code == null) {
+            throw new RuntimeException("Booking not found");
+        }
+        return bookingRepository.findByBookingCode(code)
+                .or(() -> Optional.ofNullable(archivalService.findArchivedBookingByCode(code)))
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
 
@@ -66,109 +152,198 @@ public class BookingService {
         // Validate showtime exists
         Showtime showtime = showtimeRepository.findById(booking.getShowtimeId())
                 .orElseThrow(() -> new RuntimeException("Showtime not found with ID: " + booking.getShowtimeId()));
-
-        // Validate seats exist for this showtime
-        List<Seat> allShowtimeSeats = seatRepository.findByShowtimeId(booking.getShowtimeId());
-        if (allShowtimeSeats.isEmpty()) {
-            throw new RuntimeException("No seats found for this showtime. Please contact admin to regenerate seats.");
+        // The clock decides; salesClosedAt only lags it by the lifecycle job's interval
+        if (showtime.getSalesClosedAt() != null
+                || !showtime.getShowDateTime().isAfter(LocalDateTime.now().plusMinutes(salesCloseMinutes))) {
+            throw new RuntimeException("Booking for this showtime has closed");
         }
-
-        // Validate requested seats exist
-        List<Seat> seats = seatRepository.findAllById(booking.getSeatIds());
-        if (seats.size() != booking.getSeatIds().size()) {
-            throw new RuntimeException("One or more selected seats do not exist. Please refresh and try again.");
+        if (!showtime.isActive()) {
+            throw new RuntimeException("This showtime has been cancelled");
         }
 
-        // Validate all seats belong to this showtime
-        for (Seat seat : seats) {
-            if (!seat.getShowtimeId().equals(booking.getShowtimeId())) {
-                throw new RuntimeException("Seat " + seat.getRow() + seat.getSeatNumber() + " does not belong to this showtime");
-            }
+        List<String> seatIds = booking.getSeatIds() == null ? List.of() : booking.getSeatIds().stream().distinct().toList();
+        if (seatIds.isEmpty()) {
+            throw new RuntimeException("Please select at least one seat");
         }
 
-        // Check seat availability
-        for (Seat seat : seats) {
-            if (!"AVAILABLE".equals(seat.getStatus())) {
-                throw new RuntimeException("Seat " + seat.getRow() + seat.getSeatNumber() + " is not available. It may have been booked by another user.");
+        // Seat ids encode their showtime and position, so no lookup is needed to validate or label them
+        for (String seatId : seatIds) {
+            if (!SeatIds.isDeterministic(seatId) || !SeatIds.showtimeId(seatId).equals(booking.getShowtimeId())) {
+                throw new RuntimeException("Seat " + seatId + " does not belong to this showtime");
             }
         }
+        booking.setSeatIds(seatIds);
+        booking.setSeatNumbers(seatIds.stream().map(SeatIds::label).toList());
+        booking.setNumberOfSeats(seatIds.size());
+        // Completion, archiving and ticket expiry all key on this, so it comes from the showtime, never the client
+        booking.setShowDate(showtime.getShowDateTime());
 
-        // Calculate food total
-        Double foodTotal = 0.0;
-        if (booking.getFoodItems() != null && !booking.getFoodItems().isEmpty()) {
-            foodTotal = booking.getFoodItems().stream()
-                    .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                    .sum();
+        int pointsToRedeem = booking.getLoyaltyPointsRedeemed() == null ? 0 : booking.getLoyaltyPointsRedeemed();
+        if (pointsToRedeem < 0) {
+            throw new RuntimeException("Loyalty points to redeem cannot be negative");
         }
-        booking.setFoodTotal(foodTotal);
+        // Loyalty outcome is decided by the ledger, never by the client
+        booking.setLoyaltyPointsEarned(null);
+        booking.setLoyaltyPostedAt(null);
+        booking.setLoyaltyDiscount(0.0);
+
+        // Price food and merchandise from the catalogue snapshot; client-sent prices are ignored
+        booking.setFoodTotal(priceFoodItems(booking.getFoodItems()));
+        booking.setMerchandiseTotal(priceMerchandiseItems(booking.getMerchandiseItems()));
+
+        // Claim the seats under the booking's id first; the claim is atomic, so two checkouts can't share a seat
+        booking.setId(new ObjectId().toHexString());
+        List<Seat> seats = seatService.bookSeats(seatIds, booking.getUserId(), booking.getId());
 
-        // Calculate merchandise total
-        Double merchandiseTotal = 0.0;
-        if (booking.getMerchandiseItems() != null && !booking.getMerchandiseItems().isEmpty()) {
-            merchandiseTotal = booking.getMerchandiseItems().stream()
-                    .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                    .sum();
+        // Merchandise comes out of the same stock carts sell from; released below wherever the seats are
+        Map<String, Integer> merchandise = merchandiseQuantities(booking.getMerchandiseItems());
+        try {
+            inventoryService.sell(merchandise);
+        } catch (RuntimeException e) {
+            seatService.releaseSeats(seatIds, booking.getId());
+            throw e;
         }
-        booking.setMerchandiseTotal(merchandiseTotal);
 
-        // Calculate final total amount (seats + food + merchandise)
-        Double seatsTotal = seats.stream().mapToDouble(Seat::getPrice).sum();
-        Double finalTotal = seatsTotal + foodTotal + merchandiseTotal;
+        // Calculate final total amount (seats at the current dynamic price + food + merchandise)
+        PriceQuote quote = pricingEngine.quote(showtime);
+        Double seatsTotal = seats.stream().mapToDouble(seat -> quote.apply(seat.getPrice())).sum();
+        booking.setPriceVersion(quote.getVersion());
+        Double finalTotal = seatsTotal + booking.getFoodTotal() + booking.getMerchandiseTotal();
+
+        // Redemption is the only balance change on the checkout path: one conditional $inc
+        if (pointsToRedeem > 0) {
+            double discount = loyaltyService.discountFor(pointsToRedeem);
+            if (discount > finalTotal) {
+                seatService.releaseSeats(seatIds, booking.getId());
+                inventoryService.unsell(merchandise);
+                throw new RuntimeException("Cannot redeem more points than the booking is worth");
+            }
+            if (!loyaltyService.redeem(booking.getUserId(), pointsToRedeem)) {
+                seatService.releaseSeats(seatIds, booking.getId());
+                inventoryService.unsell(merchandise);
+                throw new RuntimeException("Not enough loyalty points");
+            }
+            booking.setLoyaltyDiscount(discount);
+            finalTotal -= discount;
+        }
         booking.setTotalAmount(finalTotal);
 
         // Generate unique booking code
-        booking.setBookingCode(UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        booking.setBookingCode(bookingCodeGenerator.nextCode());
         booking.setBookingDate(LocalDateTime.now());
         booking.setStatus("CONFIRMED");
 
-        // Update seats status to BOOKED
-        for (Seat seat : seats) {
-            seat.setStatus("BOOKED");
-            seat.setBookedBy(booking.getUserId());
+        Booking savedBooking;
+        try {
+            try {
+                savedBooking = bookingRepository.save(booking);
+            } catch (DuplicateKeyException e) {
+                // Only possible if two instances briefly shared a code node id; the next code is from a new sequence
+                booking.setBookingCode(bookingCodeGenerator.nextCode());
+                savedBooking = bookingRepository.save(booking);
+            }
+        } catch (RuntimeException e) {
+            seatService.releaseSeats(seatIds, booking.getId());
+            inventoryService.unsell(merchandise);
+            if (pointsToRedeem > 0) {
+                loyaltyService.restore(booking.getUserId(), pointsToRedeem);
+            }
+            throw e;
         }
 
-        // Save booking first to get the ID
-        Booking savedBooking = bookingRepository.save(booking);
+        // Update showtime available seats; the returned counters move the show's price tier
+        pricingEngine.onOccupancyChanged(mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(showtime.getId())),
+                new Update().inc("availableSeats", -seats.size()),
+                FindAndModifyOptions.options().returnNew(true), Showtime.class));
+        eventPublisher.publishEvent(new ShowtimeChangedEvent(showtime.getId(), "SEATS"));
+
+        // Confirmation email goes out from the outbox, not on the checkout path
+        emailOutboxService.enqueueBookingConfirmation(savedBooking.getId());
+        ticketImageService.renderAsync(savedBooking);
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(savedBooking.getId(), savedBooking.getStatus()));
+
+        return savedBooking;
+    }
+
+    private double priceFoodItems(List<BookingFoodItem> items) {
+        double total = 0.0;
+        if (items == null) {
+            return total;
+        }
+        for (BookingFoodItem item : items) {
+            CatalogPriceSnapshot.Item food = catalogPriceSnapshot.food(item.getFoodItemId());
+            if (food == null) {
+                throw new RuntimeException("Food item is not available: " + item.getFoodItemId());
+            }
+            int quantity = requirePositive(item.getQuantity());
+            item.setName(food.getName());
+            item.setPrice(food.getPrice());
+            item.setSubtotal(food.getPrice() * quantity);
+            total += item.getSubtotal();
+        }
+        return total;
+    }
 
-        // Update seats with booking ID
-        for (Seat seat : seats) {
-            seat.setBookingId(savedBooking.getId());
+    private double priceMerchandiseItems(List<BookingMerchandiseItem> items) {
+        double total = 0.0;
+        if (items == null) {
+            return total;
+        }
+        for (BookingMerchandiseItem item : items) {
+            CatalogPriceSnapshot.Item merchandise = catalogPriceSnapshot.merchandise(item.getMerchandiseId());
+            if (merchandise == null) {
+                throw new RuntimeException("Merchandise is not available: " + item.getMerchandiseId());
+            }
+            int quantity = requirePositive(item.getQuantity());
+            item.setName(merchandise.getName());
+            item.setPrice(merchandise.getPrice());
+            item.setSubtotal(merchandise.getPrice() * quantity);
+            total += item.getSubtotal();
         }
-        seatRepository.saveAll(seats);
+        return total;
+    }
 
-        // Update showtime available seats
-        showtime.setAvailableSeats(showtime.getAvailableSeats() - booking.getNumberOfSeats());
-        showtimeRepository.save(showtime);
+    private static Map<String, Integer> merchandiseQuantities(List<BookingMerchandiseItem> items) {
+        if (items == null) {
+            return Map.of();
+        }
+        return items.stream().collect(Collectors.toMap(
+                BookingMerchandiseItem::getMerchandiseId, BookingMerchandiseItem::getQuantity, Integer::sum));
+    }
 
-        return savedBooking;
+    private static int requirePositive(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be at least 1");
+        }
+        return quantity;
     }
 
     @Transactional
     public void cancelBooking(String bookingId) {
-        Booking booking = getBookingById(bookingId);
+        // Archived bookings are finished with and cannot be cancelled
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
         
         if ("CANCELLED".equals(booking.getStatus())) {
             throw new RuntimeException("Booking is already cancelled");
         }
         
-        // Release seats
-        List<Seat> seats = seatRepository.findByBookingId(bookingId);
-        for (Seat seat : seats) {
-            seat.setStatus("AVAILABLE");
-            seat.setBookedBy(null);
-            seat.setBookingId(null);
-        }
-        seatRepository.saveAll(seats);
-        
-        // Update showtime available seats
-        Showtime showtime = showtimeRepository.findById(booking.getShowtimeId())
-                .orElseThrow(() -> new RuntimeException("Showtime not found"));
-        showtime.setAvailableSeats(showtime.getAvailableSeats() + booking.getNumberOfSeats());
-        showtimeRepository.save(showtime);
-        
+        // Release seats still held by this booking and give them back to the showtime
+        long released = booking.getSeatIds() == null ? 0 : seatService.releaseSeats(booking.getSeatIds(), bookingId);
+        if (released > 0) {
+            pricingEngine.onOccupancyChanged(mongoTemplate.findAndModify(
+                    new Query(Criteria.where("id").is(booking.getShowtimeId())),
+                    new Update().inc("availableSeats", (int) released),
+                    FindAndModifyOptions.options().returnNew(true), Showtime.class));
+            eventPublisher.publishEvent(new ShowtimeChangedEvent(booking.getShowtimeId(), "SEATS"));
+        }
+
         // Update booking status
         booking.setStatus("CANCELLED");
+        booking.setLoyaltyPostedAt(null); // posted again: earned points reversed, redeemed points returned
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(bookingId, "CANCELLED"));
     }
 
     public List<Booking> getBookingsByStatus(String status) {
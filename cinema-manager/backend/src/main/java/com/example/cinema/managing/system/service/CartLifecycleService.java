@@ -0,0 +1,142 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Cart;
+import com.example.cinema.managing.system.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Moves carts through ACTIVE -> ABANDONED and makes sure closed carts leave the collection.
+ * Closed carts get an {@code expireAt} date and are removed by the TTL index on {@link Cart},
+ * so the collection only grows with the number of shoppers, not with their history.
+ */
+@Service
+public class CartLifecycleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartLifecycleService.class);
+
+    private static final List<String> CLOSED_STATUSES = List.of("CHECKED_OUT", "ABANDONED");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Value("${app.carts.idle-hours:24}")
+    private long idleHours;
+
+    @Value("${app.carts.closed-retention-days:30}")
+    private long closedRetentionDays;
+
+    @Value("${app.carts.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicLong abandonedTotal = new AtomicLong();
+    private final AtomicLong purgedTotal = new AtomicLong();
+    private volatile long abandonedLastRun;
+    private volatile LocalDateTime lastRunAt;
+
+    @Scheduled(fixedDelayString = "${app.carts.sweep-interval-ms:600000}")
+    public void runLifecycle() {
+        abandonedLastRun = abandonIdleCarts();
+        purgedTotal.addAndGet(expireClosedCarts());
+        lastRunAt = LocalDateTime.now();
+    }
+
+    /**
+     * Marks carts untouched for longer than the idle threshold as ABANDONED, batch by batch,
+     * releasing whatever stock they were still holding.
+     */
+    public long abandonIdleCarts() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(idleHours);
+        long abandoned = 0;
+        List<String> ids;
+        do {
+            Query query = new Query(Criteria.where("status").is("ACTIVE").and("updatedAt").lt(cutoff))
+                    .with(Sort.by("updatedAt"))
+                    .limit(batchSize);
+            query.fields().include("id");
+            ids = mongoTemplate.find(query, Cart.class).stream()
+                    .map(Cart::getId)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Update update = new Update()
+                    .set("status", "ABANDONED")
+                    .set("expireAt", LocalDateTime.now().plusDays(closedRetentionDays));
+            for (String id : ids) {
+                // Claim first, guarded on status/updatedAt again: a shopper may have come back mid-batch.
+                // Only a cart this sweep actually closed gives its stock back.
+                Query claim = new Query(Criteria.where("id").is(id)
+                        .and("status").is("ACTIVE")
+                        .and("updatedAt").lt(cutoff));
+                if (mongoTemplate.updateFirst(claim, update, Cart.class).getModifiedCount() == 1) {
+                    inventoryService.releaseCart(id);
+                    abandoned++;
+                }
+            }
+        } while (ids.size() == batchSize);
+
+        if (abandoned > 0) {
+            abandonedTotal.addAndGet(abandoned);
+            logger.info("Marked {} idle cart(s) as ABANDONED", abandoned);
+        }
+        return abandoned;
+    }
+
+    /**
+     * Deletes closed carts past retention that predate the TTL index and stamps an expiry on
+     * the rest, so every closed cart is eventually collected by MongoDB.
+     */
+    public long expireClosedCarts() {
+        LocalDateTime retentionCutoff = LocalDateTime.now().minusDays(closedRetentionDays);
+        long purged = mongoTemplate.remove(new Query(Criteria.where("status").in(CLOSED_STATUSES)
+                        .and("expireAt").exists(false)
+                        .and("updatedAt").lt(retentionCutoff)), Cart.class)
+                .getDeletedCount();
+
+        mongoTemplate.updateMulti(new Query(Criteria.where("status").in(CLOSED_STATUSES)
+                        .and("expireAt").exists(false)),
+                new Update().set("expireAt", LocalDateTime.now().plusDays(closedRetentionDays)),
+                Cart.class);
+
+        if (purged > 0) {
+            logger.info("Purged {} closed cart(s) past retention", purged);
+        }
+        return purged;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", cartRepository.countByStatus("ACTIVE"));
+        stats.put("abandoned", cartRepository.countByStatus("ABANDONED"));
+        stats.put("checkedOut", cartRepository.countByStatus("CHECKED_OUT"));
+        stats.put("abandonedLastRun", abandonedLastRun);
+        stats.put("abandonedSinceStartup", abandonedTotal.get());
+        stats.put("purgedSinceStartup", purgedTotal.get());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+}
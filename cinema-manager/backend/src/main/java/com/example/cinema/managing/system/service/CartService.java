@@ -6,7 +6,13 @@ import com.example.cinema.managing.system.model.Merchandise;
 import com.example.cinema.managing.system.repository.CartRepository;
 import com.example.cinema.managing.system.repository.MerchandiseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -18,6 +24,15 @@ public class CartService {
     @Autowired
     private MerchandiseRepository merchandiseRepository;
     
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Value("${app.carts.closed-retention-days:30}")
+    private long closedRetentionDays;
+    
     public Cart getOrCreateCart(String userId) {
         Optional<Cart> existingCart = cartRepository.findByUserIdAndStatus(userId, "ACTIVE");
         if (existingCart.isPresent()) {
@@ -33,13 +48,11 @@ public class CartService {
     public Cart addToCart(String userId, String merchandiseId, Integer quantity) {
         Cart cart = getOrCreateCart(userId);
         
-        // Verify merchandise exists and has stock
         Merchandise merchandise = merchandiseRepository.findById(merchandiseId)
             .orElseThrow(() -> new RuntimeException("Merchandise not found"));
         
-        if (merchandise.getStock() < quantity) {
-            throw new RuntimeException("Insufficient stock available");
-        }
+        // Take the units out of stock now so concurrent buyers cannot oversell
+        inventoryService.reserve(cart.getId(), userId, merchandiseId, quantity);
         
         // Check if item already exists in cart
         Optional<CartItem> existingItem = cart.getItems().stream()
@@ -48,13 +61,7 @@ public class CartService {
         
         if (existingItem.isPresent()) {
             CartItem item = existingItem.get();
-            int newQuantity = item.getQuantity() + quantity;
-            
-            if (merchandise.getStock() < newQuantity) {
-                throw new RuntimeException("Cannot add more items than available in stock");
-            }
-            
-            item.setQuantity(newQuantity);
+            item.setQuantity(item.getQuantity() + quantity);
         } else {
             CartItem newItem = new CartItem();
             newItem.setMerchandiseId(merchandiseId);
@@ -69,7 +76,7 @@ public class CartService {
         }
         
         cart.calculateTotal();
-        return cartRepository.save(cart);
+        return saveActive(cart);
     }
     
     public Cart updateCartItemQuantity(String userId, String merchandiseId, Integer quantity) {
@@ -79,36 +86,37 @@ public class CartService {
             return removeFromCart(userId, merchandiseId);
         }
         
-        // Verify merchandise stock
-        Merchandise merchandise = merchandiseRepository.findById(merchandiseId)
-            .orElseThrow(() -> new RuntimeException("Merchandise not found"));
-        
-        if (merchandise.getStock() < quantity) {
-            throw new RuntimeException("Insufficient stock available");
-        }
-        
         CartItem item = cart.getItems().stream()
             .filter(i -> i.getMerchandiseId().equals(merchandiseId))
             .findFirst()
             .orElseThrow(() -> new RuntimeException("Item not found in cart"));
         
+        int difference = quantity - item.getQuantity();
+        if (difference > 0) {
+            inventoryService.reserve(cart.getId(), userId, merchandiseId, difference);
+        } else {
+            inventoryService.release(cart.getId(), merchandiseId, -difference);
+        }
+        
         item.setQuantity(quantity);
         cart.calculateTotal();
-        return cartRepository.save(cart);
+        return saveActive(cart);
     }
     
     public Cart removeFromCart(String userId, String merchandiseId) {
         Cart cart = getOrCreateCart(userId);
+        inventoryService.releaseAll(cart.getId(), merchandiseId);
         cart.getItems().removeIf(item -> item.getMerchandiseId().equals(merchandiseId));
         cart.calculateTotal();
-        return cartRepository.save(cart);
+        return saveActive(cart);
     }
     
     public Cart clearCart(String userId) {
         Cart cart = getOrCreateCart(userId);
+        inventoryService.releaseCart(cart.getId());
         cart.getItems().clear();
         cart.calculateTotal();
-        return cartRepository.save(cart);
+        return saveActive(cart);
     }
     
     public Cart getCart(String userId) {
@@ -117,7 +125,45 @@ public class CartService {
     
     public void checkoutCart(String userId) {
         Cart cart = getOrCreateCart(userId);
-        cart.setStatus("CHECKED_OUT");
-        cartRepository.save(cart);
+        // Close the cart first, so the idle sweep cannot abandon it while its stock is being sold
+        LocalDateTime now = LocalDateTime.now();
+        boolean closed = mongoTemplate.updateFirst(activeCart(cart.getId()),
+                new Update().set("status", "CHECKED_OUT")
+                        .set("updatedAt", now)
+                        .set("expireAt", now.plusDays(closedRetentionDays)),
+                Cart.class).getModifiedCount() == 1;
+        if (!closed) {
+            throw new RuntimeException("Your cart has expired, please add the items again");
+        }
+        try {
+            inventoryService.commitCart(cart);
+        } catch (RuntimeException e) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(cart.getId()).and("status").is("CHECKED_OUT")),
+                    new Update().set("status", "ACTIVE").set("updatedAt", LocalDateTime.now()).unset("expireAt"),
+                    Cart.class);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes the cart's lines only while it is still ACTIVE. The idle sweep may have abandoned it
+     * (and returned its stock) since it was read; then whatever this request reserved is given back
+     * and the request fails instead of reviving the cart.
+     */
+    private Cart saveActive(Cart cart) {
+        boolean saved = mongoTemplate.updateFirst(activeCart(cart.getId()),
+                new Update().set("items", cart.getItems())
+                        .set("total", cart.getTotal())
+                        .set("updatedAt", cart.getUpdatedAt()),
+                Cart.class).getMatchedCount() == 1;
+        if (!saved) {
+            inventoryService.releaseCart(cart.getId());
+            throw new RuntimeException("Your cart has expired, please add the items again");
+        }
+        return cart;
+    }
+    
+    private static Query activeCart(String cartId) {
+        return new Query(Criteria.where("id").is(cartId).and("status").is("ACTIVE"));
     }
 }
@@ -0,0 +1,309 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ImportReport;
+import com.example.cinema.managing.system.event.CatalogChangedEvent;
+import com.example.cinema.managing.system.event.MovieChangedEvent;
+import com.example.cinema.managing.system.model.Food;
+import com.example.cinema.managing.system.model.Merchandise;
+import com.example.cinema.managing.system.model.Movie;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * NDJSON import and export of the movie, food and merchandise catalogues, for chain-wide syncs.
+ * Items are matched on natural keys rather than ids, so a file exported from one site can be
+ * imported into another: movies by title, food by name and size, merchandise by name.
+ * Lines are read one at a time and upserted in unordered bulk batches; each written batch
+ * publishes a single change event, so caches are invalidated once per batch rather than per item.
+ * Counters (views, bookings, sales), merchandise stock and embedded showtimes belong to the
+ * running system and are only set when an item is created. An existing item only has the fields
+ * present in its line overwritten; the others keep their values (defaults apply on creation).
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+    public boolean supports(String catalog) {
+        for (Catalog value : Catalog.values()) {
+            if (value.name.equalsIgnoreCase(catalog)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ImportReport importCatalog(String catalog, InputStream input, boolean dryRun) throws IOException {
+        Catalog target = Catalog.of(catalog);
+        ImportReport report = new ImportReport();
+        report.setDryRun(dryRun);
+        Set<String> seenKeys = new HashSet<>();
+        List<Row> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                report.setRows(report.getRows() + 1);
+                try {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> fields = objectMapper.readValue(line, Map.class);
+                    Object item = objectMapper.convertValue(fields, target.type);
+                    validate(target, item);
+                    if (!seenKeys.add(target.key(item))) {
+                        throw new RuntimeException("Duplicate of an earlier line: " + target.key(item));
+                    }
+                    batch.add(new Row(item, fields.keySet()));
+                } catch (JacksonException e) {
+                    report.addError(lineNumber, "Invalid JSON: " + e.getOriginalMessage(), maxErrors);
+                } catch (RuntimeException e) {
+                    report.addError(lineNumber, e.getMessage(), maxErrors);
+                }
+                if (batch.size() >= batchSize) {
+                    flush(target, batch, dryRun, report);
+                }
+            }
+        }
+        flush(target, batch, dryRun, report);
+
+        logger.info("{} {} catalogue: {} row(s), {} imported ({} updated), {} failed",
+                dryRun ? "Validated" : "Imported", target.name, report.getRows(), report.getImported(),
+                report.getUpdated(), report.getFailed());
+        return report;
+    }
+
+    /**
+     * Writes the catalogue as NDJSON straight from a database cursor.
+     */
+    public void exportCatalog(String catalog, OutputStream output) throws IOException {
+        Catalog target = Catalog.of(catalog);
+        Query query = new Query();
+        if (target == Catalog.MOVIES) {
+            query.fields().exclude("showtimes");
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try (Stream<?> items = mongoTemplate.stream(query, target.type)) {
+            Iterator<?> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                writer.write(objectMapper.writeValueAsString(iterator.next()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void flush(Catalog target, List<Row> batch, boolean dryRun, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object> items = batch.stream().map(row -> row.item).toList();
+        if (dryRun) {
+            report.setImported(report.getImported() + batch.size());
+            report.setUpdated(report.getUpdated() + countExisting(target, items));
+            batch.clear();
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, target.type);
+        for (Row row : batch) {
+            operations.upsert(new Query(target.keyCriteria(row.item)), upsertFor(target, row, now));
+        }
+        BulkWriteResult result = operations.execute();
+        report.setImported(report.getImported() + batch.size());
+        report.setUpdated(report.getUpdated() + batch.size() - result.getUpserts().size());
+
+        if (target == Catalog.MOVIES) {
+            List<String> titles = items.stream().map(target::key).toList();
+            Query query = new Query(Criteria.where("title").in(titles));
+            query.fields().include("id");
+            List<String> movieIds = mongoTemplate.find(query, Movie.class).stream().map(Movie::getId).toList();
+            eventPublisher.publishEvent(new MovieChangedEvent(movieIds));
+        } else {
+            eventPublisher.publishEvent(new CatalogChangedEvent(target == Catalog.FOOD ? "FOOD" : "MERCHANDISE"));
+        }
+        batch.clear();
+    }
+
+    private Update upsertFor(Catalog target, Row row, LocalDateTime now) {
+        Object item = row.item;
+        // Mapped exactly as the repositories would store it; null fields are left out
+        Document document = new Document();
+        mongoTemplate.getConverter().write(item, document);
+        document.remove("_id");
+        document.remove("_class");
+
+        Update update = new Update();
+        switch (target) {
+            case MOVIES -> {
+                update.setOnInsert("viewCount", 0).setOnInsert("bookingCount", 0)
+                        .setOnInsert("showtimes", List.of()).setOnInsert("createdAt", now);
+                document.put("updatedAt", now);
+                document.keySet().removeAll(List.of("viewCount", "bookingCount", "showtimes", "createdAt"));
+            }
+            case FOOD -> {
+                update.setOnInsert("salesCount", 0).setOnInsert("createdAt", now);
+                document.keySet().removeAll(List.of("salesCount", "createdAt"));
+            }
+            case MERCHANDISE -> {
+                // Later stock changes go through InventoryService so cart reservations stay balanced
+                Integer stock = ((Merchandise) item).getStock();
+                update.setOnInsert("salesCount", 0).setOnInsert("createdAt", now)
+                        .setOnInsert("stock", stock != null ? stock : 0);
+                document.keySet().removeAll(List.of("salesCount", "createdAt", "stock"));
+            }
+        }
+        // Primitives (active, featured, combo...) are never null, so a field missing from the line
+        // would otherwise overwrite a live value with its default
+        document.forEach((field, value) -> {
+            if (row.fields.contains(field) || "updatedAt".equals(field)) {
+                update.set(field, value);
+            } else {
+                update.setOnInsert(field, value);
+            }
+        });
+        return update;
+    }
+
+    private long countExisting(Catalog target, List<Object> batch) {
+        Criteria[] keys = batch.stream().map(target::keyCriteria).toArray(Criteria[]::new);
+        return mongoTemplate.count(new Query(new Criteria().orOperator(keys)), target.type);
+    }
+
+    private static void validate(Catalog target, Object item) {
+        switch (target) {
+            case MOVIES -> {
+                Movie movie = (Movie) item;
+                requireText(movie.getTitle(), "title");
+                if (movie.getDuration() != null && movie.getDuration() <= 0) {
+                    throw new RuntimeException("duration must be positive");
+                }
+            }
+            case FOOD -> {
+                Food food = (Food) item;
+                requireText(food.getName(), "name");
+                requirePositive(food.getPrice());
+            }
+            case MERCHANDISE -> {
+                Merchandise merchandise = (Merchandise) item;
+                requireText(merchandise.getName(), "name");
+                requirePositive(merchandise.getPrice());
+                if (merchandise.getStock() != null && merchandise.getStock() < 0) {
+                    throw new RuntimeException("stock cannot be negative");
+                }
+            }
+        }
+    }
+
+    private static void requireText(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new RuntimeException("Missing " + field);
+        }
+    }
+
+    private static void requirePositive(Double price) {
+        if (price == null || price <= 0) {
+            throw new RuntimeException("price must be positive");
+        }
+    }
+
+    private static class Row {
+        private final Object item;
+        private final Set<String> fields; // keys present in the line
+
+        private Row(Object item, Set<String> fields) {
+            this.item = item;
+            this.fields = fields;
+        }
+    }
+
+    private enum Catalog {
+        MOVIES("movies", Movie.class),
+        FOOD("food", Food.class),
+        MERCHANDISE("merchandise", Merchandise.class);
+
+        private final String name;
+        private final Class<?> type;
+
+        Catalog(String name, Class<?> type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        private static Catalog of(String name) {
+            for (Catalog catalog : values()) {
+                if (catalog.name.equals(name.toLowerCase(Locale.ROOT))) {
+                    return catalog;
+                }
+            }
+            throw new RuntimeException("Unknown catalogue: " + name);
+        }
+
+        private String key(Object item) {
+            return switch (this) {
+                case MOVIES -> ((Movie) item).getTitle();
+                case FOOD -> ((Food) item).getName() + " / " + ((Food) item).getSize();
+                case MERCHANDISE -> ((Merchandise) item).getName();
+            };
+        }
+
+        private Criteria keyCriteria(Object item) {
+            return switch (this) {
+                case MOVIES -> Criteria.where("title").is(((Movie) item).getTitle());
+                case FOOD -> Criteria.where("name").is(((Food) item).getName()).and("size").is(((Food) item).getSize());
+                case MERCHANDISE -> Criteria.where("name").is(((Merchandise) item).getName());
+            };
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.CatalogChangedEvent;
+import com.example.cinema.managing.system.model.Food;
+import com.example.cinema.managing.system.model.Merchandise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only copy of the active food menu and merchandise catalogue, used to price booking lines
+ * on the server. Each catalogue is an immutable map swapped in whole, so lookups are a plain
+ * hash read with no locking and no query. It is rebuilt when an item changes through the admin
+ * services and on a schedule, which picks up edits made by other instances.
+ */
+@Service
+public class CatalogPriceSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogPriceSnapshot.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile Map<String, Item> foods = Map.of();
+    private volatile Map<String, Item> merchandise = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.catalog.snapshot-refresh-ms:300000}", initialDelayString = "${app.catalog.snapshot-refresh-ms:300000}")
+    public void refresh() {
+        refreshFoods();
+        refreshMerchandise();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if ("FOOD".equals(event.getCatalog())) {
+            refreshFoods();
+        } else {
+            refreshMerchandise();
+        }
+    }
+
+    /**
+     * The active food item with this id, or null when it does not exist or is not on sale.
+     */
+    public Item food(String id) {
+        return id == null ? null : foods.get(id);
+    }
+
+    public Item merchandise(String id) {
+        return id == null ? null : merchandise.get(id);
+    }
+
+    private void refreshFoods() {
+        Map<String, Item> snapshot = new HashMap<>();
+        for (Food food : mongoTemplate.find(activeItems(), Food.class)) {
+            if (food.getPrice() != null) {
+                snapshot.put(food.getId(), new Item(food.getId(), food.getName(), food.getPrice()));
+            }
+        }
+        foods = Map.copyOf(snapshot);
+        logger.debug("Food price snapshot holds {} item(s)", snapshot.size());
+    }
+
+    private void refreshMerchandise() {
+        Map<String, Item> snapshot = new HashMap<>();
+        for (Merchandise item : mongoTemplate.find(activeItems(), Merchandise.class)) {
+            if (item.getPrice() != null) {
+                snapshot.put(item.getId(), new Item(item.getId(), item.getName(), item.getPrice()));
+            }
+        }
+        merchandise = Map.copyOf(snapshot);
+        logger.debug("Merchandise price snapshot holds {} item(s)", snapshot.size());
+    }
+
+    private static Query activeItems() {
+        Query query = new Query(Criteria.where("active").is(true));
+        query.fields().include("id").include("name").include("price");
+        return query;
+    }
+
+    public static final class Item {
+        private final String id;
+        private final String name;
+        private final double price;
+
+        private Item(String id, String name, double price) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.TicketClaims;
+import com.example.cinema.managing.system.model.Booking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admits ticket holders at the door.
+ * The QR token is verified in memory. Each showtime has an in-memory set of admitted bookings,
+ * so a repeat scan is rejected without touching the database. The first scan wins through one
+ * conditional update on the booking, which also holds across several gate servers. The set is
+ * seeded from the database the first time a showtime is scanned, so a restart does not let
+ * tickets in twice.
+ */
+@Service
+public class CheckInService {
+
+    @Autowired
+    private TicketTokenService ticketTokenService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, ShowtimeAdmissions> admissions = new ConcurrentHashMap<>();
+
+    public Map<String, Object> checkIn(String token, String showtimeId, String gate) {
+        TicketClaims claims = ticketTokenService.verify(token);
+        if (showtimeId != null && !showtimeId.equals(claims.getShowtimeId())) {
+            return result("WRONG_SHOWTIME", claims, "Ticket is for a different showtime");
+        }
+
+        ShowtimeAdmissions admitted = admissions.computeIfAbsent(claims.getShowtimeId(),
+                id -> new ShowtimeAdmissions(loadAdmitted(id), claims.getExpiresAt()));
+        if (admitted.bookingIds.contains(claims.getBookingId())) {
+            return result("ALREADY_ADMITTED", claims, "Ticket has already been used");
+        }
+
+        Query firstScan = new Query(Criteria.where("id").is(claims.getBookingId())
+                .and("status").is("CONFIRMED")
+                .and("checkedInAt").is(null));
+        Update admit = new Update().set("checkedInAt", LocalDateTime.now()).set("checkedInGate", gate);
+        if (mongoTemplate.updateFirst(firstScan, admit, Booking.class).getModifiedCount() == 1) {
+            admitted.bookingIds.add(claims.getBookingId());
+            return result("ADMITTED", claims, "Welcome");
+        }
+
+        // Lost the race or not admissible: one read to say why
+        Query lookup = new Query(Criteria.where("id").is(claims.getBookingId()));
+        lookup.fields().include("status").include("checkedInAt");
+        Booking booking = mongoTemplate.findOne(lookup, Booking.class);
+        if (booking == null) {
+            return result("REJECTED", claims, "Booking not found");
+        }
+        if (booking.getCheckedInAt() != null) {
+            admitted.bookingIds.add(claims.getBookingId());
+            return result("ALREADY_ADMITTED", claims, "Ticket has already been used");
+        }
+        return result("REJECTED", claims, "Booking is " + booking.getStatus());
+    }
+
+    /**
+     * Drops admitted-sets of showtimes whose tickets have expired.
+     */
+    @Scheduled(fixedDelayString = "${app.tickets.checkin-cleanup-interval-ms:3600000}")
+    public void evictFinishedShowtimes() {
+        Instant now = Instant.now();
+        admissions.values().removeIf(showtime -> now.isAfter(showtime.expiresAt));
+    }
+
+    private Set<String> loadAdmitted(String showtimeId) {
+        Query query = new Query(Criteria.where("showtimeId").is(showtimeId).and("checkedInAt").ne(null));
+        query.fields().include("id");
+        Set<String> bookingIds = ConcurrentHashMap.newKeySet();
+        mongoTemplate.find(query, Booking.class).forEach(booking -> bookingIds.add(booking.getId()));
+        return bookingIds;
+    }
+
+    private static Map<String, Object> result(String result, TicketClaims claims, String message) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("result", result);
+        response.put("message", message);
+        response.put("bookingId", claims.getBookingId());
+        response.put("showtimeId", claims.getShowtimeId());
+        response.put("seats", claims.getSeats());
+        return response;
+    }
+
+    private static class ShowtimeAdmissions {
+        private final Set<String> bookingIds;
+        private final Instant expiresAt;
+
+        private ShowtimeAdmissions(Set<String> bookingIds, Instant expiresAt) {
+            this.bookingIds = bookingIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
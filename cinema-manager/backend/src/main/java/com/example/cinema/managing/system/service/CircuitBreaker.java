@@ -0,0 +1,62 @@
+package com.example.cinema.managing.system.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal consecutive-failure circuit breaker.
+ * After {@code failureThreshold} failures in a row calls are refused for {@code openMillis};
+ * then a single trial call is let through and its outcome closes or re-opens the circuit.
+ */
+class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile long openedAt = -1;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    boolean tryAcquire() {
+        if (openedAt < 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() - openedAt < openMillis) {
+            return false;
+        }
+        // Half-open: exactly one caller gets to probe the provider
+        return trialInFlight.compareAndSet(false, true);
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        openedAt = -1;
+        trialInFlight.set(false);
+    }
+
+    void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || trialInFlight.get()) {
+            openedAt = System.currentTimeMillis();
+        }
+        trialInFlight.set(false);
+    }
+
+    /**
+     * Releases a half-open trial that ended without telling us anything about provider health.
+     */
+    void onIgnored() {
+        trialInFlight.set(false);
+    }
+
+    String getState() {
+        if (openedAt < 0) {
+            return "CLOSED";
+        }
+        return System.currentTimeMillis() - openedAt < openMillis ? "OPEN" : "HALF_OPEN";
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.MovieChangedEvent;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.DailySchedule;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.Showtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the {@link DailySchedule} read model, so "what's on" for a day is one cached read
+ * instead of a showtime query per movie.
+ * Showtime, seat and movie changes only mark the affected days dirty; dirty days are rebuilt
+ * every few seconds with one showtime query, one movie query and one write each, so a burst of
+ * bookings costs one rebuild per day rather than one per booking.
+ * Only days from yesterday to {@code app.schedule.cache-days} ahead are materialized; the endpoint
+ * is public, so any other date gets an empty schedule that is never stored.
+ */
+@Service
+public class DailyScheduleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyScheduleService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.schedule.cache-days:45}")
+    private long cacheDays;
+
+    private final Map<LocalDate, DailySchedule> cache = new ConcurrentHashMap<>();
+    private final Map<String, LocalDate> dateByShowtime = new ConcurrentHashMap<>();
+    private final Set<String> dirtyShowtimes = ConcurrentHashMap.newKeySet();
+    private final Set<LocalDate> dirtyDates = ConcurrentHashMap.newKeySet();
+
+    public DailySchedule getSchedule(LocalDate date) {
+        if (!inWindow(date)) {
+            return new DailySchedule(date.toString(), date, List.of(), 0, LocalDateTime.now());
+        }
+        DailySchedule schedule = cache.get(date);
+        if (schedule != null) {
+            return schedule;
+        }
+        schedule = mongoTemplate.findById(date.toString(), DailySchedule.class);
+        if (schedule == null) {
+            return rebuild(date);
+        }
+        remember(schedule);
+        return schedule;
+    }
+
+    @EventListener
+    public void onShowtimeChanged(ShowtimeChangedEvent event) {
+        dirtyShowtimes.add(event.getShowtimeId());
+        // The day it was on; the day it is on now is looked up on refresh
+        LocalDate date = dateByShowtime.get(event.getShowtimeId());
+        if (date != null) {
+            dirtyDates.add(date);
+        }
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        Query query = new Query(Criteria.where("movies.movieId").in(event.getMovieIds())
+                .and("date").gte(LocalDate.now().minusDays(1)));
+        query.fields().include("date");
+        mongoTemplate.find(query, DailySchedule.class).forEach(schedule -> dirtyDates.add(schedule.getDate()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.schedule.refresh-interval-ms:5000}")
+    public void refreshDirty() {
+        Set<String> showtimeIds = drain(dirtyShowtimes);
+        Set<LocalDate> dates = drain(dirtyDates);
+        if (!showtimeIds.isEmpty()) {
+            Query query = new Query(Criteria.where("id").in(showtimeIds));
+            query.fields().include("showDateTime");
+            for (Showtime showtime : mongoTemplate.find(query, Showtime.class)) {
+                if (showtime.getShowDateTime() != null) {
+                    dates.add(showtime.getShowDateTime().toLocalDate());
+                }
+            }
+        }
+        dates.stream().filter(this::inWindow).forEach(this::rebuild);
+
+        LocalDate oldest = LocalDate.now().minusDays(1);
+        cache.keySet().removeIf(date -> date.isBefore(oldest));
+        dateByShowtime.values().removeIf(date -> date.isBefore(oldest));
+    }
+
+    /**
+     * Safety net for writes that bypass the services (other instances, manual edits).
+     */
+    @Scheduled(fixedDelayString = "${app.schedule.full-refresh-interval-ms:600000}", initialDelayString = "${app.schedule.full-refresh-interval-ms:600000}")
+    public void refreshCached() {
+        dirtyDates.addAll(cache.keySet());
+    }
+
+    public DailySchedule rebuild(LocalDate date) {
+        LocalDateTime start = date.atStartOfDay();
+        Query showtimeQuery = new Query(Criteria.where("active").is(true)
+                .and("showDateTime").gte(start).lt(start.plusDays(1)))
+                .with(Sort.by("showDateTime").and(Sort.by("screenNumber")));
+        showtimeQuery.fields().include("id").include("movieId").include("showDateTime").include("format")
+                .include("screenNumber").include("price").include("availableSeats").include("totalSeats");
+        List<Showtime> showtimes = mongoTemplate.find(showtimeQuery, Showtime.class);
+
+        Set<String> movieIds = new HashSet<>();
+        showtimes.forEach(showtime -> movieIds.add(showtime.getMovieId()));
+        Query movieQuery = new Query(Criteria.where("id").in(movieIds));
+        movieQuery.fields().include("id").include("title").include("posterUrl").include("duration")
+                .include("rating").include("genre");
+        Map<String, Movie> movies = new HashMap<>();
+        mongoTemplate.find(movieQuery, Movie.class).forEach(movie -> movies.put(movie.getId(), movie));
+
+        // Movies in order of their first show of the day
+        Map<String, DailySchedule.MovieSchedule> byMovie = new LinkedHashMap<>();
+        for (Showtime showtime : showtimes) {
+            DailySchedule.MovieSchedule movieSchedule = byMovie.computeIfAbsent(showtime.getMovieId(), movieId -> {
+                Movie movie = movies.get(movieId);
+                return new DailySchedule.MovieSchedule(movieId,
+                        movie != null ? movie.getTitle() : "Unknown Movie",
+                        movie != null ? movie.getPosterUrl() : null,
+                        movie != null ? movie.getDuration() : null,
+                        movie != null ? movie.getRating() : null,
+                        movie != null ? movie.getGenre() : null,
+                        new ArrayList<>());
+            });
+            movieSchedule.getShowtimes().add(new DailySchedule.ScheduleEntry(showtime.getId(),
+                    showtime.getShowDateTime(), showtime.getFormat(), showtime.getScreenNumber(),
+                    showtime.getPrice(), showtime.getAvailableSeats(), showtime.getTotalSeats()));
+        }
+
+        DailySchedule schedule = new DailySchedule(date.toString(), date, new ArrayList<>(byMovie.values()),
+                showtimes.size(), LocalDateTime.now());
+        mongoTemplate.save(schedule);
+        remember(schedule);
+        logger.debug("Rebuilt schedule for {}: {} showtime(s)", date, showtimes.size());
+        return schedule;
+    }
+
+    private boolean inWindow(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today.minusDays(1)) && !date.isAfter(today.plusDays(cacheDays));
+    }
+
+    private void remember(DailySchedule schedule) {
+        if (!inWindow(schedule.getDate())) {
+            return;
+        }
+        cache.put(schedule.getDate(), schedule);
+        for (DailySchedule.MovieSchedule movie : schedule.getMovies()) {
+            for (DailySchedule.ScheduleEntry entry : movie.getShowtimes()) {
+                dateByShowtime.put(entry.getShowtimeId(), schedule.getDate());
+            }
+        }
+    }
+
+    private static <T> Set<T> drain(Set<T> source) {
+        Set<T> drained = new HashSet<>(source);
+        source.removeAll(drained);
+        return drained;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.EmailOutboxMessage;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.User;
+import com.example.cinema.managing.system.repository.BookingRepository;
+import com.example.cinema.managing.system.repository.EmailOutboxMessageRepository;
+import com.example.cinema.managing.system.repository.MovieRepository;
+import com.example.cinema.managing.system.repository.ShowtimeRepository;
+import com.example.cinema.managing.system.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Delivers queued emails in the background.
+ * {@link #enqueueBookingConfirmation} is a single insert on the checkout path. The dispatcher
+ * claims due messages in batches and renders them with one lookup per collection. It sends them
+ * over a few SMTP connections, one {@code send(...)} call per connection, then marks the
+ * messages and their bookings in bulk. Failed messages are retried with exponential backoff.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final DateTimeFormatter SHOW_TIME_FORMAT = DateTimeFormatter.ofPattern("EEE d MMM yyyy, HH:mm");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmailOutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Value("${app.mail.from:no-reply@cinema.com}")
+    private String fromAddress;
+
+    @Value("${app.mail.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.connections:4}")
+    private int connections;
+
+    @Value("${app.mail.outbox.lock-seconds:300}")
+    private long lockSeconds;
+
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        senders = Executors.newFixedThreadPool(connections);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    public void enqueueBookingConfirmation(String bookingId) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setType("BOOKING_CONFIRMATION");
+        message.setBookingId(bookingId);
+        try {
+            mongoTemplate.insert(message);
+        } catch (DuplicateKeyException e) {
+            // Already queued
+        }
+    }
+
+    public long countByStatus(String status) {
+        return outboxRepository.countByStatus(status);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        if (!enabled || mailSender == null) {
+            return;
+        }
+        List<EmailOutboxMessage> claimed;
+        do {
+            claimed = claimBatch();
+            if (!claimed.isEmpty()) {
+                deliver(claimed);
+            }
+        } while (claimed.size() == batchSize);
+    }
+
+    /**
+     * Queues confirmations for recent bookings whose enqueue was lost, e.g. the process died right
+     * after saving the booking. Without transactions this is what keeps the outbox complete.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.backfill-interval-ms:900000}")
+    public void enqueueMissingConfirmations() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("status").is("CONFIRMED")
+                .and("emailSent").is(false)
+                .and("bookingDate").gte(now.minusDays(1)).lt(now.minusMinutes(5)));
+        query.fields().include("id");
+        List<String> bookingIds = mongoTemplate.find(query, Booking.class).stream().map(Booking::getId).toList();
+        if (bookingIds.isEmpty()) {
+            return;
+        }
+
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EmailOutboxMessage.class);
+        for (String bookingId : bookingIds) {
+            EmailOutboxMessage message = new EmailOutboxMessage();
+            message.setType("BOOKING_CONFIRMATION");
+            message.setBookingId(bookingId);
+            inserts.insert(message);
+        }
+        int inserted;
+        try {
+            inserted = inserts.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Duplicates are the normal case: most of these are already queued
+            inserted = e.getResult().getInsertedCount();
+        }
+        if (inserted > 0) {
+            logger.info("Queued {} missing booking confirmation(s)", inserted);
+        }
+    }
+
+    private List<EmailOutboxMessage> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("status").is("PENDING").and("nextAttemptAt").lte(now),
+                Criteria.where("status").is("SENDING").and("lockedUntil").lt(now));
+        Query candidates = new Query(due).with(Sort.by("nextAttemptAt")).limit(batchSize);
+        candidates.fields().include("id");
+        List<String> ids = mongoTemplate.find(candidates, EmailOutboxMessage.class).stream()
+                .map(EmailOutboxMessage::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Re-check the due condition so another instance's claim is never taken over
+        String claimId = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(new Query(new Criteria().andOperator(Criteria.where("id").in(ids), due)),
+                new Update().set("status", "SENDING")
+                        .set("claimId", claimId)
+                        .set("lockedUntil", now.plusSeconds(lockSeconds))
+                        .inc("attempts", 1),
+                EmailOutboxMessage.class);
+        return outboxRepository.findByClaimId(claimId);
+    }
+
+    private void deliver(List<EmailOutboxMessage> claimed) {
+        List<String> bookingIds = claimed.stream().map(EmailOutboxMessage::getBookingId).toList();
+        Map<String, Booking> bookings = byId(bookingRepository.findAllById(bookingIds), Booking::getId);
+        Map<String, User> users = byId(userRepository.findAllById(
+                bookings.values().stream().map(Booking::getUserId).distinct().toList()), User::getId);
+        Map<String, Movie> movies = byId(movieRepository.findAllById(
+                bookings.values().stream().map(Booking::getMovieId).distinct().toList()), Movie::getId);
+        Map<String, Showtime> showtimes = byId(showtimeRepository.findAllById(
+                bookings.values().stream().map(Booking::getShowtimeId).distinct().toList()), Showtime::getId);
+
+        Map<SimpleMailMessage, EmailOutboxMessage> outgoing = new IdentityHashMap<>();
+        Map<EmailOutboxMessage, String> failures = new IdentityHashMap<>();
+        for (EmailOutboxMessage message : claimed) {
+            Booking booking = bookings.get(message.getBookingId());
+            User user = booking != null ? users.get(booking.getUserId()) : null;
+            if (booking == null || user == null || user.getEmail() == null) {
+                failures.put(message, booking == null ? "Booking no longer exists" : "No email address for user");
+                continue;
+            }
+            outgoing.put(renderConfirmation(booking, user,
+                    movies.get(booking.getMovieId()), showtimes.get(booking.getShowtimeId())), message);
+        }
+
+        // One send(...) call is one SMTP connection, so split the batch across the connection pool
+        List<SimpleMailMessage> mails = new ArrayList<>(outgoing.keySet());
+        int chunkSize = Math.max(1, (mails.size() + connections - 1) / connections);
+        Map<Future<Map<Object, Exception>>, List<SimpleMailMessage>> chunks = new LinkedHashMap<>();
+        for (int i = 0; i < mails.size(); i += chunkSize) {
+            List<SimpleMailMessage> chunk = mails.subList(i, Math.min(mails.size(), i + chunkSize));
+            chunks.put(senders.submit(() -> sendChunk(chunk)), chunk);
+        }
+        for (Map.Entry<Future<Map<Object, Exception>>, List<SimpleMailMessage>> chunk : chunks.entrySet()) {
+            try {
+                chunk.getKey().get().forEach((mail, error) -> failures.put(outgoing.get(mail), error.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // claims expire and the messages are picked up again
+            } catch (ExecutionException e) {
+                // Nothing is known about this chunk, so none of it counts as sent
+                logger.error("Unexpected error sending booking emails", e.getCause());
+                String error = String.valueOf(e.getCause());
+                chunk.getValue().forEach(mail -> failures.put(outgoing.get(mail), error));
+            }
+        }
+
+        List<String> sentIds = new ArrayList<>();
+        List<String> sentBookingIds = new ArrayList<>();
+        for (EmailOutboxMessage message : outgoing.values()) {
+            if (!failures.containsKey(message)) {
+                sentIds.add(message.getId());
+                sentBookingIds.add(message.getBookingId());
+            }
+        }
+        markSent(sentIds, sentBookingIds);
+        markFailed(failures);
+    }
+
+    private Map<Object, Exception> sendChunk(List<SimpleMailMessage> chunk) {
+        try {
+            mailSender.send(chunk.toArray(new SimpleMailMessage[0]));
+            return Map.of();
+        } catch (MailSendException e) {
+            if (!e.getFailedMessages().isEmpty()) {
+                return e.getFailedMessages();
+            }
+            return allFailed(chunk, e);
+        } catch (MailException e) {
+            return allFailed(chunk, e);
+        }
+    }
+
+    private void markSent(List<String> outboxIds, List<String> bookingIds) {
+        if (outboxIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(new Query(Criteria.where("id").in(outboxIds)),
+                new Update().set("status", "SENT")
+                        .set("sentAt", LocalDateTime.now())
+                        .unset("claimId")
+                        .unset("lockedUntil")
+                        .unset("lastError"),
+                EmailOutboxMessage.class);
+        mongoTemplate.updateMulti(new Query(Criteria.where("id").in(bookingIds)),
+                new Update().set("emailSent", true), Booking.class);
+    }
+
+    private void markFailed(Map<EmailOutboxMessage, String> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EmailOutboxMessage.class);
+        failures.forEach((message, error) -> {
+            int attempts = message.getAttempts() == null ? 1 : message.getAttempts();
+            boolean exhausted = attempts >= MAX_ATTEMPTS;
+            long backoffSeconds = Math.min(3600, 30L << Math.min(attempts - 1, 7));
+            updates.updateOne(new Query(Criteria.where("id").is(message.getId())),
+                    new Update().set("status", exhausted ? "FAILED" : "PENDING")
+                            .set("nextAttemptAt", LocalDateTime.now().plusSeconds(backoffSeconds))
+                            .set("lastError", error)
+                            .unset("claimId")
+                            .unset("lockedUntil"));
+        });
+        updates.execute();
+        logger.warn("{} booking email(s) could not be sent and will be retried", failures.size());
+    }
+
+    private SimpleMailMessage renderConfirmation(Booking booking, User user, Movie movie, Showtime showtime) {
+        String title = movie != null ? movie.getTitle() : "your movie";
+        StringBuilder body = new StringBuilder()
+                .append("Hi ").append(user.getUsername() != null ? user.getUsername() : "there").append(",\n\n")
+                .append("Your booking is confirmed.\n\n")
+                .append("Movie: ").append(title).append('\n');
+        if (showtime != null && showtime.getShowDateTime() != null) {
+            body.append("Show time: ").append(showtime.getShowDateTime().format(SHOW_TIME_FORMAT)).append('\n')
+                    .append("Screen: ").append(showtime.getScreenNumber()).append('\n');
+        }
+        if (booking.getSeatNumbers() != null && !booking.getSeatNumbers().isEmpty()) {
+            body.append("Seats: ").append(String.join(", ", booking.getSeatNumbers())).append('\n');
+        }
+        body.append("Total paid: ").append(String.format("%.2f", booking.getTotalAmount())).append('\n')
+                .append("Booking code: ").append(booking.getBookingCode()).append("\n\n")
+                .append("Show this code at the entrance. Enjoy the show!\n");
+
+        SimpleMailMessage mail = new SimpleMailMessage();
+        mail.setFrom(fromAddress);
+        mail.setTo(user.getEmail());
+        mail.setSubject("Booking confirmed: " + title + " (" + booking.getBookingCode() + ")");
+        mail.setText(body.toString());
+        return mail;
+    }
+
+    private static Map<Object, Exception> allFailed(List<SimpleMailMessage> chunk, Exception error) {
+        Map<Object, Exception> failed = new IdentityHashMap<>();
+        chunk.forEach(mail -> failed.put(mail, error));
+        return failed;
+    }
+
+    private static <T> Map<String, T> byId(Iterable<T> items, Function<T, String> id) {
+        Map<String, T> map = new HashMap<>();
+        items.forEach(item -> map.put(id.apply(item), item));
+        return map;
+    }
+}
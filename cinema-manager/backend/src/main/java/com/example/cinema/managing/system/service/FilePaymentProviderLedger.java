@@ -0,0 +1,89 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ProviderTransaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local stand-in for the provider: a CSV export with the columns
+ * {@code transaction_id,status,amount_cents}. Status may use Stripe or local vocabulary.
+ * The file is indexed once and re-read only when it changes.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payments.reconciliation.ledger", havingValue = "file", matchIfMissing = true)
+public class FilePaymentProviderLedger implements PaymentProviderLedger {
+
+    @Value("${app.payments.reconciliation.ledger-file:./data/provider-ledger.csv}")
+    private String ledgerFile;
+
+    private Map<String, ProviderTransaction> index = Map.of();
+    private long indexedModifiedAt = -1;
+
+    @Override
+    public String getName() {
+        return "file:" + ledgerFile;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Files.isReadable(Paths.get(ledgerFile));
+    }
+
+    @Override
+    public Map<String, ProviderTransaction> findTransactions(Collection<String> transactionIds) throws IOException {
+        Map<String, ProviderTransaction> current = currentIndex();
+        Map<String, ProviderTransaction> found = new HashMap<>();
+        for (String transactionId : transactionIds) {
+            ProviderTransaction transaction = current.get(transactionId);
+            if (transaction != null) {
+                found.put(transactionId, transaction);
+            }
+        }
+        return found;
+    }
+
+    private synchronized Map<String, ProviderTransaction> currentIndex() throws IOException {
+        Path path = Paths.get(ledgerFile);
+        long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+        if (modifiedAt == indexedModifiedAt) {
+            return index;
+        }
+
+        Map<String, ProviderTransaction> loaded = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length < 2 || columns[0].isBlank() || "transaction_id".equals(columns[0].trim())) {
+                    continue;
+                }
+                Long amount = columns.length > 2 && !columns[2].isBlank() ? Long.parseLong(columns[2].trim()) : null;
+                String id = columns[0].trim();
+                loaded.put(id, new ProviderTransaction(id, normalize(columns[1].trim()), amount));
+            }
+        }
+        index = loaded;
+        indexedModifiedAt = modifiedAt;
+        return index;
+    }
+
+    private static String normalize(String status) {
+        return switch (status.toLowerCase()) {
+            case "succeeded", "success" -> "SUCCESS";
+            case "refunded" -> "REFUNDED";
+            case "failed", "canceled" -> "FAILED";
+            default -> "PENDING";
+        };
+    }
+}
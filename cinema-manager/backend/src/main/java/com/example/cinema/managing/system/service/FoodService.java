@@ -1,8 +1,10 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.event.CatalogChangedEvent;
 import com.example.cinema.managing.system.model.Food;
 import com.example.cinema.managing.system.repository.FoodRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,6 +16,9 @@ public class FoodService {
     @Autowired
     private FoodRepository foodRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Food> getAllFoods() {
         return foodRepository.findAll();
     }
@@ -37,7 +42,9 @@ public class FoodService {
     public Food createFood(Food food) {
         food.setCreatedAt(LocalDateTime.now());
         food.setSalesCount(0);
-        return foodRepository.save(food);
+        Food saved = foodRepository.save(food);
+        eventPublisher.publishEvent(new CatalogChangedEvent("FOOD"));
+        return saved;
     }
 
     public Food updateFood(String id, Food foodDetails) {
@@ -54,11 +61,14 @@ public class FoodService {
         food.setSeatDelivery(foodDetails.isSeatDelivery());
         food.setActive(foodDetails.isActive());
         
-        return foodRepository.save(food);
+        Food saved = foodRepository.save(food);
+        eventPublisher.publishEvent(new CatalogChangedEvent("FOOD"));
+        return saved;
     }
 
     public void deleteFood(String id) {
         foodRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent("FOOD"));
     }
 
     public void incrementSalesCount(String id) {
@@ -0,0 +1,376 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Cart;
+import com.example.cinema.managing.system.model.CartItem;
+import com.example.cinema.managing.system.model.Merchandise;
+import com.example.cinema.managing.system.model.StockReservation;
+import com.example.cinema.managing.system.repository.StockReservationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merchandise stock keeping.
+ * Every unit sitting in a cart is taken out of {@code Merchandise.stock} with a conditional
+ * decrement and tracked by a {@link StockReservation} until checkout or expiry, so stock can
+ * never go negative no matter how many buyers race for the same item.
+ * Hot SKUs ({@code app.inventory.hot-skus}) are sold from an in-memory counter that leases units
+ * out of the document a refill batch at a time. Those units are only written back by the periodic
+ * flush (all but one batch) and on shutdown: if the instance dies, what its counters held is gone
+ * from stock and has to be added back with an admin stock adjustment. The flush logs what each
+ * counter keeps, which is the most that can be lost.
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Value("${app.inventory.reservation-ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    @Value("${app.inventory.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Value("${app.inventory.hot-skus:}")
+    private String hotSkusConfig;
+
+    @Value("${app.inventory.hot-refill-batch:50}")
+    private int hotRefillBatch;
+
+    private final Map<String, StripedStockCounter> hotCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int stripes = Runtime.getRuntime().availableProcessors() * 2;
+        for (String sku : hotSkusConfig.split(",")) {
+            if (!sku.isBlank()) {
+                hotCounters.put(sku.trim(), new StripedStockCounter(stripes));
+            }
+        }
+        if (!hotCounters.isEmpty()) {
+            logger.info("Serving {} hot SKU(s) from striped in-memory counters", hotCounters.size());
+        }
+    }
+
+    /**
+     * Stock still sellable for an item, including units leased to this instance's in-memory counter.
+     */
+    public int getAvailableStock(String merchandiseId) {
+        Merchandise merchandise = mongoTemplate.findById(merchandiseId, Merchandise.class);
+        int stored = merchandise != null && merchandise.getStock() != null ? merchandise.getStock() : 0;
+        StripedStockCounter counter = hotCounters.get(merchandiseId);
+        return counter != null ? stored + counter.available() : stored;
+    }
+
+    /**
+     * Reports stock as sellable totals, adding the units leased to this instance's hot counters.
+     */
+    public <T extends Iterable<Merchandise>> T withLeasedStock(T items) {
+        if (!hotCounters.isEmpty()) {
+            for (Merchandise merchandise : items) {
+                StripedStockCounter counter = hotCounters.get(merchandise.getId());
+                if (counter != null) {
+                    merchandise.setStock((merchandise.getStock() != null ? merchandise.getStock() : 0) + counter.available());
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Applies an admin stock correction without a read-modify-write of the document.
+     * Negative adjustments are rejected if they would take stock below zero.
+     */
+    public Merchandise adjustStock(String merchandiseId, int delta) {
+        if (delta < 0 && !tryTakeStock(merchandiseId, -delta)) {
+            throw new RuntimeException("Insufficient stock to remove " + (-delta) + " unit(s)");
+        }
+        if (delta > 0) {
+            returnStock(merchandiseId, delta);
+        }
+        Merchandise merchandise = mongoTemplate.findById(merchandiseId, Merchandise.class);
+        if (merchandise == null) {
+            throw new RuntimeException("Merchandise not found with id: " + merchandiseId);
+        }
+        withLeasedStock(List.of(merchandise));
+        return merchandise;
+    }
+
+    /**
+     * Takes {@code quantity} more units for a cart line. Throws if not enough stock is left.
+     */
+    public void reserve(String cartId, String userId, String merchandiseId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (!tryTakeStock(merchandiseId, quantity)) {
+            throw new RuntimeException("Insufficient stock available");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("cartId").is(cartId).and("merchandiseId").is(merchandiseId));
+        Update update = new Update()
+                .inc("quantity", quantity)
+                .set("expiresAt", now.plusMinutes(reservationTtlMinutes))
+                .setOnInsert("userId", userId)
+                .setOnInsert("createdAt", now);
+        mongoTemplate.upsert(query, update, StockReservation.class);
+    }
+
+    /**
+     * Gives {@code quantity} units of a cart line back to stock.
+     */
+    public void release(String cartId, String merchandiseId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        Query query = new Query(Criteria.where("cartId").is(cartId)
+                .and("merchandiseId").is(merchandiseId)
+                .and("quantity").gte(quantity));
+        StockReservation reservation = mongoTemplate.findAndModify(query,
+                new Update().inc("quantity", -quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                StockReservation.class);
+
+        if (reservation == null) {
+            // Less is held than asked for (partly expired) - release whatever is left
+            releaseAll(cartId, merchandiseId);
+            return;
+        }
+        if (reservation.getQuantity() == 0) {
+            mongoTemplate.remove(new Query(Criteria.where("id").is(reservation.getId()).and("quantity").is(0)),
+                    StockReservation.class);
+        }
+        returnStock(merchandiseId, quantity);
+    }
+
+    public void releaseAll(String cartId, String merchandiseId) {
+        StockReservation reservation = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("cartId").is(cartId).and("merchandiseId").is(merchandiseId)),
+                StockReservation.class);
+        if (reservation != null) {
+            returnStock(reservation.getMerchandiseId(), reservation.getQuantity());
+        }
+    }
+
+    public void releaseCart(String cartId) {
+        StockReservation reservation;
+        while ((reservation = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("cartId").is(cartId)), StockReservation.class)) != null) {
+            returnStock(reservation.getMerchandiseId(), reservation.getQuantity());
+        }
+    }
+
+    /**
+     * Turns the cart's reservations into a sale. Lines whose reservation lapsed are topped up
+     * from stock first; if that is no longer possible the checkout fails and nothing is sold.
+     */
+    public void commitCart(Cart cart) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Push expiry out first so the sweeper cannot release anything while we settle
+        mongoTemplate.updateMulti(new Query(Criteria.where("cartId").is(cart.getId())),
+                new Update().set("expiresAt", now.plusMinutes(reservationTtlMinutes)),
+                StockReservation.class);
+
+        Map<String, Integer> held = new HashMap<>();
+        for (StockReservation reservation : stockReservationRepository.findByCartId(cart.getId())) {
+            held.put(reservation.getMerchandiseId(), reservation.getQuantity());
+        }
+
+        for (CartItem item : cart.getItems()) {
+            int difference = item.getQuantity() - held.getOrDefault(item.getMerchandiseId(), 0);
+            if (difference > 0) {
+                reserve(cart.getId(), cart.getUserId(), item.getMerchandiseId(), difference);
+            } else if (difference < 0) {
+                release(cart.getId(), item.getMerchandiseId(), -difference);
+            }
+            held.remove(item.getMerchandiseId());
+        }
+        // Reservations for lines no longer in the cart
+        for (String merchandiseId : held.keySet()) {
+            releaseAll(cart.getId(), merchandiseId);
+        }
+
+        mongoTemplate.remove(new Query(Criteria.where("cartId").is(cart.getId())), StockReservation.class);
+
+        if (!cart.getItems().isEmpty()) {
+            BulkOperations sales = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Merchandise.class);
+            for (CartItem item : cart.getItems()) {
+                sales.updateOne(new Query(Criteria.where("id").is(item.getMerchandiseId())),
+                        new Update().inc("salesCount", item.getQuantity()));
+            }
+            sales.execute();
+        }
+    }
+
+    /**
+     * Takes stock for merchandise sold outright with a booking, all lines or none.
+     * Throws if any line is short; units already taken for earlier lines are given back.
+     */
+    public void sell(Map<String, Integer> quantities) {
+        Map<String, Integer> taken = new HashMap<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            if (!tryTakeStock(line.getKey(), line.getValue())) {
+                taken.forEach(this::returnStock);
+                throw new RuntimeException("Insufficient stock available");
+            }
+            taken.put(line.getKey(), line.getValue());
+        }
+        countSales(quantities, 1);
+    }
+
+    /**
+     * Undoes {@link #sell} when the booking it was taken for does not go through.
+     */
+    public void unsell(Map<String, Integer> quantities) {
+        quantities.forEach(this::returnStock);
+        countSales(quantities, -1);
+    }
+
+    private void countSales(Map<String, Integer> quantities, int sign) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        BulkOperations sales = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Merchandise.class);
+        quantities.forEach((merchandiseId, quantity) -> sales.updateOne(
+                new Query(Criteria.where("id").is(merchandiseId)), new Update().inc("salesCount", sign * quantity)));
+        sales.execute();
+    }
+
+    /**
+     * Releases reservations whose carts went quiet past the TTL.
+     * Each reservation is claimed with findAndRemove so only one sweeper returns its units.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.sweep-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        int released = 0;
+        List<StockReservation> expired;
+        do {
+            Query query = new Query(Criteria.where("expiresAt").lt(LocalDateTime.now()))
+                    .with(Sort.by("expiresAt"))
+                    .limit(sweepBatchSize);
+            query.fields().include("id");
+            expired = mongoTemplate.find(query, StockReservation.class);
+
+            Map<String, Integer> returned = new HashMap<>();
+            for (StockReservation candidate : expired) {
+                StockReservation reservation = mongoTemplate.findAndRemove(
+                        new Query(Criteria.where("id").is(candidate.getId())
+                                .and("expiresAt").lt(LocalDateTime.now())),
+                        StockReservation.class);
+                if (reservation != null) {
+                    returned.merge(reservation.getMerchandiseId(), reservation.getQuantity(), Integer::sum);
+                    released++;
+                }
+            }
+            returned.forEach(this::returnStock);
+        } while (expired.size() == sweepBatchSize);
+
+        if (released > 0) {
+            logger.info("Released {} expired stock reservation(s)", released);
+        }
+    }
+
+    /**
+     * Hands surplus units leased by hot SKU counters back to Mongo, keeping one refill batch in memory.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.hot-flush-interval-ms:30000}")
+    public void flushHotCounters() {
+        hotCounters.forEach((merchandiseId, counter) -> {
+            int surplus = counter.available() - hotRefillBatch;
+            if (surplus > 0) {
+                incrementStoredStock(merchandiseId, counter.drain(surplus));
+            }
+            // Not in the document until shutdown; after a crash this is what to add back
+            logger.debug("Hot SKU {} holds {} leased unit(s) in memory", merchandiseId, counter.available());
+        });
+    }
+
+    @PreDestroy
+    public void returnLeasedStock() {
+        hotCounters.forEach((merchandiseId, counter) ->
+                incrementStoredStock(merchandiseId, counter.drain(Integer.MAX_VALUE)));
+    }
+
+    private boolean tryTakeStock(String merchandiseId, int quantity) {
+        StripedStockCounter counter = hotCounters.get(merchandiseId);
+        if (counter == null) {
+            return decrementStoredStock(merchandiseId, quantity);
+        }
+        while (true) {
+            if (counter.tryTake(quantity)) {
+                return true;
+            }
+            int leased = leaseFromStore(merchandiseId, Math.max(hotRefillBatch, quantity));
+            if (leased == 0) {
+                return counter.tryTake(quantity);
+            }
+            counter.add(leased);
+        }
+    }
+
+    private void returnStock(String merchandiseId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        StripedStockCounter counter = hotCounters.get(merchandiseId);
+        if (counter != null) {
+            counter.add(quantity);
+        } else {
+            incrementStoredStock(merchandiseId, quantity);
+        }
+    }
+
+    // Moves up to 'wanted' units from the document into memory; returns 0 when sold out
+    private int leaseFromStore(String merchandiseId, int wanted) {
+        while (wanted > 0) {
+            if (decrementStoredStock(merchandiseId, wanted)) {
+                return wanted;
+            }
+            Query query = new Query(Criteria.where("id").is(merchandiseId));
+            query.fields().include("stock");
+            Merchandise merchandise = mongoTemplate.findOne(query, Merchandise.class);
+            int remaining = merchandise != null && merchandise.getStock() != null ? merchandise.getStock() : 0;
+            wanted = Math.min(wanted, remaining);
+        }
+        return 0;
+    }
+
+    private boolean decrementStoredStock(String merchandiseId, int quantity) {
+        Query query = new Query(Criteria.where("id").is(merchandiseId).and("stock").gte(quantity));
+        return mongoTemplate.updateFirst(query, new Update().inc("stock", -quantity), Merchandise.class)
+                .getModifiedCount() > 0;
+    }
+
+    private void incrementStoredStock(String merchandiseId, int quantity) {
+        if (quantity > 0) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(merchandiseId)),
+                    new Update().inc("stock", quantity), Merchandise.class);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.JobLease;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure a scheduled job runs on one node at a time. A lease is a document per job that an
+ * instance takes with a single conditional upsert: it matches only when the lease has expired or
+ * is already ours, and otherwise the upsert collides with the existing id and fails. A node that
+ * dies while holding a lease blocks the job only until the lease expires.
+ * Lease expiry is compared on each node's clock, so nodes must agree on the time to within a
+ * small fraction of the lease.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final String instanceId = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * Runs {@code job} if this instance gets the lease, and gives the lease back afterwards.
+     * Returns false when another instance holds it.
+     */
+    public boolean runExclusively(String jobName, Duration lease, Supplier<String> job) {
+        if (!tryAcquire(jobName, lease)) {
+            return false;
+        }
+        String result = "FAILED";
+        try {
+            result = job.get();
+        } catch (RuntimeException e) {
+            logger.warn("Job {} failed: {}", jobName, e.getMessage());
+        } finally {
+            release(jobName, result);
+        }
+        return true;
+    }
+
+    public boolean tryAcquire(String jobName, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("id").is(jobName).orOperator(
+                Criteria.where("lockedUntil").lt(now),
+                Criteria.where("owner").is(instanceId)));
+        Update update = new Update().set("owner", instanceId).set("lockedUntil", now.plus(lease));
+        try {
+            mongoTemplate.upsert(query, update, JobLease.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public void release(String jobName, String result) {
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(jobName).and("owner").is(instanceId)),
+                new Update().set("lockedUntil", now).set("lastRunAt", now).set("lastResult", result),
+                JobLease.class);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.BookingStatusChangedEvent;
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.LoyaltyTransaction;
+import com.example.cinema.managing.system.model.User;
+import com.example.cinema.managing.system.repository.LoyaltyTransactionRepository;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Loyalty points: an append-only ledger in {@code loyalty_transactions} plus a running balance on
+ * {@link User#getLoyaltyPoints()}.
+ * - Checkout only touches the balance when points are redeemed, with one conditional $inc that
+ *   cannot overdraw. Everything else happens off the request path.
+ * - Booking events are queued in memory and posted in batches: ledger entries are bulk inserted,
+ *   then balances move with one bulk $inc per batch. Entry ids are "type:referenceId", so replays
+ *   never post twice.
+ * - Bookings whose event was lost (full queue, restart) still have no {@code loyaltyPostedAt} and
+ *   are picked up by the backfill sweep.
+ * - The ledger is the source of truth: a nightly job resets balances that drifted from it.
+ */
+@Service
+public class LoyaltyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoyaltyService.class);
+
+    private static final List<String> POSTABLE_STATUSES = List.of("CONFIRMED", "COMPLETED", "CANCELLED");
+
+    // Entry types whose points are already on the balance when the entry is written
+    private static final Set<String> LEDGER_ONLY_TYPES = Set.of("REDEEMED");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LoyaltyTransactionRepository loyaltyTransactionRepository;
+
+    @Value("${app.loyalty.points-per-unit:1}")
+    private double pointsPerUnit;
+
+    @Value("${app.loyalty.point-value:0.01}")
+    private double pointValue;
+
+    @Value("${app.loyalty.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.loyalty.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.loyalty.reconciliation.settle-minutes:10}")
+    private long settleMinutes;
+
+    private BlockingQueue<String> bookingQueue;
+
+    private final AtomicLong postedTotal = new AtomicLong();
+    private final AtomicLong correctedTotal = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+
+    @PostConstruct
+    public void init() {
+        bookingQueue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    @EventListener
+    public void onBookingStatusChanged(BookingStatusChangedEvent event) {
+        if (!bookingQueue.offer(event.getBookingId())) {
+            logger.debug("Loyalty queue full, booking {} is left to the backfill", event.getBookingId());
+        }
+    }
+
+    public int pointsFor(Double amount) {
+        return amount == null || amount <= 0 ? 0 : (int) Math.floor(amount * pointsPerUnit);
+    }
+
+    public double discountFor(int points) {
+        return BigDecimal.valueOf(points * pointValue).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * Takes points off the user's balance if, and only if, the balance covers them.
+     * The matching ledger entry is written later from the booking.
+     */
+    public boolean redeem(String userId, int points) {
+        return mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(userId).and("loyaltyPoints").gte(points)),
+                new Update().inc("loyaltyPoints", -points), User.class).getModifiedCount() == 1;
+    }
+
+    /**
+     * Gives back points taken by {@link #redeem} for a booking that was never saved.
+     */
+    public void restore(String userId, int points) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(userId)),
+                new Update().inc("loyaltyPoints", points), User.class);
+    }
+
+    /**
+     * Writes the ledger entry for the welcome bonus already set on a new user's balance. Synchronous:
+     * once the user has other entries, the nightly reconciliation trusts the ledger over the balance,
+     * so a bonus missing from it would be taken away. Throws if the entry could not be written.
+     */
+    public void recordSignupBonus(User user) {
+        if (user.getLoyaltyPoints() == null || user.getLoyaltyPoints() <= 0) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(entry(user.getId(), user.getLoyaltyPoints(), "EARNED", "SIGNUP_BONUS",
+                    user.getId(), "Welcome bonus"));
+        } catch (DuplicateKeyException e) {
+            // Already recorded
+        }
+    }
+
+    public List<LoyaltyTransaction> getTransactions(String userId) {
+        return loyaltyTransactionRepository.findByUserIdOrderByTransactionDateDesc(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.loyalty.flush-interval-ms:2000}")
+    public void flush() {
+        List<String> bookingIds = new ArrayList<>();
+        while (bookingQueue.drainTo(bookingIds, batchSize) > 0) {
+            postBookings(new HashSet<>(bookingIds));
+            bookingIds.clear();
+        }
+    }
+
+    /**
+     * Posts bookings that have no ledger entries yet, however old: bookings cancelled long after
+     * they were made come back here to have their points reversed. The selector is served by
+     * loyalty_unposted_idx, which only ever holds a handful of unposted bookings.
+     */
+    @Scheduled(fixedDelayString = "${app.loyalty.backfill-interval-ms:300000}")
+    public void backfill() {
+        LocalDateTime now = LocalDateTime.now();
+        String lastId = null;
+        List<Booking> page;
+        long posted = 0;
+        do {
+            // The last minute is left to the queue
+            Criteria criteria = Criteria.where("loyaltyPostedAt").is(null)
+                    .and("status").in(POSTABLE_STATUSES)
+                    .and("bookingDate").lt(now.minusMinutes(1));
+            if (lastId != null) {
+                criteria.and("id").gt(lastId);
+            }
+            Query query = new Query(criteria).with(Sort.by("id")).limit(batchSize);
+            query.fields().include("id");
+            page = mongoTemplate.find(query, Booking.class);
+            if (page.isEmpty()) {
+                break;
+            }
+            posted += postBookings(page.stream().map(Booking::getId).toList());
+            lastId = page.get(page.size() - 1).getId();
+        } while (page.size() == batchSize);
+
+        if (posted > 0) {
+            logger.info("Loyalty backfill posted {} booking(s)", posted);
+        }
+    }
+
+    /**
+     * Compares every balance with the sum of its ledger and resets the ones that drifted.
+     * Users with loyalty activity still settling are left for the next run.
+     */
+    @Scheduled(cron = "${app.loyalty.reconciliation.cron:0 15 4 * * *}")
+    public Map<String, Object> reconcile() {
+        flush();
+        backfill();
+
+        LocalDateTime settled = LocalDateTime.now().minusMinutes(settleMinutes);
+        Map<String, Document> ledger = new HashMap<>();
+        mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.group("userId").sum("points").as("balance").max("transactionDate").as("lastEntryAt")),
+                LoyaltyTransaction.class, Document.class)
+                .forEach(sum -> ledger.put(sum.getString("_id"), sum));
+
+        Query usersQuery = new Query(Criteria.where("createdAt").lt(settled));
+        usersQuery.fields().include("id").include("loyaltyPoints");
+
+        List<LoyaltyTransaction> openings = new ArrayList<>();
+        Map<String, int[]> drifted = new LinkedHashMap<>(); // userId -> {balance, ledger sum}
+        try (Stream<User> users = mongoTemplate.stream(usersQuery, User.class)) {
+            users.forEach(user -> {
+                int balance = user.getLoyaltyPoints() == null ? 0 : user.getLoyaltyPoints();
+                Document sum = ledger.get(user.getId());
+                if (sum == null) {
+                    if (balance != 0) {
+                        // Balance from before the ledger existed becomes its first entry
+                        openings.add(entry(user.getId(), balance, "ADJUSTED", "OPENING_BALANCE",
+                                user.getId(), "Opening balance"));
+                    }
+                    return;
+                }
+                int expected = ((Number) sum.get("balance")).intValue();
+                Date lastEntryAt = sum.getDate("lastEntryAt");
+                boolean settledEntries = lastEntryAt == null
+                        || lastEntryAt.toInstant().isBefore(settled.atZone(ZoneId.systemDefault()).toInstant());
+                if (expected != balance && settledEntries) {
+                    drifted.put(user.getId(), new int[]{balance, expected});
+                }
+            });
+        }
+
+        for (int from = 0; from < openings.size(); from += batchSize) {
+            insertEntries(openings.subList(from, Math.min(openings.size(), from + batchSize)));
+        }
+
+        // Redemptions reach the ledger with their booking; skip users whose bookings are not posted yet
+        if (!drifted.isEmpty()) {
+            Query unposted = new Query(Criteria.where("loyaltyPostedAt").is(null)
+                    .and("userId").in(drifted.keySet())
+                    .and("status").in(POSTABLE_STATUSES));
+            mongoTemplate.findDistinct(unposted, "userId", Booking.class, String.class).forEach(drifted::remove);
+        }
+
+        long corrected = 0;
+        if (!drifted.isEmpty()) {
+            BulkOperations corrections = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            drifted.forEach((userId, values) -> {
+                logger.warn("Loyalty balance of user {} was {}, ledger says {}", userId, values[0], values[1]);
+                // Guarded on the balance we read: a concurrent redemption wins and is looked at next run
+                corrections.updateOne(new Query(Criteria.where("id").is(userId).and("loyaltyPoints").is(values[0])),
+                        new Update().set("loyaltyPoints", values[1]));
+            });
+            corrected = corrections.execute().getModifiedCount();
+            correctedTotal.addAndGet(corrected);
+        }
+
+        lastReconciledAt = LocalDateTime.now();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("openingBalances", openings.size());
+        result.put("drifted", drifted.size());
+        result.put("corrected", corrected);
+        result.put("reconciledAt", lastReconciledAt);
+        logger.info("Loyalty reconciliation: {}", result);
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queuedBookings", bookingQueue.size());
+        stats.put("bookingsPostedSinceStartup", postedTotal.get());
+        stats.put("balancesCorrectedSinceStartup", correctedTotal.get());
+        stats.put("lastReconciledAt", lastReconciledAt);
+        return stats;
+    }
+
+    /**
+     * Writes the ledger entries a booking's current status implies and moves balances for the new ones.
+     * Returns how many bookings were marked as posted.
+     */
+    private long postBookings(Collection<String> bookingIds) {
+        Query query = new Query(Criteria.where("id").in(bookingIds).and("loyaltyPostedAt").exists(false));
+        query.fields().include("id").include("userId").include("status").include("totalAmount")
+                .include("loyaltyPointsRedeemed");
+        List<Booking> bookings = mongoTemplate.find(query, Booking.class);
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        // Points earned by bookings now cancelled, straight from the ledger
+        List<String> earnedIds = bookings.stream()
+                .filter(booking -> "CANCELLED".equals(booking.getStatus()))
+                .map(booking -> entryId("EARNED", booking.getId()))
+                .toList();
+        Map<String, Integer> earnedByBooking = new HashMap<>();
+        if (!earnedIds.isEmpty()) {
+            mongoTemplate.find(new Query(Criteria.where("id").in(earnedIds)), LoyaltyTransaction.class)
+                    .forEach(earned -> earnedByBooking.put(earned.getReferenceId(), earned.getPoints()));
+        }
+
+        List<LoyaltyTransaction> entries = new ArrayList<>();
+        Map<String, List<String>> entryIdsByBooking = new HashMap<>();
+        Map<String, Integer> earnedPoints = new HashMap<>();
+        for (Booking booking : bookings) {
+            if (booking.getUserId() == null || !POSTABLE_STATUSES.contains(booking.getStatus())) {
+                continue;
+            }
+            List<LoyaltyTransaction> bookingEntries = new ArrayList<>();
+            int redeemed = booking.getLoyaltyPointsRedeemed() == null ? 0 : booking.getLoyaltyPointsRedeemed();
+            if (redeemed > 0) {
+                bookingEntries.add(entry(booking.getUserId(), -redeemed, "REDEEMED", "BOOKING", booking.getId(),
+                        "Redeemed at checkout"));
+            }
+            if ("CANCELLED".equals(booking.getStatus())) {
+                Integer earned = earnedByBooking.get(booking.getId());
+                if (earned != null && earned > 0) {
+                    bookingEntries.add(entry(booking.getUserId(), -earned, "REVERSED", "BOOKING", booking.getId(),
+                            "Booking cancelled"));
+                }
+                if (redeemed > 0) {
+                    bookingEntries.add(entry(booking.getUserId(), redeemed, "REFUNDED", "BOOKING", booking.getId(),
+                            "Redeemed points returned"));
+                }
+            } else {
+                int earned = pointsFor(booking.getTotalAmount());
+                earnedPoints.put(booking.getId(), earned);
+                if (earned > 0) {
+                    bookingEntries.add(entry(booking.getUserId(), earned, "EARNED", "BOOKING", booking.getId(),
+                            "Booking " + booking.getId()));
+                }
+            }
+            entries.addAll(bookingEntries);
+            entryIdsByBooking.put(booking.getId(), bookingEntries.stream().map(LoyaltyTransaction::getId).toList());
+        }
+
+        Set<String> failed = new HashSet<>();
+        Set<String> inserted = insertEntries(entries, failed);
+
+        Map<String, Integer> deltas = new HashMap<>();
+        for (LoyaltyTransaction entry : entries) {
+            if (inserted.contains(entry.getId()) && !LEDGER_ONLY_TYPES.contains(entry.getType())) {
+                deltas.merge(entry.getUserId(), entry.getPoints(), Integer::sum);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            BulkOperations balances = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            deltas.forEach((userId, delta) -> {
+                if (delta != 0) {
+                    balances.updateOne(new Query(Criteria.where("id").is(userId)), new Update().inc("loyaltyPoints", delta));
+                }
+            });
+            balances.execute();
+        }
+
+        BulkOperations marks = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+        long marked = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Booking booking : bookings) {
+            List<String> ids = entryIdsByBooking.get(booking.getId());
+            if (ids == null || ids.stream().anyMatch(failed::contains)) {
+                continue;
+            }
+            Update update = new Update().set("loyaltyPostedAt", now);
+            update.set("loyaltyPointsEarned", earnedPoints.getOrDefault(booking.getId(), 0));
+            // A booking cancelled since we read it is posted again under its new status
+            marks.updateOne(new Query(Criteria.where("id").is(booking.getId())
+                    .and("status").is(booking.getStatus())
+                    .and("loyaltyPostedAt").exists(false)), update);
+            marked++;
+        }
+        if (marked > 0) {
+            marked = marks.execute().getModifiedCount();
+            postedTotal.addAndGet(marked);
+        }
+        return marked;
+    }
+
+    private Set<String> insertEntries(List<LoyaltyTransaction> entries) {
+        return insertEntries(entries, new HashSet<>());
+    }
+
+    /**
+     * Bulk inserts entries and returns the ids actually written. Entries that exist already are
+     * skipped silently; ids that failed for any other reason are added to {@code failed}.
+     */
+    private Set<String> insertEntries(List<LoyaltyTransaction> entries, Set<String> failed) {
+        Set<String> inserted = new HashSet<>();
+        if (entries.isEmpty()) {
+            return inserted;
+        }
+        entries.forEach(entry -> inserted.add(entry.getId()));
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LoyaltyTransaction.class)
+                    .insert(entries)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                String id = entries.get(error.getIndex()).getId();
+                inserted.remove(id);
+                if (error.getCode() != 11000) {
+                    failed.add(id);
+                    logger.warn("Could not write loyalty entry {}: {}", id, error.getMessage());
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private static LoyaltyTransaction entry(String userId, int points, String type, String source,
+                                            String referenceId, String description) {
+        LoyaltyTransaction entry = new LoyaltyTransaction();
+        entry.setId(entryId(type, referenceId));
+        entry.setUserId(userId);
+        entry.setPoints(points);
+        entry.setType(type);
+        entry.setSource(source);
+        entry.setReferenceId(referenceId);
+        entry.setDescription(description);
+        entry.setTransactionDate(LocalDateTime.now());
+        return entry;
+    }
+
+    private static String entryId(String type, String referenceId) {
+        return type + ":" + referenceId;
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.event.CatalogChangedEvent;
 import com.example.cinema.managing.system.model.Merchandise;
 import com.example.cinema.managing.system.repository.MerchandiseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,66 +20,90 @@ public class MerchandiseService {
     @Autowired
     private MerchandiseRepository merchandiseRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Stock is always shown as the sellable total, so it is the number an admin edits against
     public List<Merchandise> getAllMerchandise() {
-        return merchandiseRepository.findAll();
+        return inventoryService.withLeasedStock(merchandiseRepository.findAll());
     }
 
     public List<Merchandise> getActiveMerchandise() {
-        return merchandiseRepository.findByActiveTrue();
+        return inventoryService.withLeasedStock(merchandiseRepository.findByActiveTrue());
     }
 
     public Optional<Merchandise> getMerchandiseById(String id) {
-        return merchandiseRepository.findById(id);
+        return merchandiseRepository.findById(id).map(merchandise -> {
+            inventoryService.withLeasedStock(List.of(merchandise));
+            return merchandise;
+        });
     }
 
     public List<Merchandise> getMerchandiseByCategory(String category) {
-        return merchandiseRepository.findByCategoryAndActiveTrue(category);
+        return inventoryService.withLeasedStock(merchandiseRepository.findByCategoryAndActiveTrue(category));
     }
 
     public List<Merchandise> getBundleMerchandise() {
-        return merchandiseRepository.findByBundleTrue();
+        return inventoryService.withLeasedStock(merchandiseRepository.findByBundleTrue());
     }
 
     public Merchandise createMerchandise(Merchandise merchandise) {
         merchandise.setCreatedAt(LocalDateTime.now());
         merchandise.setSalesCount(0);
-        return merchandiseRepository.save(merchandise);
+        Merchandise saved = merchandiseRepository.save(merchandise);
+        eventPublisher.publishEvent(new CatalogChangedEvent("MERCHANDISE"));
+        return saved;
     }
 
     public Merchandise updateMerchandise(String id, Merchandise merchandiseDetails) {
-        Merchandise merchandise = merchandiseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Merchandise not found with id: " + id));
+        if (!merchandiseRepository.existsById(id)) {
+            throw new RuntimeException("Merchandise not found with id: " + id);
+        }
         
-        merchandise.setName(merchandiseDetails.getName());
-        merchandise.setDescription(merchandiseDetails.getDescription());
-        merchandise.setPrice(merchandiseDetails.getPrice());
-        merchandise.setCategory(merchandiseDetails.getCategory());
-        merchandise.setImageUrl(merchandiseDetails.getImageUrl());
-        merchandise.setStock(merchandiseDetails.getStock());
-        merchandise.setBundle(merchandiseDetails.isBundle());
-        merchandise.setBundleMovieId(merchandiseDetails.getBundleMovieId());
-        merchandise.setActive(merchandiseDetails.isActive());
+        // Field-level update so concurrent stock decrements from carts are not overwritten
+        Update update = new Update()
+                .set("name", merchandiseDetails.getName())
+                .set("description", merchandiseDetails.getDescription())
+                .set("price", merchandiseDetails.getPrice())
+                .set("category", merchandiseDetails.getCategory())
+                .set("imageUrl", merchandiseDetails.getImageUrl())
+                .set("bundle", merchandiseDetails.isBundle())
+                .set("bundleMovieId", merchandiseDetails.getBundleMovieId())
+                .set("active", merchandiseDetails.isActive());
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(id)), update, Merchandise.class);
+        eventPublisher.publishEvent(new CatalogChangedEvent("MERCHANDISE"));
         
-        return merchandiseRepository.save(merchandise);
+        // The submitted stock becomes the sellable total: the difference from the current total,
+        // leased hot-SKU units included, is applied atomically. Sales since the form was loaded
+        // are not remembered, so the admin's number wins.
+        if (merchandiseDetails.getStock() != null) {
+            int delta = merchandiseDetails.getStock() - inventoryService.getAvailableStock(id);
+            if (delta != 0) {
+                inventoryService.adjustStock(id, delta);
+            }
+        }
+        
+        return getMerchandiseById(id)
+                .orElseThrow(() -> new RuntimeException("Merchandise not found with id: " + id));
     }
 
     public void deleteMerchandise(String id) {
         merchandiseRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent("MERCHANDISE"));
     }
 
     public Merchandise updateStock(String id, Integer quantity) {
-        Merchandise merchandise = merchandiseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Merchandise not found with id: " + id));
-        
-        merchandise.setStock(merchandise.getStock() + quantity);
-        return merchandiseRepository.save(merchandise);
+        return inventoryService.adjustStock(id, quantity);
     }
 
     public void incrementSalesCount(String id) {
-        Merchandise merchandise = merchandiseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Merchandise not found with id: " + id));
-        
-        merchandise.setSalesCount(merchandise.getSalesCount() + 1);
-        merchandiseRepository.save(merchandise);
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(id)),
+                new Update().inc("salesCount", 1), Merchandise.class);
     }
 }
@@ -0,0 +1,135 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.MovieChangedEvent;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.MovieAvailability;
+import com.example.cinema.managing.system.model.Showtime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link MovieAvailability} aggregate of every movie in memory and in Mongo.
+ * Aggregates are computed by {@link MovieShowtimeSyncService} from the same showtime read that
+ * refreshes the embedded summaries, so they follow showtime and seat changes within one sync
+ * interval. The now-showing list is cached until the next change.
+ */
+@Service
+public class MovieAvailabilityService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.movies.selling-fast-ratio:0.7}")
+    private double sellingFastRatio;
+
+    private final Map<String, MovieAvailability> byMovie = new ConcurrentHashMap<>();
+    private volatile List<String> nowShowingIds = List.of();
+    private volatile List<MovieAvailability> nowShowing;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        mongoTemplate.findAll(MovieAvailability.class).forEach(summary -> byMovie.put(summary.getMovieId(), summary));
+        loadNowShowingIds();
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        loadNowShowingIds();
+    }
+
+    public List<MovieAvailability> getNowShowing() {
+        List<MovieAvailability> cached = nowShowing;
+        if (cached == null) {
+            cached = nowShowingIds.stream()
+                    .map(movieId -> byMovie.getOrDefault(movieId, empty(movieId)))
+                    .toList();
+            nowShowing = cached;
+        }
+        return cached;
+    }
+
+    public MovieAvailability getAvailability(String movieId) {
+        return byMovie.getOrDefault(movieId, empty(movieId));
+    }
+
+    /**
+     * Builds the aggregate from a movie's upcoming active showtimes, sorted by start time.
+     */
+    MovieAvailability summarize(String movieId, List<Showtime> upcoming) {
+        MovieAvailability summary = empty(movieId);
+        LocalDate today = LocalDate.now();
+        for (Showtime showtime : upcoming) {
+            summary.setUpcomingShows(summary.getUpcomingShows() + 1);
+            if (showtime.getShowDateTime().toLocalDate().equals(today)) {
+                summary.setShowsToday(summary.getShowsToday() + 1);
+            }
+            if (summary.getNextShowTime() == null) {
+                summary.setNextShowTime(showtime.getShowDateTime());
+            }
+            if (showtime.getPrice() != null
+                    && (summary.getMinPrice() == null || showtime.getPrice() < summary.getMinPrice())) {
+                summary.setMinPrice(showtime.getPrice());
+            }
+            summary.setSeatsLeft(summary.getSeatsLeft() + (showtime.getAvailableSeats() != null ? showtime.getAvailableSeats() : 0));
+            summary.setTotalSeats(summary.getTotalSeats() + (showtime.getTotalSeats() != null ? showtime.getTotalSeats() : 0));
+        }
+        summary.setSellingFast(summary.getTotalSeats() > 0
+                && summary.getTotalSeats() - summary.getSeatsLeft() >= sellingFastRatio * summary.getTotalSeats());
+        return summary;
+    }
+
+    /**
+     * Stores freshly computed aggregates with one bulk upsert and publishes them to readers.
+     */
+    void update(Collection<MovieAvailability> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MovieAvailability.class);
+        for (MovieAvailability summary : summaries) {
+            operations.upsert(new Query(Criteria.where("movieId").is(summary.getMovieId())), new Update()
+                    .set("minPrice", summary.getMinPrice())
+                    .set("upcomingShows", summary.getUpcomingShows())
+                    .set("showsToday", summary.getShowsToday())
+                    .set("seatsLeft", summary.getSeatsLeft())
+                    .set("totalSeats", summary.getTotalSeats())
+                    .set("nextShowTime", summary.getNextShowTime())
+                    .set("sellingFast", summary.isSellingFast())
+                    .set("updatedAt", summary.getUpdatedAt()));
+        }
+        operations.execute();
+        summaries.forEach(summary -> byMovie.put(summary.getMovieId(), summary));
+        nowShowing = null;
+    }
+
+    private void loadNowShowingIds() {
+        // Same order as /api/movies/now-showing
+        Query query = new Query(Criteria.where("nowShowing").is(true)).with(Sort.by(Sort.Direction.DESC, "bookingCount"));
+        query.fields().include("id");
+        nowShowingIds = mongoTemplate.find(query, Movie.class).stream().map(Movie::getId).toList();
+        nowShowing = null;
+    }
+
+    private static MovieAvailability empty(String movieId) {
+        MovieAvailability summary = new MovieAvailability();
+        summary.setMovieId(movieId);
+        summary.setUpdatedAt(LocalDateTime.now());
+        return summary;
+    }
+}
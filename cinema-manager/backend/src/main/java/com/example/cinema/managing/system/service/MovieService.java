@@ -1,8 +1,10 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.event.MovieChangedEvent;
 import com.example.cinema.managing.system.model.Movie;
 import com.example.cinema.managing.system.repository.MovieRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,6 +16,9 @@ public class MovieService {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Movie> getAllMovies() {
         return movieRepository.findAll();
     }
@@ -55,9 +60,13 @@ public class MovieService {
     }
 
     public Movie createMovie(Movie movie) {
+        // Embedded showtimes are derived by MovieShowtimeSyncService, never taken from the client
+        movie.setShowtimes(List.of());
         movie.setCreatedAt(LocalDateTime.now());
         movie.setUpdatedAt(LocalDateTime.now());
-        return movieRepository.save(movie);
+        Movie saved = movieRepository.save(movie);
+        eventPublisher.publishEvent(new MovieChangedEvent(saved.getId()));
+        return saved;
     }
 
     public Movie updateMovie(String id, Movie movie) {
@@ -69,12 +78,16 @@ public class MovieService {
         movie.setUpdatedAt(LocalDateTime.now());
         movie.setViewCount(existingMovie.getViewCount());
         movie.setBookingCount(existingMovie.getBookingCount());
+        movie.setShowtimes(existingMovie.getShowtimes());
         
-        return movieRepository.save(movie);
+        Movie saved = movieRepository.save(movie);
+        eventPublisher.publishEvent(new MovieChangedEvent(id));
+        return saved;
     }
 
     public void deleteMovie(String id) {
         movieRepository.deleteById(id);
+        eventPublisher.publishEvent(new MovieChangedEvent(id));
     }
 
     public Movie incrementViewCount(String id) {
@@ -0,0 +1,146 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.MovieAvailability;
+import com.example.cinema.managing.system.model.Showtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@link Movie#getShowtimes()} a small, derived summary: the next few upcoming active
+ * showtimes of the movie, copied from the showtimes collection. Listings can show them without a
+ * second query, and the list never grows with the movie's history.
+ * Changes only mark movies dirty; dirty movies are re-synced together every few seconds with one
+ * showtime query and one bulk write. An hourly pass drops shows that have started.
+ * The same read feeds the {@link MovieAvailability} aggregates.
+ */
+@Service
+public class MovieShowtimeSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieShowtimeSyncService.class);
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MovieAvailabilityService movieAvailabilityService;
+
+    @Value("${app.movies.embedded-showtimes:10}")
+    private int embeddedShowtimes;
+
+    private final Set<String> dirtyShowtimes = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyMovies = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onShowtimeChanged(ShowtimeChangedEvent event) {
+        dirtyShowtimes.add(event.getShowtimeId());
+    }
+
+    /**
+     * Marks a movie whose showtimes were changed without an event, e.g. one that was moved to another movie.
+     */
+    public void markDirty(String movieId) {
+        if (movieId != null) {
+            dirtyMovies.add(movieId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.movies.showtime-sync-interval-ms:10000}")
+    public void syncDirty() {
+        Set<String> showtimeIds = drain(dirtyShowtimes);
+        Set<String> movieIds = drain(dirtyMovies);
+        if (!showtimeIds.isEmpty()) {
+            Query query = new Query(Criteria.where("id").in(showtimeIds));
+            query.fields().include("movieId");
+            mongoTemplate.find(query, Showtime.class).forEach(showtime -> movieIds.add(showtime.getMovieId()));
+        }
+        movieIds.remove(null);
+        if (!movieIds.isEmpty()) {
+            sync(movieIds);
+        }
+    }
+
+    /**
+     * Re-syncs every movie: at startup and hourly, so shows that have started drop off the summary.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.movies.showtime-resync-cron:0 5 * * * *}")
+    public void syncAll() {
+        Query query = new Query();
+        query.fields().include("id");
+        List<String> movieIds = mongoTemplate.find(query, Movie.class).stream().map(Movie::getId).toList();
+        for (int from = 0; from < movieIds.size(); from += 500) {
+            sync(movieIds.subList(from, Math.min(movieIds.size(), from + 500)));
+        }
+        logger.info("Synced embedded showtimes of {} movie(s)", movieIds.size());
+    }
+
+    private void sync(Collection<String> movieIds) {
+        Query query = new Query(Criteria.where("movieId").in(movieIds)
+                .and("active").is(true)
+                .and("showDateTime").gt(LocalDateTime.now()))
+                .with(Sort.by("showDateTime"));
+        query.fields().include("id").include("movieId").include("showDateTime").include("format")
+                .include("screenNumber").include("price").include("availableSeats").include("totalSeats");
+
+        Map<String, List<Showtime>> upcoming = new HashMap<>();
+        for (Showtime showtime : mongoTemplate.find(query, Showtime.class)) {
+            upcoming.computeIfAbsent(showtime.getMovieId(), id -> new ArrayList<>()).add(showtime);
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Movie.class);
+        List<MovieAvailability> availability = new ArrayList<>(movieIds.size());
+        for (String movieId : movieIds) {
+            List<Showtime> showtimes = upcoming.getOrDefault(movieId, List.of());
+            List<Movie.Showtime> summary = showtimes.stream()
+                    .limit(embeddedShowtimes)
+                    .map(showtime -> new Movie.Showtime(showtime.getId(),
+                            showtime.getShowDateTime().format(DATE),
+                            showtime.getShowDateTime().format(TIME),
+                            showtime.getFormat(),
+                            showtime.getScreenNumber(),
+                            showtime.getPrice(),
+                            showtime.getAvailableSeats(),
+                            showtime.getTotalSeats()))
+                    .toList();
+            operations.updateOne(new Query(Criteria.where("id").is(movieId)), new Update().set("showtimes", summary));
+            // The availability aggregate comes from the same read
+            availability.add(movieAvailabilityService.summarize(movieId, showtimes));
+        }
+        operations.execute();
+        movieAvailabilityService.update(availability);
+    }
+
+    private static <T> Set<T> drain(Set<T> source) {
+        Set<T> drained = new HashSet<>(source);
+        source.removeAll(drained);
+        return drained;
+    }
+}
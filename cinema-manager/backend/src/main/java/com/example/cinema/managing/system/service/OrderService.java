@@ -0,0 +1,520 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.BookingStatusChangedEvent;
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.BookingFoodItem;
+import com.example.cinema.managing.system.model.BookingMerchandiseItem;
+import com.example.cinema.managing.system.model.Order;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concession orders from booking to seat.
+ * - Confirmed bookings with food or merchandise become orders off the checkout thread; order ids
+ *   are "bookingId:TYPE", so a booking never yields the same order twice.
+ * - Open orders live in memory in one sorted queue per kitchen, earliest show first and then by
+ *   seat, so a kitchen screen is a walk over a skip list and never a query.
+ * - Status changes are applied in memory, pushed to subscribed staff devices over SSE and
+ *   written to Mongo behind, coalesced per order; a version guard drops out-of-order writes.
+ * - Every instance keeps its own queues and polls for orders created or changed elsewhere, so a
+ *   kitchen screen on any backend sees them within {@code app.orders.poll-interval-ms} plus one
+ *   flush. Two devices on different backends can still both start an order in that window; the
+ *   version guard keeps one of the two writes.
+ * - Open orders of shows past the load window are evicted, delivered or not.
+ */
+@Service
+public class OrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
+    private static final List<String> OPEN_STATUSES = List.of("CONFIRMED", "PREPARING");
+
+    private static final Comparator<Order> QUEUE_ORDER = Comparator
+            .comparing(Order::getShowDateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Order::getFirstSeatId, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Order::getId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${app.orders.kitchens:}")
+    private String kitchensByScreen;
+
+    @Value("${app.orders.default-kitchen:MAIN}")
+    private String defaultKitchen;
+
+    @Value("${app.orders.merchandise-station:COUNTER}")
+    private String merchandiseStation;
+
+    @Value("${app.orders.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.orders.load-window-hours:6}")
+    private long loadWindowHours;
+
+    // Must exceed the flush interval: write-behind updates carry the time of the change, not of the write
+    @Value("${app.orders.poll-lookback-seconds:30}")
+    private long pollLookbackSeconds;
+
+    private final Map<String, Order> openOrders = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListSet<Order>> queues = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Order> dirty = new ConcurrentHashMap<>();
+    private final Map<String, String> kitchenByScreen = new HashMap<>();
+
+    private ExecutorService intake;
+    private ExecutorService pushes;
+
+    @PostConstruct
+    public void init() {
+        // screen:kitchen pairs, e.g. "1:NORTH,2:NORTH,3:SOUTH"
+        for (String pair : kitchensByScreen.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length == 2) {
+                kitchenByScreen.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+        intake = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(10_000));
+        pushes = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        intake.shutdown();
+        pushes.shutdown();
+        flush();
+    }
+
+    /**
+     * Reloads the queues with orders still open for shows that have not long finished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenOrders() {
+        Query query = new Query(Criteria.where("status").in(OPEN_STATUSES)
+                .and("showDateTime").gt(LocalDateTime.now().minusHours(loadWindowHours)));
+        List<Order> orders = mongoTemplate.find(query, Order.class);
+        orders.forEach(this::enqueue);
+        logger.info("Loaded {} open concession order(s)", orders.size());
+    }
+
+    @EventListener
+    public void onBookingStatusChanged(BookingStatusChangedEvent event) {
+        try {
+            if ("CONFIRMED".equals(event.getStatus())) {
+                intake.execute(() -> createOrdersForBookings(List.of(event.getBookingId())));
+            } else if ("CANCELLED".equals(event.getStatus())) {
+                intake.execute(() -> cancelOrdersForBooking(event.getBookingId()));
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("Order intake full, booking {} is left to the sweep", event.getBookingId());
+        }
+    }
+
+    /**
+     * Creates the orders of recent confirmed bookings that have none, e.g. after a restart.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.sweep-interval-ms:300000}")
+    public void sweepMissingOrders() {
+        Query query = new Query(Criteria.where("status").is("CONFIRMED")
+                .and("showDate").gt(LocalDateTime.now())
+                .and("bookingDate").gt(LocalDateTime.now().minusDays(1))
+                .orOperator(Criteria.where("foodItems.0").exists(true),
+                        Criteria.where("merchandiseItems.0").exists(true)));
+        query.fields().include("id");
+        List<String> bookingIds = mongoTemplate.find(query, Booking.class).stream().map(Booking::getId).toList();
+        if (bookingIds.isEmpty()) {
+            return;
+        }
+        Set<String> withOrders = new HashSet<>(mongoTemplate.findDistinct(
+                new Query(Criteria.where("bookingId").in(bookingIds)), "bookingId", Order.class, String.class));
+        List<String> missing = bookingIds.stream().filter(id -> !withOrders.contains(id)).toList();
+        if (!missing.isEmpty()) {
+            logger.info("Creating concession orders for {} booking(s) without them", missing.size());
+            createOrdersForBookings(missing);
+        }
+    }
+
+    /**
+     * Picks up orders inserted or changed by other instances. Anything not newer than what this
+     * instance holds (including its own unflushed changes) is ignored.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.poll-interval-ms:2000}")
+    public void pollChanges() {
+        Query query = new Query(Criteria.where("updatedAt").gt(LocalDateTime.now().minusSeconds(pollLookbackSeconds))
+                .and("showDateTime").gt(LocalDateTime.now().minusHours(loadWindowHours)));
+        mongoTemplate.find(query, Order.class).forEach(this::applyStored);
+    }
+
+    /**
+     * Drops open orders of shows that finished long ago; they are never going to be delivered.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.sweep-interval-ms:300000}")
+    public void evictPastOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(loadWindowHours);
+        int evicted = 0;
+        for (Order order : openOrders.values()) {
+            if (order.getShowDateTime() != null && order.getShowDateTime().isBefore(cutoff)
+                    && openOrders.remove(order.getId(), order)) {
+                ConcurrentSkipListSet<Order> queue = queues.get(order.getKitchen());
+                if (queue != null) {
+                    queue.remove(order);
+                }
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Evicted {} open order(s) of past shows from the kitchen queues", evicted);
+        }
+    }
+
+    public List<Order> getKitchenQueue(String kitchen) {
+        ConcurrentSkipListSet<Order> queue = queues.get(kitchen);
+        return queue == null ? List.of() : new ArrayList<>(queue);
+    }
+
+    public List<String> getKitchens() {
+        return new ArrayList<>(queues.keySet());
+    }
+
+    public List<Order> getOrdersByBookingId(String bookingId) {
+        List<Order> orders = new ArrayList<>(orderRepository.findByBookingId(bookingId));
+        // The stored copy may lag behind the in-memory one by one flush
+        orders.replaceAll(order -> openOrders.getOrDefault(order.getId(), order));
+        return orders;
+    }
+
+    /**
+     * Starts the first waiting order of a kitchen, or returns null when nothing is waiting.
+     */
+    public Order startNext(String kitchen) {
+        for (Order order : getKitchenQueue(kitchen)) {
+            if ("CONFIRMED".equals(order.getStatus())) {
+                Order started = transition(order.getId(), "CONFIRMED", "PREPARING");
+                if (started != null) {
+                    return started;
+                }
+            }
+        }
+        return null;
+    }
+
+    public Order startPreparing(String orderId) {
+        return require(transition(orderId, "CONFIRMED", "PREPARING"), orderId);
+    }
+
+    public Order markDelivered(String orderId) {
+        return require(transition(orderId, "PREPARING", "DELIVERED"), orderId);
+    }
+
+    public SseEmitter subscribe(String kitchen) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> kitchenSubscribers = subscribers.computeIfAbsent(kitchen, k -> new CopyOnWriteArrayList<>());
+        kitchenSubscribers.add(emitter);
+        emitter.onCompletion(() -> kitchenSubscribers.remove(emitter));
+        emitter.onTimeout(() -> kitchenSubscribers.remove(emitter));
+        emitter.onError(error -> kitchenSubscribers.remove(emitter));
+        try {
+            // The current queue first, so a screen that reconnects is complete again
+            emitter.send(SseEmitter.event().name("queue").data(getKitchenQueue(kitchen)));
+        } catch (IOException e) {
+            kitchenSubscribers.remove(emitter);
+        }
+        return emitter;
+    }
+
+    /**
+     * Writes the latest state of every changed order in one bulk. An entry is only dropped from
+     * the dirty set if it was not changed again while being written.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Order> batch = new ArrayList<>(dirty.values());
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        for (Order order : batch) {
+            Update update = new Update()
+                    .set("status", order.getStatus())
+                    .set("stateVersion", order.getStateVersion())
+                    .set("updatedAt", order.getUpdatedAt());
+            if (order.getPreparingAt() != null) {
+                update.set("preparingAt", order.getPreparingAt());
+            }
+            if (order.getDeliveryTime() != null) {
+                update.set("deliveryTime", order.getDeliveryTime());
+            }
+            operations.updateOne(new Query(Criteria.where("id").is(order.getId())
+                    .and("stateVersion").lt(order.getStateVersion())), update);
+        }
+        try {
+            operations.execute();
+            batch.forEach(order -> dirty.remove(order.getId(), order));
+        } catch (RuntimeException e) {
+            // Left dirty, retried on the next flush
+            logger.warn("Could not persist {} order state change(s): {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void createOrdersForBookings(List<String> bookingIds) {
+        Query bookingQuery = new Query(Criteria.where("id").in(bookingIds).and("status").is("CONFIRMED"));
+        bookingQuery.fields().include("id").include("userId").include("showtimeId").include("seatIds")
+                .include("seatNumbers").include("foodItems").include("foodDeliveryType")
+                .include("merchandiseItems").include("paymentId");
+        List<Booking> bookings = mongoTemplate.find(bookingQuery, Booking.class);
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        Set<String> showtimeIds = new HashSet<>();
+        bookings.forEach(booking -> showtimeIds.add(booking.getShowtimeId()));
+        Query showtimeQuery = new Query(Criteria.where("id").in(showtimeIds));
+        showtimeQuery.fields().include("id").include("screenNumber").include("showDateTime");
+        Map<String, Showtime> showtimes = new HashMap<>();
+        mongoTemplate.find(showtimeQuery, Showtime.class).forEach(showtime -> showtimes.put(showtime.getId(), showtime));
+
+        List<Order> orders = new ArrayList<>();
+        for (Booking booking : bookings) {
+            Showtime showtime = showtimes.get(booking.getShowtimeId());
+            if (booking.getFoodItems() != null && !booking.getFoodItems().isEmpty()) {
+                Order order = newOrder(booking, showtime, "FOOD");
+                order.setItems(booking.getFoodItems().stream().map(OrderService::foodLine).toList());
+                order.setDeliveryType("COUNTER".equals(booking.getFoodDeliveryType()) ? "COUNTER" : "SEAT");
+                order.setKitchen(kitchenFor(showtime));
+                orders.add(finish(order));
+            }
+            if (booking.getMerchandiseItems() != null && !booking.getMerchandiseItems().isEmpty()) {
+                Order order = newOrder(booking, showtime, "MERCHANDISE");
+                order.setItems(booking.getMerchandiseItems().stream().map(OrderService::merchandiseLine).toList());
+                order.setDeliveryType("COUNTER");
+                order.setKitchen(merchandiseStation);
+                orders.add(finish(order));
+            }
+        }
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        // Orders must survive a restart, so creation is written through, not behind
+        Set<String> existing = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class).insert(orders).execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> existing.add(orders.get(error.getIndex()).getId()));
+        }
+        orders.stream().filter(order -> !existing.contains(order.getId())).forEach(order -> {
+            enqueue(order);
+            push(order);
+        });
+    }
+
+    private void cancelOrdersForBooking(String bookingId) {
+        for (String type : List.of("FOOD", "MERCHANDISE")) {
+            String orderId = bookingId + ":" + type;
+            if (transition(orderId, "CONFIRMED", "CANCELLED") == null) {
+                transition(orderId, "PREPARING", "CANCELLED");
+            }
+        }
+        // Orders no longer in memory (already delivered, or from before a restart window)
+        mongoTemplate.updateMulti(new Query(Criteria.where("bookingId").is(bookingId).and("status").in(OPEN_STATUSES)),
+                new Update().set("status", "CANCELLED").set("updatedAt", LocalDateTime.now()).inc("stateVersion", 1),
+                Order.class);
+    }
+
+    /**
+     * Moves an open order from one status to the next. Returns null if it is not open or not in
+     * the expected status, so two staff devices can't both start the same order.
+     */
+    private Order transition(String orderId, String from, String to) {
+        Order[] changed = new Order[1];
+        openOrders.computeIfPresent(orderId, (id, current) -> {
+            if (!from.equals(current.getStatus())) {
+                return current;
+            }
+            Order next = copy(current);
+            LocalDateTime now = LocalDateTime.now();
+            next.setStatus(to);
+            next.setUpdatedAt(now);
+            next.setStateVersion(current.getStateVersion() + 1);
+            if ("PREPARING".equals(to)) {
+                next.setPreparingAt(now);
+            } else if ("DELIVERED".equals(to)) {
+                next.setDeliveryTime(now);
+            }
+            ConcurrentSkipListSet<Order> queue = queues.get(current.getKitchen());
+            if (queue != null) {
+                queue.remove(current);
+                if (OPEN_STATUSES.contains(to)) {
+                    queue.add(next);
+                }
+            }
+            changed[0] = next;
+            return OPEN_STATUSES.contains(to) ? next : null;
+        });
+
+        Order next = changed[0];
+        if (next != null) {
+            dirty.put(next.getId(), next);
+            push(next);
+        }
+        return next;
+    }
+
+    private void applyStored(Order stored) {
+        Order pending = dirty.get(stored.getId());
+        if (pending != null && pending.getStateVersion() >= stored.getStateVersion()) {
+            return;
+        }
+        boolean open = OPEN_STATUSES.contains(stored.getStatus());
+        Order[] applied = new Order[1];
+        openOrders.compute(stored.getId(), (id, current) -> {
+            if (current == null ? !open : current.getStateVersion() >= stored.getStateVersion()) {
+                return current;
+            }
+            if (stored.getKitchen() == null) {
+                stored.setKitchen(defaultKitchen);
+            }
+            if (current != null) {
+                ConcurrentSkipListSet<Order> queue = queues.get(current.getKitchen());
+                if (queue != null) {
+                    queue.remove(current);
+                }
+            }
+            if (open) {
+                queues.computeIfAbsent(stored.getKitchen(), k -> new ConcurrentSkipListSet<>(QUEUE_ORDER)).add(stored);
+            }
+            applied[0] = stored;
+            return open ? stored : null;
+        });
+        if (applied[0] != null) {
+            push(applied[0]);
+        }
+    }
+
+    private void enqueue(Order order) {
+        String kitchen = order.getKitchen() != null ? order.getKitchen() : defaultKitchen;
+        order.setKitchen(kitchen);
+        openOrders.put(order.getId(), order);
+        queues.computeIfAbsent(kitchen, k -> new ConcurrentSkipListSet<>(QUEUE_ORDER)).add(order);
+    }
+
+    private void push(Order order) {
+        List<SseEmitter> kitchenSubscribers = subscribers.get(order.getKitchen());
+        if (kitchenSubscribers == null || kitchenSubscribers.isEmpty()) {
+            return;
+        }
+        // Sent from one thread so a slow device never holds up a status change
+        pushes.execute(() -> {
+            for (SseEmitter emitter : kitchenSubscribers) {
+                try {
+                    emitter.send(SseEmitter.event().name("order").id(order.getId()).data(order));
+                } catch (IOException | IllegalStateException e) {
+                    kitchenSubscribers.remove(emitter);
+                }
+            }
+        });
+    }
+
+    private String kitchenFor(Showtime showtime) {
+        if (showtime == null || showtime.getScreenNumber() == null) {
+            return defaultKitchen;
+        }
+        return kitchenByScreen.getOrDefault(showtime.getScreenNumber(), defaultKitchen);
+    }
+
+    private static Order newOrder(Booking booking, Showtime showtime, String type) {
+        Order order = new Order();
+        order.setId(booking.getId() + ":" + type);
+        order.setUserId(booking.getUserId());
+        order.setOrderType(type);
+        order.setStatus("CONFIRMED");
+        order.setBookingId(booking.getId());
+        order.setPaymentId(booking.getPaymentId());
+        order.setShowtimeId(booking.getShowtimeId());
+        order.setShowDateTime(showtime != null ? showtime.getShowDateTime() : null);
+        if (booking.getSeatIds() != null && !booking.getSeatIds().isEmpty()) {
+            order.setFirstSeatId(booking.getSeatIds().stream().sorted().findFirst().orElse(null));
+        }
+        if (booking.getSeatNumbers() != null) {
+            order.setSeatNumber(String.join(", ", booking.getSeatNumbers()));
+        }
+        return order;
+    }
+
+    private static Order finish(Order order) {
+        if (!"SEAT".equals(order.getDeliveryType())) {
+            order.setSeatNumber(null);
+        }
+        order.setTotalAmount(order.getItems().stream()
+                .mapToDouble(item -> item.getSubtotal() != null ? item.getSubtotal() : 0.0)
+                .sum());
+        order.setOrderDate(LocalDateTime.now());
+        order.setUpdatedAt(order.getOrderDate());
+        order.setStateVersion(0L);
+        return order;
+    }
+
+    private static Order.OrderItem foodLine(BookingFoodItem item) {
+        return new Order.OrderItem(item.getFoodItemId(), item.getName(), "FOOD", item.getQuantity(),
+                item.getPrice(), item.getSubtotal());
+    }
+
+    private static Order.OrderItem merchandiseLine(BookingMerchandiseItem item) {
+        return new Order.OrderItem(item.getMerchandiseId(), item.getName(), "MERCHANDISE", item.getQuantity(),
+                item.getPrice(), item.getSubtotal());
+    }
+
+    private static Order copy(Order order) {
+        return new Order(order.getId(), order.getUserId(), order.getOrderType(), order.getItems(),
+                order.getTotalAmount(), order.getStatus(), order.getDeliveryType(), order.getSeatNumber(),
+                order.getBookingId(), order.getShowtimeId(), order.getShowDateTime(), order.getKitchen(),
+                order.getFirstSeatId(), order.getPaymentId(), order.getOrderDate(), order.getDeliveryTime(),
+                order.getPreparingAt(), order.getUpdatedAt(), order.getStateVersion());
+    }
+
+    private static Order require(Order order, String orderId) {
+        if (order == null) {
+            throw new RuntimeException("Order " + orderId + " is not open or not in the expected status");
+        }
+        return order;
+    }
+}
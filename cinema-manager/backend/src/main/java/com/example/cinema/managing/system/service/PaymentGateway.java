@@ -0,0 +1,24 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.PaymentIntentResult;
+import com.stripe.exception.StripeException;
+
+import java.util.Map;
+
+/**
+ * Blocking calls to the card payment provider.
+ * Callers should go through {@link AsyncPaymentGateway}, which runs these off the request
+ * thread with timeouts, a bulkhead and a circuit breaker.
+ */
+public interface PaymentGateway {
+
+    PaymentIntentResult createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata)
+            throws StripeException;
+
+    PaymentIntentResult retrievePaymentIntent(String paymentIntentId) throws StripeException;
+
+    /**
+     * @return the provider's refund status, e.g. "succeeded" or "pending"
+     */
+    String refund(String paymentIntentId, String idempotencyKey) throws StripeException;
+}
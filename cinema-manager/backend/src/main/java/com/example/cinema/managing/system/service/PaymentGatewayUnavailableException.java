@@ -0,0 +1,16 @@
+package com.example.cinema.managing.system.service;
+
+/**
+ * Thrown when the payment provider is not called at all (circuit open, bulkhead full)
+ * or did not answer in time. The operation is safe to retry later.
+ */
+public class PaymentGatewayUnavailableException extends RuntimeException {
+
+    public PaymentGatewayUnavailableException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
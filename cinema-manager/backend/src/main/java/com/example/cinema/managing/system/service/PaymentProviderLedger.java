@@ -0,0 +1,26 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ProviderTransaction;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Read-only view of what the payment provider recorded, used by {@link PaymentReconciliationService}.
+ */
+public interface PaymentProviderLedger {
+
+    String getName();
+
+    /**
+     * False when the ledger cannot be read at all; reconciliation is skipped rather than treating
+     * every payment as unknown to the provider.
+     */
+    boolean isAvailable();
+
+    /**
+     * Looks up one page of transactions. Ids the provider does not know are absent from the result.
+     */
+    Map<String, ProviderTransaction> findTransactions(Collection<String> transactionIds) throws IOException;
+}
@@ -0,0 +1,317 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ProviderTransaction;
+import com.example.cinema.managing.system.model.Payment;
+import com.example.cinema.managing.system.model.ReconciliationDiscrepancy;
+import com.example.cinema.managing.system.model.ReconciliationReport;
+import com.example.cinema.managing.system.repository.PaymentRepository;
+import com.example.cinema.managing.system.repository.ReconciliationReportRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Compares local {@link Payment} rows with the provider's ledger and repairs what it safely can.
+ * Payments are streamed by date window and checked a page at a time, so memory stays flat however
+ * long the window is. Statuses only move the way the provider would move them
+ * (PENDING -> anything, FAILED -> SUCCESS/REFUNDED, SUCCESS -> REFUNDED). Anything else is
+ * written to the report for a human. PENDING rows older than the stale threshold that never
+ * completed at the provider are failed, so abandoned checkouts stop looking open. Payments settled
+ * to SUCCESS here confirm their booking the same way the webhook does. {@code reported} counts
+ * payments, not findings. Scheduled and manual runs hold a {@link JobLeaseService} lease, renewed
+ * per page, so one node reconciles at a time.
+ */
+@Service
+public class PaymentReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final String JOB = "payment-reconciliation";
+
+    private static final Map<String, Set<String>> FORWARD_TRANSITIONS = Map.of(
+            "PENDING", Set.of("SUCCESS", "FAILED", "REFUNDED"),
+            "FAILED", Set.of("SUCCESS", "REFUNDED"),
+            "SUCCESS", Set.of("REFUNDED"));
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ReconciliationReportRepository reportRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PaymentProviderLedger ledger;
+
+    @Autowired
+    private StripeWebhookService webhookService;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Value("${app.payments.reconciliation.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.payments.reconciliation.lookback-days:3}")
+    private long lookbackDays;
+
+    @Value("${app.payments.reconciliation.settle-minutes:30}")
+    private long settleMinutes;
+
+    @Value("${app.payments.reconciliation.stale-pending-minutes:60}")
+    private long stalePendingMinutes;
+
+    @Value("${app.payments.reconciliation.max-report-entries:1000}")
+    private int maxReportEntries;
+
+    @Value("${app.payments.reconciliation.lease-seconds:600}")
+    private long leaseSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService manualRuns = Executors.newSingleThreadExecutor();
+
+    @PreDestroy
+    public void shutdown() {
+        manualRuns.shutdownNow();
+    }
+
+    /**
+     * Nightly pass over the last few days. Windows overlap on purpose: late refunds and
+     * disputes change payments that were already reconciled once.
+     */
+    @Scheduled(cron = "${app.payments.reconciliation.cron:0 30 3 * * *}")
+    public void reconcileRecent() {
+        LocalDateTime end = LocalDateTime.now().minusMinutes(settleMinutes);
+        runLeased(end.minusDays(lookbackDays), end);
+    }
+
+    /**
+     * Runs a reconciliation of the given window in the background. Returns false if one is already
+     * running here or on another node.
+     */
+    public boolean startReconciliation(LocalDateTime from, LocalDateTime to) {
+        if (running.get() || !jobLeaseService.tryAcquire(JOB, lease())) {
+            return false;
+        }
+        manualRuns.execute(() -> runLeased(from, to));
+        return true;
+    }
+
+    private void runLeased(LocalDateTime from, LocalDateTime to) {
+        jobLeaseService.runExclusively(JOB, lease(), () -> {
+            ReconciliationReport report = reconcile(from, to);
+            return report == null ? "SKIPPED" : report.getStatus();
+        });
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    public List<ReconciliationReport> getRecentReports() {
+        return reportRepository.findTop20ByOrderByStartedAtDesc();
+    }
+
+    public ReconciliationReport reconcile(LocalDateTime from, LocalDateTime to) {
+        ReconciliationReport report = new ReconciliationReport();
+        report.setLedger(ledger.getName());
+        report.setWindowStart(from);
+        report.setWindowEnd(to);
+
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Payment reconciliation already running, skipping {} - {}", from, to);
+            return null;
+        }
+        try {
+            if (!ledger.isAvailable()) {
+                report.setStatus("SKIPPED");
+                report.setError("Provider ledger " + ledger.getName() + " is not available");
+                logger.warn("Skipping payment reconciliation: {}", report.getError());
+                return save(report);
+            }
+
+            LocalDateTime staleCutoff = LocalDateTime.now().minusMinutes(stalePendingMinutes);
+            List<Payment> page = new ArrayList<>(pageSize);
+            try (Stream<Payment> payments = paymentRepository.streamByPaymentDateBetween(from, to)) {
+                var iterator = payments.iterator();
+                while (iterator.hasNext()) {
+                    page.add(iterator.next());
+                    if (page.size() == pageSize) {
+                        // Renews our lease; fails only if it expired and another node took over
+                        if (!jobLeaseService.tryAcquire(JOB, lease())) {
+                            throw new RuntimeException("Lost the reconciliation lease");
+                        }
+                        reconcilePage(page, staleCutoff, report);
+                        page.clear();
+                    }
+                }
+            }
+            if (!page.isEmpty()) {
+                reconcilePage(page, staleCutoff, report);
+            }
+
+            report.setStatus("COMPLETED");
+            logger.info("Reconciled {} payment(s) {} - {}: {} corrected, {} reported",
+                    report.getScanned(), from, to, report.getCorrected(), report.getReported());
+        } catch (IOException | RuntimeException e) {
+            report.setStatus("FAILED");
+            report.setError(e.getMessage());
+            logger.error("Payment reconciliation {} - {} failed after {} payment(s)", from, to, report.getScanned(), e);
+        } finally {
+            running.set(false);
+        }
+        return save(report);
+    }
+
+    private void reconcilePage(List<Payment> page, LocalDateTime staleCutoff, ReconciliationReport report)
+            throws IOException {
+        List<String> providerIds = page.stream()
+                .map(Payment::getTransactionId)
+                .filter(PaymentReconciliationService::isProviderPayment)
+                .toList();
+        Map<String, ProviderTransaction> providerView = providerIds.isEmpty()
+                ? Map.of() : ledger.findTransactions(providerIds);
+
+        BulkOperations corrections = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Payment.class);
+        int pendingCorrections = 0;
+        List<String> settled = new ArrayList<>();
+
+        for (Payment payment : page) {
+            report.setScanned(report.getScanned() + 1);
+            boolean stale = "PENDING".equals(payment.getStatus())
+                    && payment.getPaymentDate() != null && payment.getPaymentDate().isBefore(staleCutoff);
+
+            if (!isProviderPayment(payment.getTransactionId())) {
+                // Never reached the provider: only an abandoned checkout needs attention
+                if (stale) {
+                    pendingCorrections += correct(corrections, payment, "FAILED", "ABANDONED", null, report);
+                } else {
+                    report.setMatched(report.getMatched() + 1);
+                }
+                continue;
+            }
+
+            report.setCheckedWithProvider(report.getCheckedWithProvider() + 1);
+            ProviderTransaction transaction = providerView.get(payment.getTransactionId());
+            if (transaction == null) {
+                if (stale) {
+                    pendingCorrections += correct(corrections, payment, "FAILED", "ABANDONED", null, report);
+                } else if (!"PENDING".equals(payment.getStatus()) && !"FAILED".equals(payment.getStatus())) {
+                    record(report, payment, null, "MISSING_AT_PROVIDER", "REPORTED");
+                } else {
+                    report.setMatched(report.getMatched() + 1);
+                }
+                continue;
+            }
+
+            boolean amountMismatch = transaction.getAmountInCents() != null && payment.getAmount() != null
+                    && Math.round(payment.getAmount() * 100) != transaction.getAmountInCents();
+            if (amountMismatch) {
+                record(report, payment, transaction, "AMOUNT_MISMATCH", "REPORTED");
+            }
+
+            String providerStatus = transaction.getStatus();
+            if (providerStatus.equals(payment.getStatus())) {
+                if (stale) {
+                    // Intent still open at the provider long after checkout: the customer walked away
+                    pendingCorrections += correct(corrections, payment, "FAILED", "ABANDONED", transaction, report);
+                } else if (!amountMismatch) {
+                    report.setMatched(report.getMatched() + 1);
+                }
+            } else if (FORWARD_TRANSITIONS.getOrDefault(payment.getStatus(), Set.of()).contains(providerStatus)
+                    && !(amountMismatch && "SUCCESS".equals(providerStatus))) {
+                // A success for a different amount is never settled here, only reported
+                pendingCorrections += correct(corrections, payment, providerStatus, "STATUS_MISMATCH", transaction, report);
+                if ("SUCCESS".equals(providerStatus)) {
+                    settled.add(payment.getId());
+                }
+            } else if (!"PENDING".equals(providerStatus)) {
+                // Already counted once if the amount was off too
+                record(report, payment, transaction, "STATUS_MISMATCH", "REPORTED", !amountMismatch);
+            } else if (!amountMismatch) {
+                report.setMatched(report.getMatched() + 1);
+            }
+        }
+
+        if (pendingCorrections > 0) {
+            corrections.execute();
+        }
+        if (!settled.isEmpty()) {
+            // Re-read so only corrections that won the status guard confirm a booking
+            Query succeeded = new Query(Criteria.where("id").in(settled).and("status").is("SUCCESS"));
+            mongoTemplate.find(succeeded, Payment.class).forEach(webhookService::linkBooking);
+        }
+    }
+
+    private int correct(BulkOperations corrections, Payment payment, String newStatus, String type,
+                        ProviderTransaction transaction, ReconciliationReport report) {
+        // Guard on the status we read, so a webhook that got there first wins
+        Query query = new Query(Criteria.where("id").is(payment.getId()).and("status").is(payment.getStatus()));
+        Update update = new Update().set("status", newStatus);
+        if ("SUCCESS".equals(newStatus) && isProviderPayment(payment.getTransactionId())) {
+            update.set("paymentMethod", "CARD");
+        }
+        corrections.updateOne(query, update);
+        record(report, payment, transaction, type, "CORRECTED");
+        return 1;
+    }
+
+    private void record(ReconciliationReport report, Payment payment, ProviderTransaction transaction,
+                        String type, String action) {
+        record(report, payment, transaction, type, action, true);
+    }
+
+    private void record(ReconciliationReport report, Payment payment, ProviderTransaction transaction,
+                        String type, String action, boolean countPayment) {
+        if ("CORRECTED".equals(action)) {
+            report.setCorrected(report.getCorrected() + 1);
+        } else if (countPayment) {
+            report.setReported(report.getReported() + 1);
+        }
+        report.getDiscrepanciesByType().merge(type, 1L, Long::sum);
+        if (report.getDiscrepancies().size() < maxReportEntries) {
+            report.getDiscrepancies().add(new ReconciliationDiscrepancy(
+                    payment.getId(),
+                    payment.getTransactionId(),
+                    type,
+                    payment.getStatus(),
+                    transaction != null ? transaction.getStatus() : null,
+                    payment.getAmount(),
+                    transaction != null && transaction.getAmountInCents() != null
+                            ? transaction.getAmountInCents() / 100.0 : null,
+                    action));
+        }
+    }
+
+    private ReconciliationReport save(ReconciliationReport report) {
+        report.setCompletedAt(LocalDateTime.now());
+        return reportRepository.save(report);
+    }
+
+    private static boolean isProviderPayment(String transactionId) {
+        return transactionId != null && transactionId.startsWith("pi_");
+    }
+}
@@ -2,12 +2,11 @@ package com.example.cinema.managing.system.service;
 
 import com.example.cinema.managing.system.model.Payment;
 import com.example.cinema.managing.system.repository.PaymentRepository;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
-import com.stripe.model.Refund;
-import com.stripe.param.PaymentIntentCreateParams;
-import com.stripe.param.RefundCreateParams;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -15,6 +14,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class PaymentService {
@@ -22,32 +23,30 @@ public class PaymentService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AsyncPaymentGateway asyncPaymentGateway;
+
+    @Autowired
+    private StripeWebhookService stripeWebhookService;
+
     /**
      * Create a Stripe Payment Intent
      * This generates a client secret that the frontend uses to complete payment
      */
-    public Map<String, String> createPaymentIntent(Double amount, String currency, String userId) throws StripeException {
+    public CompletableFuture<Map<String, String>> createPaymentIntent(Double amount, String currency, String userId) {
         // Convert amount to cents (Stripe uses smallest currency unit)
-        long amountInCents = (long) (amount * 100);
-
-        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                .setAmount(amountInCents)
-                .setCurrency(currency.toLowerCase())
-                .putMetadata("userId", userId)
-                .setAutomaticPaymentMethods(
-                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                .setEnabled(true)
-                                .build()
-                )
-                .build();
-
-        PaymentIntent intent = PaymentIntent.create(params);
-
-        Map<String, String> response = new HashMap<>();
-        response.put("clientSecret", intent.getClientSecret());
-        response.put("paymentIntentId", intent.getId());
-
-        return response;
+        long amountInCents = Math.round(amount * 100);
+
+        return asyncPaymentGateway.createPaymentIntent(amountInCents, currency, Map.of("userId", userId))
+                .thenApply(intent -> {
+                    Map<String, String> response = new HashMap<>();
+                    response.put("clientSecret", intent.getClientSecret());
+                    response.put("paymentIntentId", intent.getId());
+                    return response;
+                });
     }
 
     public Payment createPayment(Payment payment) {
@@ -57,35 +56,91 @@ public class PaymentService {
         return paymentRepository.save(payment);
     }
 
-    public Payment processStripePayment(String paymentId, String paymentIntentId) throws StripeException {
+    public CompletableFuture<Payment> processStripePayment(String paymentId, String paymentIntentId, String callerId) {
         Payment payment = paymentRepository.findById(paymentId)
+                .filter(found -> callerId != null && callerId.equals(found.getUserId()))
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        // Retrieve the payment intent from Stripe to verify
-        PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId);
-
-        if ("succeeded".equals(intent.getStatus())) {
-            payment.setPaymentMethod("CARD");
-            payment.setStatus("SUCCESS");
-            payment.setTransactionId(paymentIntentId);
-            payment.setPaymentDate(LocalDateTime.now());
-        } else {
-            payment.setStatus("FAILED");
+        if (stripeWebhookService.isEnabled()) {
+            // Stripe tells us the outcome by webhook: just link the intent and apply anything already received
+            if (!linkIntent(paymentId, paymentIntentId)) {
+                return CompletableFuture.completedFuture(requireLinkedTo(payment, paymentIntentId));
+            }
+            stripeWebhookService.applyUnmatchedEvents(paymentIntentId);
+            return CompletableFuture.completedFuture(getPaymentById(paymentId));
+        }
+        if (!linkIntent(paymentId, paymentIntentId)) {
+            return CompletableFuture.completedFuture(requireLinkedTo(payment, paymentIntentId));
         }
 
-        return paymentRepository.save(payment);
+        // No webhook configured: retrieve the payment intent from Stripe to verify
+        return asyncPaymentGateway.retrievePaymentIntent(paymentIntentId)
+                .thenApply(intent -> {
+                    // Only a payment still PENDING against this intent moves; a webhook or reconciliation may have got there first
+                    Query pending = new Query(Criteria.where("id").is(paymentId)
+                            .and("status").is("PENDING").and("transactionId").is(paymentIntentId));
+                    if ("succeeded".equals(intent.getStatus())
+                            && StripeWebhookService.amountMatches(payment, intent.getAmountInCents())) {
+                        mongoTemplate.updateFirst(pending, new Update()
+                                .set("status", "SUCCESS")
+                                .set("paymentMethod", "CARD")
+                                .set("paymentDate", LocalDateTime.now()), Payment.class);
+                    } else {
+                        mongoTemplate.updateFirst(pending, new Update().set("status", "FAILED"), Payment.class);
+                    }
+                    return getPaymentById(paymentId);
+                })
+                .exceptionally(error -> {
+                    if (!(unwrap(error) instanceof PaymentGatewayUnavailableException)) {
+                        throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                    }
+                    // Provider unreachable: the payment stays PENDING against the intent so it can be settled later
+                    return getPaymentById(paymentId);
+                });
+    }
+
+    /**
+     * Sets only the card fields, so a status a webhook or reconciliation has written meanwhile
+     * is never overwritten with the copy loaded before. Only a PENDING payment that carries no intent
+     * yet (just its local TXN id) or this same intent can be linked: a settled payment keeps the
+     * intent it was paid and would be refunded with.
+     */
+    private boolean linkIntent(String paymentId, String paymentIntentId) {
+        Criteria unlinked = new Criteria().orOperator(
+                Criteria.where("transactionId").is(null),
+                Criteria.where("transactionId").not().regex("^pi_"),
+                Criteria.where("transactionId").is(paymentIntentId));
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("id").is(paymentId).and("status").is("PENDING"), unlinked));
+        return mongoTemplate.updateFirst(query,
+                new Update().set("paymentMethod", "CARD").set("transactionId", paymentIntentId), Payment.class)
+                .getMatchedCount() > 0;
+    }
+
+    // A repeated call for an already settled payment just reports it; any other intent is refused
+    private Payment requireLinkedTo(Payment payment, String paymentIntentId) {
+        Payment current = getPaymentById(payment.getId());
+        if (!paymentIntentId.equals(current.getTransactionId())) {
+            throw new RuntimeException("Payment is already linked to a different payment");
+        }
+        return current;
     }
 
     public Payment processPayment(String paymentId, String paymentMethod) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-        // For non-card payments (UPI, Wallet)
-        payment.setPaymentMethod(paymentMethod);
-        payment.setStatus("SUCCESS");
-        payment.setPaymentDate(LocalDateTime.now());
-
-        return paymentRepository.save(payment);
+        // For non-card payments (UPI, Wallet); a settled or refunded payment is left as it is
+        boolean updated = mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(paymentId).and("status").in("PENDING", "FAILED")),
+                new Update().set("paymentMethod", paymentMethod)
+                        .set("status", "SUCCESS")
+                        .set("paymentDate", LocalDateTime.now()),
+                Payment.class).getMatchedCount() > 0;
+        if (!updated) {
+            throw new RuntimeException("Payment is already " + payment.getStatus());
+        }
+        return getPaymentById(paymentId);
     }
 
     public Payment getPaymentById(String id) {
@@ -101,7 +156,7 @@ public class PaymentService {
         return paymentRepository.findByBookingId(bookingId);
     }
 
-    public Payment refundPayment(String paymentId) throws StripeException {
+    public CompletableFuture<Payment> refundPayment(String paymentId) {
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
@@ -111,21 +166,30 @@ public class PaymentService {
 
         // If it's a Stripe payment, process refund through Stripe
         if ("CARD".equals(payment.getPaymentMethod()) && payment.getTransactionId().startsWith("pi_")) {
-            RefundCreateParams params = RefundCreateParams.builder()
-                    .setPaymentIntent(payment.getTransactionId())
-                    .build();
+            // Idempotency key makes retries after a timeout safe
+            return asyncPaymentGateway.refund(payment.getTransactionId(), "refund-" + payment.getId())
+                    .thenApply(refundStatus -> {
+                        if ("succeeded".equals(refundStatus)) {
+                            markRefunded(paymentId);
+                        }
+                        // A pending refund is settled by the charge.refunded webhook
+                        return getPaymentById(paymentId);
+                    });
+        }
 
-            Refund refund = Refund.create(params);
+        // For other payment methods, just mark as refunded
+        markRefunded(paymentId);
+        return CompletableFuture.completedFuture(getPaymentById(paymentId));
+    }
 
-            if ("succeeded".equals(refund.getStatus())) {
-                payment.setStatus("REFUNDED");
-            }
-        } else {
-            // For other payment methods, just mark as refunded
-            payment.setStatus("REFUNDED");
-        }
+    // Guarded on SUCCESS, so a status written by the webhook inbox or reconciliation meanwhile is kept
+    private void markRefunded(String paymentId) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(paymentId).and("status").is("SUCCESS")),
+                new Update().set("status", "REFUNDED"), Payment.class);
+    }
 
-        return paymentRepository.save(payment);
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     private String generateTransactionId() {
@@ -0,0 +1,266 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.PriceQuote;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.event.SystemConfigChangedEvent;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.SystemConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Yield management: a price multiplier per showtime from its occupancy, the time left before it
+ * starts and its format, following the tiers in {@link SystemConfig#DYNAMIC_PRICING_RULES}.
+ * Rules are compiled once per config change into sorted threshold arrays. Multipliers are kept in
+ * an in-memory price table that is refreshed on a schedule and whenever a booking moves a show's
+ * occupancy, so a price lookup on the booking path is a map read. Stored seat prices never change;
+ * readers multiply them by the quote.
+ */
+@Service
+public class PricingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingEngine.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Value("${app.pricing.dynamic.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.pricing.horizon-days:14}")
+    private long horizonDays;
+
+    private final Map<String, PriceQuote> priceTable = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong rulesVersions = new AtomicLong();
+    private volatile Rules rules = Rules.NEUTRAL;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        compileRules();
+        refresh();
+    }
+
+    /**
+     * The quote for a showtime the caller has already loaded; computed from it on a table miss.
+     */
+    public PriceQuote quote(Showtime showtime) {
+        PriceQuote quote = priceTable.get(showtime.getId());
+        return quote != null ? quote : publish(showtime);
+    }
+
+    public PriceQuote quote(String showtimeId) {
+        PriceQuote quote = priceTable.get(showtimeId);
+        if (quote != null) {
+            return quote;
+        }
+        Showtime showtime = mongoTemplate.findOne(pricingInputs(Criteria.where("id").is(showtimeId)), Showtime.class);
+        if (showtime == null) {
+            return new PriceQuote(showtimeId, 0, 0, 1.0, 0, LocalDateTime.now());
+        }
+        return publish(showtime);
+    }
+
+    /**
+     * Re-prices a showtime from a fresh copy of its seat counters, e.g. the document returned by
+     * the update that booked or released its seats.
+     */
+    public PriceQuote onOccupancyChanged(Showtime showtime) {
+        return showtime == null ? null : publish(showtime);
+    }
+
+    /**
+     * Recomputes every active showtime within the horizon in one query and drops shows that have started.
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.refresh-interval-ms:60000}", initialDelayString = "${app.pricing.refresh-interval-ms:60000}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Showtime> showtimes = mongoTemplate.find(pricingInputs(Criteria.where("active").is(true)
+                .and("showDateTime").gt(now).lte(now.plusDays(horizonDays))), Showtime.class);
+
+        Set<String> live = new HashSet<>();
+        for (Showtime showtime : showtimes) {
+            publish(showtime);
+            live.add(showtime.getId());
+        }
+        // Shows outside the horizon are priced on demand and re-read on the next miss
+        priceTable.keySet().retainAll(live);
+        logger.debug("Price table refreshed for {} showtime(s)", live.size());
+    }
+
+    @EventListener
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        if (SystemConfig.DYNAMIC_PRICING_RULES.equals(event.getConfigKey()) || event.getConfigKey() == null) {
+            compileRules();
+            refresh();
+        }
+    }
+
+    @EventListener
+    public void onShowtimeChanged(ShowtimeChangedEvent event) {
+        if ("SEATS".equals(event.getReason())) {
+            // Bookings hand their new counters to onOccupancyChanged directly
+            return;
+        }
+        // Format, start time or seat count may have changed; the next read recomputes it
+        priceTable.remove(event.getShowtimeId());
+    }
+
+    private PriceQuote publish(Showtime showtime) {
+        Rules current = rules;
+        double occupancy = occupancy(showtime);
+        double multiplier = enabled ? current.multiplier(occupancy, hoursToShow(showtime), showtime.getFormat()) : 1.0;
+        LocalDateTime now = LocalDateTime.now();
+        return priceTable.compute(showtime.getId(), (id, previous) -> {
+            // Version only moves when the price does, so clients can tell a stale quote
+            long version = previous != null && previous.getMultiplier() == multiplier
+                    ? previous.getVersion() : versions.incrementAndGet();
+            return new PriceQuote(id, version, current.version, multiplier, occupancy, now);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compileRules() {
+        Object configured = systemConfigService.getConfigValue(SystemConfig.DYNAMIC_PRICING_RULES, null);
+        if (!(configured instanceof Map<?, ?> config)) {
+            rules = Rules.NEUTRAL;
+            return;
+        }
+        try {
+            Map<String, Object> formats = config.get("formats") instanceof Map<?, ?> map
+                    ? (Map<String, Object>) map : Map.of();
+            Map<String, Double> formatMultipliers = new HashMap<>();
+            formats.forEach((format, value) -> formatMultipliers.put(format, ((Number) value).doubleValue()));
+
+            rules = new Rules(rulesVersions.incrementAndGet(),
+                    Tiers.compile(config.get("occupancy")),
+                    Tiers.compile(config.get("hoursToShow")),
+                    formatMultipliers,
+                    number(config.get("minMultiplier"), 0.0),
+                    number(config.get("maxMultiplier"), Double.MAX_VALUE));
+            logger.info("Compiled dynamic pricing rules, version {}", rules.version);
+        } catch (RuntimeException e) {
+            // A bad edit must not take pricing down; keep selling at the last good rules
+            logger.error("Ignoring invalid {} config: {}", SystemConfig.DYNAMIC_PRICING_RULES, e.getMessage());
+        }
+    }
+
+    private static Query pricingInputs(Criteria criteria) {
+        Query query = new Query(criteria);
+        query.fields().include("id").include("showDateTime").include("totalSeats")
+                .include("availableSeats").include("format");
+        return query;
+    }
+
+    private static double occupancy(Showtime showtime) {
+        Integer total = showtime.getTotalSeats();
+        Integer available = showtime.getAvailableSeats();
+        if (total == null || total <= 0 || available == null) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, (total - available) / (double) total));
+    }
+
+    private static double hoursToShow(Showtime showtime) {
+        if (showtime.getShowDateTime() == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(LocalDateTime.now(), showtime.getShowDateTime()).toMinutes() / 60.0);
+    }
+
+    private static double number(Object value, double defaultValue) {
+        return value instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+
+    private static class Rules {
+        private static final Rules NEUTRAL = new Rules(0, Tiers.NONE, Tiers.NONE, Map.of(), 0.0, Double.MAX_VALUE);
+
+        private final long version;
+        private final Tiers occupancy;
+        private final Tiers hoursToShow;
+        private final Map<String, Double> formats;
+        private final double min;
+        private final double max;
+
+        private Rules(long version, Tiers occupancy, Tiers hoursToShow, Map<String, Double> formats,
+                      double min, double max) {
+            this.version = version;
+            this.occupancy = occupancy;
+            this.hoursToShow = hoursToShow;
+            this.formats = formats;
+            this.min = min;
+            this.max = max;
+        }
+
+        private double multiplier(double occupancy, double hoursToShow, String format) {
+            double multiplier = this.occupancy.lookup(occupancy) * this.hoursToShow.lookup(hoursToShow)
+                    * (format != null ? formats.getOrDefault(format, 1.0) : 1.0);
+            multiplier = Math.max(min, Math.min(max, multiplier));
+            return Math.round(multiplier * 10_000) / 10_000.0;
+        }
+    }
+
+    /**
+     * Step function over ascending thresholds: the tier with the highest {@code from} not above
+     * the input applies, inputs below the first tier get 1.0.
+     */
+    private static class Tiers {
+        private static final Tiers NONE = new Tiers(new double[0], new double[0]);
+
+        private final double[] from;
+        private final double[] multipliers;
+
+        private Tiers(double[] from, double[] multipliers) {
+            this.from = from;
+            this.multipliers = multipliers;
+        }
+
+        private static Tiers compile(Object config) {
+            if (!(config instanceof List<?> list) || list.isEmpty()) {
+                return NONE;
+            }
+            double[][] tiers = list.stream()
+                    .map(entry -> (Map<?, ?>) entry)
+                    .map(entry -> new double[]{
+                            ((Number) entry.get("from")).doubleValue(),
+                            ((Number) entry.get("multiplier")).doubleValue()})
+                    .sorted((a, b) -> Double.compare(a[0], b[0]))
+                    .toArray(double[][]::new);
+            return new Tiers(
+                    Arrays.stream(tiers).mapToDouble(tier -> tier[0]).toArray(),
+                    Arrays.stream(tiers).mapToDouble(tier -> tier[1]).toArray());
+        }
+
+        private double lookup(double value) {
+            int index = Arrays.binarySearch(from, value);
+            if (index < 0) {
+                // Insertion point minus one is the last threshold below the value
+                index = -index - 2;
+            }
+            return index < 0 ? 1.0 : multipliers[index];
+        }
+    }
+}
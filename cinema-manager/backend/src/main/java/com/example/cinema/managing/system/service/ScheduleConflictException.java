@@ -0,0 +1,11 @@
+package com.example.cinema.managing.system.service;
+
+/**
+ * Thrown when a showtime would overlap another show on the same screen, cleaning time included.
+ */
+public class ScheduleConflictException extends RuntimeException {
+
+    public ScheduleConflictException(String message) {
+        super(message);
+    }
+}
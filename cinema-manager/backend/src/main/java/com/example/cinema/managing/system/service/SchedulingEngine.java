@@ -0,0 +1,401 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ScheduleResult;
+import com.example.cinema.managing.system.dto.WeekScheduleRequest;
+import com.example.cinema.managing.system.event.MovieChangedEvent;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.Seat;
+import com.example.cinema.managing.system.model.Showtime;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps screens free of overlapping shows. A show occupies its screen from its start until the
+ * movie's duration plus a cleaning buffer has passed.
+ * Every check reads the screens it touches from Mongo (one query on {@code screenNumber,
+ * showDateTime}), so showtimes written by other instances are always seen. Reservations made here
+ * but not written yet are kept in memory and added to what was read, until the showtime's CREATED,
+ * UPDATED or CANCELLED event (or a release) says Mongo has the final word again.
+ * The intervals of a screen are sorted by start time (then showtime id, so shows starting together
+ * are all kept). Overlaps from before this check existed are read as they are, so a new interval is
+ * compared with every interval starting before its end, walking back only as far as the longest
+ * interval read could reach.
+ * Two instances checking the same screen at the same moment can still both accept; the window is
+ * the time between the read and the insert.
+ */
+@Service
+public class SchedulingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulingEngine.class);
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Reservations outlive their write only if something failed between the write and its event
+    private static final Duration IN_FLIGHT_TTL = Duration.ofMinutes(5);
+
+    private static final Set<String> WRITTEN_REASONS = Set.of("CREATED", "UPDATED", "CANCELLED");
+
+    private static final Comparator<Slot> BY_START = Comparator.comparing((Slot slot) -> slot.start)
+            .thenComparing(slot -> slot.showtimeId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatLayoutService seatLayoutService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.scheduling.cleaning-buffer-minutes:20}")
+    private long cleaningBufferMinutes;
+
+    @Value("${app.scheduling.default-duration-minutes:120}")
+    private long defaultDurationMinutes;
+
+    @Value("${app.scheduling.max-days:31}")
+    private int maxDays;
+
+    // All guarded by this
+    private final Map<String, Slot> inFlight = new HashMap<>(); // reserved here, not known to be written yet
+    private final Map<String, Long> durations = new HashMap<>(); // minutes, by movie id
+
+    /**
+     * Claims the showtime's interval on its screen, replacing any interval the showtime held before.
+     *
+     * @throws ScheduleConflictException if another show is on the screen at that time
+     */
+    public synchronized void reserve(Showtime showtime) {
+        if (showtime.getId() == null || showtime.getScreenNumber() == null || showtime.getShowDateTime() == null) {
+            throw new RuntimeException("Showtime needs an id, a screen and a start time");
+        }
+        loadDurations(List.of(showtime.getMovieId()));
+        if (!durations.containsKey(showtime.getMovieId())) {
+            throw new RuntimeException("Movie not found");
+        }
+
+        Slot slot = slotFor(showtime);
+        // The showtime's own current interval is left out, so moving a show never conflicts with itself
+        ScreenIndex index = load(Set.of(slot.screen), slot.start, slot.end, Set.of(showtime.getId()));
+        Slot conflict = index.conflictWith(slot);
+        if (conflict != null) {
+            throw new ScheduleConflictException(describe(slot, conflict));
+        }
+        inFlight.put(slot.showtimeId, slot);
+    }
+
+    public synchronized void release(String showtimeId) {
+        inFlight.remove(showtimeId);
+    }
+
+    /**
+     * Creates a block of days from a template of daily slots in one pass: every slot is checked
+     * against the index and against the others, then all showtimes and all their seats are written
+     * with one bulk insert each. Without {@code skipConflicts} a single conflict rejects the whole
+     * request and nothing is written.
+     */
+    public ScheduleResult createWeek(WeekScheduleRequest request) {
+        List<Showtime> candidates = expand(request);
+        List<String> conflicts = reserveAll(candidates);
+
+        ScheduleResult result = new ScheduleResult();
+        List<Showtime> accepted = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (conflicts.get(i) != null) {
+                result.getConflicts().add(conflicts.get(i));
+            } else {
+                accepted.add(candidates.get(i));
+            }
+        }
+        if (!result.getConflicts().isEmpty() && !request.isSkipConflicts()) {
+            releaseAll(accepted);
+            return result;
+        }
+        if (accepted.isEmpty()) {
+            return result;
+        }
+
+        result.setSeats(insertReserved(accepted));
+        accepted.forEach(showtime -> result.getShowtimeIds().add(showtime.getId()));
+        result.setCreated(accepted.size());
+        logger.info("Scheduled {} showtime(s) with {} seat(s) from {}; {} conflict(s) skipped",
+                result.getCreated(), result.getSeats(), request.getWeekStart(), result.getConflicts().size());
+        return result;
+    }
+
+    /**
+     * Reserves every showtime of a batch that fits, checking each against the index and against
+     * the ones before it. Returns, per showtime, why it did not fit, or null where it was reserved.
+     * Showtimes need their ids already.
+     */
+    public synchronized List<String> reserveAll(List<Showtime> showtimes) {
+        List<String> conflicts = new ArrayList<>(showtimes.size());
+        if (showtimes.isEmpty()) {
+            return conflicts;
+        }
+        loadDurations(showtimes.stream().map(Showtime::getMovieId).collect(Collectors.toSet()));
+        List<Slot> slots = showtimes.stream()
+                .map(showtime -> durations.containsKey(showtime.getMovieId()) ? slotFor(showtime) : null)
+                .toList();
+        List<Slot> known = slots.stream().filter(Objects::nonNull).toList();
+        ScreenIndex index = known.isEmpty() ? new ScreenIndex() : load(
+                known.stream().map(slot -> slot.screen).collect(Collectors.toSet()),
+                known.stream().map(slot -> slot.start).min(LocalDateTime::compareTo).orElseThrow(),
+                known.stream().map(slot -> slot.end).max(LocalDateTime::compareTo).orElseThrow(),
+                showtimes.stream().map(Showtime::getId).collect(Collectors.toSet()));
+
+        for (int i = 0; i < showtimes.size(); i++) {
+            Slot slot = slots.get(i);
+            if (slot == null) {
+                conflicts.add("Movie not found: " + showtimes.get(i).getMovieId());
+                continue;
+            }
+            Slot conflict = index.conflictWith(slot);
+            if (conflict != null) {
+                conflicts.add(describe(slot, conflict));
+            } else {
+                index.add(slot);
+                inFlight.put(slot.showtimeId, slot);
+                conflicts.add(null);
+            }
+        }
+        return conflicts;
+    }
+
+    public synchronized void releaseAll(Collection<Showtime> showtimes) {
+        showtimes.forEach(showtime -> inFlight.remove(showtime.getId()));
+    }
+
+    /**
+     * Writes showtimes reserved by {@link #reserveAll} together with their seats, one unordered bulk
+     * insert each, and returns the number of seats. On failure whatever was written is deleted
+     * again, so no showtime is left without seats, and the reservations are released.
+     */
+    public long insertReserved(List<Showtime> showtimes) {
+        List<Seat> seats;
+        boolean written = false;
+        try {
+            seats = seatLayoutService.newSeats(showtimes);
+            Map<String, Long> seatsByShowtime = seats.stream()
+                    .collect(Collectors.groupingBy(Seat::getShowtimeId, Collectors.counting()));
+            for (Showtime showtime : showtimes) {
+                // The generated seats are the capacity; a different totalSeats would read as occupancy in pricing
+                int count = seatsByShowtime.getOrDefault(showtime.getId(), 0L).intValue();
+                showtime.setAvailableSeats(count);
+                showtime.setTotalSeats(count);
+            }
+            written = true;
+            mongoTemplate.insert(showtimes, Showtime.class);
+            seatLayoutService.insertSeats(seats);
+        } catch (RuntimeException e) {
+            if (written) {
+                List<String> ids = showtimes.stream().map(Showtime::getId).toList();
+                mongoTemplate.remove(new Query(Criteria.where("showtimeId").in(ids)), Seat.class);
+                mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), Showtime.class);
+            }
+            releaseAll(showtimes);
+            throw e;
+        }
+
+        for (Showtime showtime : showtimes) {
+            eventPublisher.publishEvent(new ShowtimeChangedEvent(showtime.getId(), "CREATED"));
+        }
+        return seats.size();
+    }
+
+    /**
+     * Once a showtime is written (or cancelled) Mongo is authoritative for it again.
+     */
+    @EventListener
+    public void onShowtimeChanged(ShowtimeChangedEvent event) {
+        if (WRITTEN_REASONS.contains(event.getReason())) {
+            release(event.getShowtimeId());
+        }
+    }
+
+    /**
+     * A new running time moves the end of every show of the movie; read it again when next needed.
+     */
+    @EventListener
+    public synchronized void onMovieChanged(MovieChangedEvent event) {
+        event.getMovieIds().forEach(durations::remove);
+    }
+
+    private List<Showtime> expand(WeekScheduleRequest request) {
+        if (request.getWeekStart() == null || request.getSlots() == null || request.getSlots().isEmpty()) {
+            throw new RuntimeException("weekStart and at least one slot are required");
+        }
+        int days = request.getDays() != null ? request.getDays() : 7;
+        if (days < 1 || days > maxDays) {
+            throw new RuntimeException("days must be between 1 and " + maxDays);
+        }
+        for (int i = 0; i < request.getSlots().size(); i++) {
+            WeekScheduleRequest.Slot slot = request.getSlots().get(i);
+            if (slot.getScreenNumber() == null || slot.getMovieId() == null || slot.getTime() == null
+                    || slot.getPrice() == null) {
+                throw new RuntimeException("Slot " + (i + 1) + " needs screenNumber, movieId, time and price");
+            }
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Showtime> showtimes = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            LocalDate date = request.getWeekStart().plusDays(day);
+            for (WeekScheduleRequest.Slot slot : request.getSlots()) {
+                if (slot.getDays() != null && !slot.getDays().isEmpty() && !slot.getDays().contains(date.getDayOfWeek())) {
+                    continue;
+                }
+                Showtime showtime = new Showtime();
+                // Ids up front: seats are keyed by them and written in the same pass
+                showtime.setId(new ObjectId().toHexString());
+                showtime.setMovieId(slot.getMovieId());
+                showtime.setScreenNumber(slot.getScreenNumber());
+                showtime.setShowDateTime(date.atTime(slot.getTime()));
+                showtime.setPrice(slot.getPrice());
+                showtime.setFormat(slot.getFormat());
+                showtime.setActive(true);
+                showtime.setCreatedAt(createdAt);
+                showtimes.add(showtime);
+            }
+        }
+        return showtimes;
+    }
+
+    /**
+     * Reads the intervals on {@code screens} that can overlap {@code [from, to)}, plus this instance's
+     * unwritten reservations there. Showtimes in {@code exclude} are left out: they are the ones being
+     * (re)scheduled. No show runs longer than a day, so nothing starting a day before {@code from} matters.
+     */
+    private ScreenIndex load(Set<String> screens, LocalDateTime from, LocalDateTime to, Set<String> exclude) {
+        LocalDateTime now = LocalDateTime.now();
+        inFlight.values().removeIf(slot -> slot.reservedAt.plus(IN_FLIGHT_TTL).isBefore(now));
+
+        Query query = new Query(Criteria.where("screenNumber").in(screens)
+                .and("showDateTime").gte(from.minusDays(1)).lt(to)
+                .and("active").is(true));
+        query.fields().include("id").include("movieId").include("screenNumber").include("showDateTime");
+        List<Showtime> showtimes = mongoTemplate.find(query, Showtime.class);
+        loadDurations(showtimes.stream().map(Showtime::getMovieId).collect(Collectors.toSet()));
+
+        ScreenIndex index = new ScreenIndex();
+        for (Showtime showtime : showtimes) {
+            // An unwritten reservation is newer than what Mongo has for the same showtime
+            if (!exclude.contains(showtime.getId()) && !inFlight.containsKey(showtime.getId())) {
+                index.add(slotFor(showtime));
+            }
+        }
+        for (Slot slot : inFlight.values()) {
+            if (!exclude.contains(slot.showtimeId) && screens.contains(slot.screen)) {
+                index.add(slot);
+            }
+        }
+        return index;
+    }
+
+    private void loadDurations(Collection<String> movieIds) {
+        Set<String> missing = new HashSet<>(movieIds);
+        missing.remove(null);
+        missing.removeAll(durations.keySet());
+        if (missing.isEmpty()) {
+            return;
+        }
+        Query query = new Query(Criteria.where("id").in(missing));
+        query.fields().include("id").include("duration");
+        for (Movie movie : mongoTemplate.find(query, Movie.class)) {
+            boolean known = movie.getDuration() != null && movie.getDuration() > 0;
+            durations.put(movie.getId(), known ? movie.getDuration().longValue() : defaultDurationMinutes);
+        }
+    }
+
+    private Slot slotFor(Showtime showtime) {
+        long minutes = durations.getOrDefault(showtime.getMovieId(), defaultDurationMinutes) + cleaningBufferMinutes;
+        return new Slot(showtime.getId(), showtime.getScreenNumber(), showtime.getShowDateTime(),
+                showtime.getShowDateTime().plusMinutes(minutes));
+    }
+
+
+    private static String describe(Slot slot, Slot conflict) {
+        return "Screen " + slot.screen + " at " + slot.start.format(TIME) + " overlaps showtime "
+                + conflict.showtimeId + " (" + conflict.start.format(TIME) + " to " + conflict.end.format(TIME)
+                + ", cleaning included)";
+    }
+
+    /**
+     * The occupied intervals of a few screens, each sorted by start.
+     */
+    private static class ScreenIndex {
+        private final Map<String, TreeSet<Slot>> screens = new HashMap<>();
+        private Duration longestSlot = Duration.ZERO; // how far back an interval can still reach
+
+        private void add(Slot slot) {
+            screens.computeIfAbsent(slot.screen, screen -> new TreeSet<>(BY_START)).add(slot);
+            Duration length = Duration.between(slot.start, slot.end);
+            if (length.compareTo(longestSlot) > 0) {
+                longestSlot = length;
+            }
+        }
+
+        private Slot conflictWith(Slot slot) {
+            TreeSet<Slot> index = screens.get(slot.screen);
+            if (index == null) {
+                return null;
+            }
+            // Everything starting before the new show ends, latest first; nothing starting earlier than
+            // the longest interval before our start can still be running
+            LocalDateTime reach = slot.start.minus(longestSlot);
+            Iterator<Slot> before = index.headSet(new Slot("", slot.screen, slot.end, slot.end), false).descendingIterator();
+            while (before.hasNext()) {
+                Slot other = before.next();
+                if (!other.start.isAfter(reach)) {
+                    break;
+                }
+                if (other.end.isAfter(slot.start)) {
+                    return other;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Slot {
+        private final String showtimeId;
+        private final String screen;
+        private final LocalDateTime start;
+        private final LocalDateTime end; // exclusive, cleaning buffer included
+        private final LocalDateTime reservedAt = LocalDateTime.now();
+
+        private Slot(String showtimeId, String screen, LocalDateTime start, LocalDateTime end) {
+            this.showtimeId = showtimeId;
+            this.screen = screen;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
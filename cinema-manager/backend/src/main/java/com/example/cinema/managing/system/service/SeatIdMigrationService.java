@@ -0,0 +1,103 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.Seat;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off move of seats created with random ObjectIds onto {@link SeatIds}.
+ * A document's {@code _id} cannot change, so each showtime's seats are copied under their new id.
+ * Bookings pointing at the old ids are rewritten and the old documents are then removed.
+ * Every step can be repeated, so an interrupted run just finishes on the next start.
+ */
+@Service
+public class SeatIdMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatIdMigrationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacySeatIds() {
+        Query legacy = new Query(Criteria.where("id").type(7)); // BSON ObjectId
+        List<String> showtimeIds = mongoTemplate.findDistinct(legacy, "showtimeId", Seat.class, String.class);
+        if (showtimeIds.isEmpty()) {
+            return;
+        }
+
+        logger.info("Moving seats of {} showtime(s) to deterministic ids", showtimeIds.size());
+        for (String showtimeId : showtimeIds) {
+            try {
+                migrateShowtime(showtimeId);
+            } catch (RuntimeException e) {
+                logger.error("Could not migrate seats of showtime {}; will retry on next start", showtimeId, e);
+            }
+        }
+    }
+
+    private void migrateShowtime(String showtimeId) {
+        // Booked seats first (nulls sort last descending), so they win if two old seats share a position
+        Query query = new Query(Criteria.where("showtimeId").is(showtimeId).and("id").type(7))
+                .with(Sort.by(Sort.Direction.DESC, "bookingId"));
+        List<Seat> seats = mongoTemplate.find(query, Seat.class);
+        if (seats.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> newIds = new HashMap<>();
+        Set<String> copied = new HashSet<>();
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class);
+        for (Seat seat : seats) {
+            String oldId = seat.getId();
+            String newId = SeatIds.of(showtimeId, seat.getRow(), seat.getColumn());
+            newIds.put(oldId, newId);
+            if (copied.add(newId)) {
+                seat.setId(newId);
+                inserts.insert(seat);
+            }
+        }
+        try {
+            inserts.execute();
+        } catch (BulkOperationException e) {
+            // Copies left by an earlier, interrupted run
+        }
+
+        Query affected = new Query(Criteria.where("seatIds").in(newIds.keySet()));
+        affected.fields().include("id").include("seatIds");
+        List<Booking> bookings = mongoTemplate.find(affected, Booking.class);
+        if (!bookings.isEmpty()) {
+            BulkOperations rewrites = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+            for (Booking booking : bookings) {
+                List<String> seatIds = booking.getSeatIds().stream()
+                        .map(id -> newIds.getOrDefault(id, id))
+                        .toList();
+                rewrites.updateOne(new Query(Criteria.where("id").is(booking.getId())),
+                        new Update().set("seatIds", seatIds));
+            }
+            rewrites.execute();
+        }
+
+        List<ObjectId> oldIds = newIds.keySet().stream().map(ObjectId::new).toList();
+        mongoTemplate.remove(new Query(Criteria.where("id").in(oldIds)), Seat.class);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cinema.managing.system.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Seat ids are derived from the seat's position: {@code <showtimeId>:<row>:<column>} with the
+ * column zero-padded, e.g. {@code 65f1c2...:C:07}. Any seat can be addressed without a lookup.
+ * Writing the same layout twice produces the same ids, and all seats of a showtime form one
+ * contiguous {@code _id} range.
+ */
+public final class SeatIds {
+
+    private static final char SEPARATOR = ':';
+
+    private SeatIds() {
+    }
+
+    public static String of(String showtimeId, String row, int column) {
+        return showtimeId + SEPARATOR + row + SEPARATOR + String.format("%02d", column);
+    }
+
+    public static boolean isDeterministic(String seatId) {
+        return seatId != null && seatId.indexOf(SEPARATOR) > 0;
+    }
+
+    public static String showtimeId(String seatId) {
+        int end = seatId.indexOf(SEPARATOR);
+        if (end <= 0) {
+            throw new RuntimeException("Invalid seat id: " + seatId);
+        }
+        return seatId.substring(0, end);
+    }
+
+    public static String row(String seatId) {
+        int start = seatId.indexOf(SEPARATOR);
+        int end = seatId.lastIndexOf(SEPARATOR);
+        if (start <= 0 || end <= start) {
+            throw new RuntimeException("Invalid seat id: " + seatId);
+        }
+        return seatId.substring(start + 1, end);
+    }
+
+    public static int column(String seatId) {
+        try {
+            return Integer.parseInt(seatId.substring(seatId.lastIndexOf(SEPARATOR) + 1));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid seat id: " + seatId);
+        }
+    }
+
+    /**
+     * Seat label as shown to customers, e.g. {@code C7}.
+     */
+    public static String label(String seatId) {
+        return row(seatId) + column(seatId);
+    }
+
+    /**
+     * Matches every seat of the showtime as an {@code _id} range scan.
+     * {@code ';'} is the character after {@code ':'}, so the range covers exactly the prefix.
+     */
+    public static Criteria inShowtime(String showtimeId) {
+        return Criteria.where("id").gte(showtimeId + SEPARATOR).lt(showtimeId + (char) (SEPARATOR + 1));
+    }
+}
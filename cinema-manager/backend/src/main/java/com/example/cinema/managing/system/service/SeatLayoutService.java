@@ -0,0 +1,259 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.SeatLayoutResult;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.Seat;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.SystemConfig;
+import com.example.cinema.managing.system.repository.ShowtimeRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Brings a showtime's seats in line with the configured layout without touching bookings.
+ * The target layout is diffed against the stored seats, then applied in one unordered bulk write:
+ * - missing seats are upserted;
+ * - available seats that left the layout become RETIRED;
+ * - retired seats that came back become AVAILABLE again;
+ * - booked and blocked seats are never modified.
+ * Seat ids are deterministic, so running it twice changes nothing.
+ */
+@Service
+public class SeatLayoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatLayoutService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private SeatPricingService seatPricingService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.seats.rows:A,B,C,D,E,F,G,H,I,J}")
+    private String seatRowsConfig;
+
+    @Value("${app.seats.per-row:10}")
+    private int seatsPerRowConfig;
+
+    @Value("${app.seats.regenerate-parallelism:4}")
+    private int parallelism;
+
+    public SeatLayoutResult applyLayout(Showtime showtime) {
+        return applyLayout(showtime, currentLayout());
+    }
+
+    /**
+     * Re-lays out every upcoming active showtime, a bounded number of showtimes at a time.
+     */
+    public SeatLayoutResult applyLayoutToUpcomingShowtimes() {
+        Layout layout = currentLayout();
+        List<Showtime> showtimes = showtimeRepository.findByShowDateTimeAfterAndActiveTrue(LocalDateTime.now());
+
+        SeatLayoutResult total = new SeatLayoutResult();
+        try (ExecutorService pool = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<SeatLayoutResult>> results = new ArrayList<>(showtimes.size());
+            for (Showtime showtime : showtimes) {
+                results.add(pool.submit(() -> applyLayout(showtime, layout)));
+            }
+            for (Future<SeatLayoutResult> result : results) {
+                total.merge(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Seat regeneration was interrupted");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+
+        logger.info("Re-laid out {} upcoming showtime(s): {} added, {} retired, {} restored, {} booked seat(s) outside layout",
+                total.getShowtimes(), total.getAdded(), total.getRetired(), total.getRestored(),
+                total.getBookedOutsideLayout());
+        return total;
+    }
+
+    /**
+     * Lays out seats for showtimes that do not exist yet, without writing anything. The showtimes
+     * must already carry their ids; store the seats with {@link #insertSeats} once the showtimes are saved.
+     */
+    public List<Seat> newSeats(List<Showtime> showtimes) {
+        Layout layout = currentLayout();
+        List<Seat> seats = new ArrayList<>(showtimes.size() * layout.rows.size() * layout.seatsPerRow);
+        for (Showtime showtime : showtimes) {
+            seats.addAll(targetSeats(showtime, layout).values());
+        }
+        return seats;
+    }
+
+    /**
+     * Plain unordered bulk insert for seats of new showtimes; there is nothing to diff against.
+     */
+    public void insertSeats(List<Seat> seats) {
+        if (seats.isEmpty()) {
+            return;
+        }
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class).insert(seats).execute();
+    }
+
+    private SeatLayoutResult applyLayout(Showtime showtime, Layout layout) {
+        Map<String, Seat> target = targetSeats(showtime, layout);
+
+        Query existingQuery = new Query(SeatIds.inShowtime(showtime.getId()));
+        existingQuery.fields().include("id").include("status");
+        List<Seat> existing = mongoTemplate.find(existingQuery, Seat.class);
+
+        SeatLayoutResult result = new SeatLayoutResult();
+        result.setShowtimes(1);
+        // Seats that become sellable and seats that stop being sellable go in separate bulks, so the
+        // write results say exactly how far availableSeats moved
+        BulkOperations openings = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class);
+        BulkOperations closings = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class);
+        int restoring = 0;
+        int adding = 0;
+        int retiring = 0;
+
+        for (Seat seat : existing) {
+            boolean inLayout = target.remove(seat.getId()) != null;
+            String status = seat.getStatus();
+            if (inLayout && "RETIRED".equals(status)) {
+                openings.updateOne(statusIs(seat.getId(), "RETIRED"), new Update().set("status", "AVAILABLE"));
+                restoring++;
+            } else if (!inLayout && "AVAILABLE".equals(status)) {
+                // Guarded on AVAILABLE: a seat booked since we read it stays booked
+                closings.updateOne(statusIs(seat.getId(), "AVAILABLE"), new Update().set("status", "RETIRED"));
+                retiring++;
+            } else if (!inLayout && !"RETIRED".equals(status)) {
+                result.setBookedOutsideLayout(result.getBookedOutsideLayout() + 1);
+            }
+        }
+
+        // What is left in the target does not exist yet
+        for (Seat seat : target.values()) {
+            Update insert = new Update()
+                    .setOnInsert("showtimeId", seat.getShowtimeId())
+                    .setOnInsert("seatNumber", seat.getSeatNumber())
+                    .setOnInsert("row", seat.getRow())
+                    .setOnInsert("column", seat.getColumn())
+                    .setOnInsert("status", seat.getStatus())
+                    .setOnInsert("type", seat.getType())
+                    .setOnInsert("price", seat.getPrice());
+            openings.upsert(new Query(Criteria.where("id").is(seat.getId())), insert);
+            adding++;
+        }
+
+        int opened = 0;
+        int closed = 0;
+        if (restoring + adding > 0) {
+            BulkWriteResult written = openings.execute();
+            // A seat inserted concurrently under the same id matches the upsert without changing
+            result.setAdded(written.getUpserts().size());
+            result.setRestored(written.getModifiedCount());
+            opened = result.getAdded() + result.getRestored();
+        }
+        if (retiring > 0) {
+            closed = closings.execute().getModifiedCount();
+            result.setRetired(closed);
+        }
+
+        if (opened != closed) {
+            // $inc rather than a recount, so bookings taken meanwhile are not written over
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(showtime.getId())),
+                    new Update().inc("availableSeats", opened - closed), Showtime.class);
+        }
+        if (opened + closed > 0) {
+            eventPublisher.publishEvent(new ShowtimeChangedEvent(showtime.getId(), "LAYOUT"));
+        }
+        return result;
+    }
+
+    private static Map<String, Seat> targetSeats(Showtime showtime, Layout layout) {
+        Map<String, Seat> target = new LinkedHashMap<>();
+        for (String row : layout.rows) {
+            for (int column = 1; column <= layout.seatsPerRow; column++) {
+                Seat seat = new Seat();
+                seat.setId(SeatIds.of(showtime.getId(), row, column));
+                seat.setShowtimeId(showtime.getId());
+                seat.setSeatNumber(String.valueOf(column));
+                seat.setRow(row);
+                seat.setColumn(column);
+                seat.setStatus("AVAILABLE");
+                seat.setType(layout.defaultSeatType);
+                seat.setPrice(SeatPricingService.priceFor(showtime.getPrice(), layout.defaultSeatType,
+                        layout.seatTypeMultipliers));
+                target.put(seat.getId(), seat);
+            }
+        }
+        return target;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Layout currentLayout() {
+        // Get seat configuration from SystemConfig or environment variable
+        List<String> rows = (List<String>) systemConfigService.getConfigValue(
+                SystemConfig.SEAT_ROWS,
+                Arrays.asList(seatRowsConfig.split(","))
+        );
+
+        int seatsPerRow = ((Number) systemConfigService.getConfigValue(
+                SystemConfig.SEATS_PER_ROW,
+                seatsPerRowConfig
+        )).intValue();
+
+        List<String> seatTypes = (List<String>) systemConfigService.getConfigValue(
+                SystemConfig.SEAT_TYPES,
+                Arrays.asList("STANDARD")
+        );
+
+        String defaultSeatType = seatTypes.isEmpty() ? "STANDARD" : seatTypes.get(0);
+        return new Layout(rows, seatsPerRow, defaultSeatType, seatPricingService.multipliers());
+    }
+
+    private static Query statusIs(String seatId, String status) {
+        return new Query(Criteria.where("id").is(seatId).and("status").is(status));
+    }
+
+    private static class Layout {
+        private final List<String> rows;
+        private final int seatsPerRow;
+        private final String defaultSeatType;
+        private final Map<String, Double> seatTypeMultipliers;
+
+        private Layout(List<String> rows, int seatsPerRow, String defaultSeatType,
+                       Map<String, Double> seatTypeMultipliers) {
+            this.rows = rows;
+            this.seatsPerRow = seatsPerRow;
+            this.defaultSeatType = defaultSeatType;
+            this.seatTypeMultipliers = seatTypeMultipliers;
+        }
+    }
+}
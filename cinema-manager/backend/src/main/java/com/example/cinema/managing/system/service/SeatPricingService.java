@@ -0,0 +1,187 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.RepriceResult;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.event.SystemConfigChangedEvent;
+import com.example.cinema.managing.system.model.Seat;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.SystemConfig;
+import com.example.cinema.managing.system.repository.ShowtimeRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps {@link Seat#getPrice()} in line with the showtime price and the per seat type multipliers
+ * in {@link SystemConfig#SEAT_TYPE_MULTIPLIERS}.
+ * A show is repriced with one unordered bulk write holding one updateMany per seat type, limited
+ * to AVAILABLE seats: booked seats keep the price they were sold at.
+ */
+@Service
+public class SeatPricingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatPricingService.class);
+
+    private static final Map<String, Object> DEFAULT_MULTIPLIERS = Map.of("STANDARD", 1.0);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.seats.reprice-parallelism:4}")
+    private int parallelism;
+
+    private ExecutorService configChangeExecutor;
+
+    @PostConstruct
+    public void init() {
+        // Multiplier changes reprice in the background, one run at a time
+        configChangeExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        configChangeExecutor.shutdown();
+    }
+
+    public Double priceFor(Double basePrice, String seatType) {
+        return priceFor(basePrice, seatType, multipliers());
+    }
+
+    /**
+     * Multiplier per seat type; types without an entry are sold at the showtime price.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Double> multipliers() {
+        Object configured = systemConfigService.getConfigValue(SystemConfig.SEAT_TYPE_MULTIPLIERS, DEFAULT_MULTIPLIERS);
+        Map<String, Double> multipliers = new LinkedHashMap<>();
+        if (configured instanceof Map<?, ?> map) {
+            ((Map<Object, Object>) map).forEach((type, value) -> {
+                if (type != null && value instanceof Number number && number.doubleValue() > 0) {
+                    multipliers.put(type.toString(), number.doubleValue());
+                }
+            });
+        }
+        return multipliers;
+    }
+
+    public RepriceResult repriceShowtime(Showtime showtime) {
+        return repriceShowtime(showtime, multipliers());
+    }
+
+    /**
+     * Reprices the available seats of every active showtime starting in [from, to), a bounded
+     * number of showtimes at a time.
+     */
+    public RepriceResult repriceShowtimes(LocalDateTime from, LocalDateTime to) {
+        return repriceAll(showtimeRepository.findByShowDateTimeBetween(from, to), multipliers());
+    }
+
+    public RepriceResult repriceUpcomingShowtimes() {
+        return repriceAll(showtimeRepository.findByShowDateTimeAfterAndActiveTrue(LocalDateTime.now()), multipliers());
+    }
+
+    @EventListener
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        if (!SystemConfig.SEAT_TYPE_MULTIPLIERS.equals(event.getConfigKey())) {
+            return;
+        }
+        configChangeExecutor.execute(() -> {
+            try {
+                repriceUpcomingShowtimes();
+            } catch (RuntimeException e) {
+                logger.error("Repricing after seat type multiplier change failed", e);
+            }
+        });
+    }
+
+    private RepriceResult repriceAll(List<Showtime> showtimes, Map<String, Double> multipliers) {
+        RepriceResult total = new RepriceResult();
+        try (ExecutorService pool = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<RepriceResult>> results = new ArrayList<>(showtimes.size());
+            for (Showtime showtime : showtimes) {
+                if (showtime.isActive()) {
+                    results.add(pool.submit(() -> repriceShowtime(showtime, multipliers)));
+                }
+            }
+            for (Future<RepriceResult> result : results) {
+                total.merge(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Seat repricing was interrupted");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+
+        logger.info("Repriced {} showtime(s), {} seat(s) changed", total.getShowtimes(), total.getSeatsRepriced());
+        return total;
+    }
+
+    private RepriceResult repriceShowtime(Showtime showtime, Map<String, Double> multipliers) {
+        if (showtime.getPrice() == null) {
+            return new RepriceResult(1, 0);
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class);
+        for (Map.Entry<String, Double> entry : multipliers.entrySet()) {
+            Double price = priceFor(showtime.getPrice(), entry.getKey(), multipliers);
+            operations.updateMulti(availableSeats(showtime.getId(), price).and("type").is(entry.getKey()),
+                    new Update().set("price", price));
+        }
+        // Seat types without a multiplier, including seats with no type at all
+        operations.updateMulti(availableSeats(showtime.getId(), showtime.getPrice()).and("type").nin(multipliers.keySet()),
+                new Update().set("price", showtime.getPrice()));
+
+        BulkWriteResult result = operations.execute();
+        if (result.getModifiedCount() > 0) {
+            eventPublisher.publishEvent(new ShowtimeChangedEvent(showtime.getId(), "PRICE"));
+        }
+        return new RepriceResult(1, result.getModifiedCount());
+    }
+
+    // "price ne" skips seats already at the target, so the modified count is what really changed
+    private static Criteria availableSeats(String showtimeId, Double price) {
+        return SeatIds.inShowtime(showtimeId).and("status").is("AVAILABLE").and("price").ne(price);
+    }
+
+    static Double priceFor(Double basePrice, String seatType, Map<String, Double> multipliers) {
+        if (basePrice == null) {
+            return null;
+        }
+        double multiplier = seatType != null ? multipliers.getOrDefault(seatType, 1.0) : 1.0;
+        return BigDecimal.valueOf(basePrice * multiplier).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.dto.PriceQuote;
 import com.example.cinema.managing.system.model.Seat;
 import com.example.cinema.managing.system.repository.SeatRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,55 +19,89 @@ public class SeatService {
     @Autowired
     private SeatRepository seatRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
     public List<Seat> getSeatsByShowtimeId(String showtimeId) {
-        return seatRepository.findByShowtimeId(showtimeId);
+        return findInShowtime(showtimeId, null);
     }
 
     public List<Seat> getAvailableSeats(String showtimeId) {
-        return seatRepository.findByShowtimeIdAndStatus(showtimeId, "AVAILABLE");
+        return findInShowtime(showtimeId, "AVAILABLE");
     }
 
     public List<Seat> getBookedSeats(String showtimeId) {
-        return seatRepository.findByShowtimeIdAndStatus(showtimeId, "BOOKED");
+        return findInShowtime(showtimeId, "BOOKED");
     }
 
     public Seat getSeatById(String id) {
-        return seatRepository.findById(id)
+        Seat seat = seatRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Seat not found"));
+        PriceQuote quote = pricingEngine.quote(seat.getShowtimeId());
+        seat.setPrice(quote.apply(seat.getPrice()));
+        return seat;
     }
 
+    public Seat getSeat(String showtimeId, String row, int column) {
+        return getSeatById(SeatIds.of(showtimeId, row, column));
+    }
+
+    /**
+     * Books the seats for {@code bookingId} all-or-nothing with one conditional update,
+     * so two customers can never both get a seat. Returned seats carry their stored base price.
+     */
     public List<Seat> bookSeats(List<String> seatIds, String userId, String bookingId) {
-        List<Seat> seats = seatRepository.findAllById(seatIds);
-        
-        // Check if all seats are available
-        for (Seat seat : seats) {
-            if (!"AVAILABLE".equals(seat.getStatus())) {
-                throw new RuntimeException("Seat " + seat.getRow() + seat.getSeatNumber() + " is not available");
-            }
-        }
-        
-        // Book all seats
-        for (Seat seat : seats) {
-            seat.setStatus("BOOKED");
-            seat.setBookedBy(userId);
-            seat.setBookingId(bookingId);
+        long booked = mongoTemplate.updateMulti(
+                new Query(Criteria.where("id").in(seatIds).and("status").is("AVAILABLE")),
+                new Update().set("status", "BOOKED").set("bookedBy", userId).set("bookingId", bookingId),
+                Seat.class).getModifiedCount();
+
+        if (booked != seatIds.size()) {
+            // Someone else got at least one of them: give back the ones we did get
+            releaseSeats(seatIds, bookingId);
+            throw new RuntimeException("One or more selected seats are not available. It may have been booked by another user.");
         }
-        
-        return seatRepository.saveAll(seats);
+        return seatRepository.findAllById(seatIds);
     }
 
     public void releaseSeats(String bookingId) {
-        List<Seat> seats = seatRepository.findByBookingId(bookingId);
-        for (Seat seat : seats) {
-            seat.setStatus("AVAILABLE");
-            seat.setBookedBy(null);
-            seat.setBookingId(null);
-        }
-        seatRepository.saveAll(seats);
+        mongoTemplate.updateMulti(new Query(Criteria.where("bookingId").is(bookingId)),
+                availableAgain(), Seat.class);
+    }
+
+    /**
+     * Releases the given seats if they are still held by the booking. Returns how many were released.
+     */
+    public long releaseSeats(List<String> seatIds, String bookingId) {
+        return mongoTemplate.updateMulti(
+                new Query(Criteria.where("id").in(seatIds).and("bookingId").is(bookingId)),
+                availableAgain(), Seat.class).getModifiedCount();
     }
 
     public boolean areSeatsAvailable(List<String> seatIds) {
-        List<Seat> seats = seatRepository.findAllById(seatIds);
-        return seats.stream().allMatch(seat -> "AVAILABLE".equals(seat.getStatus()));
+        Query query = new Query(Criteria.where("id").in(seatIds).and("status").is("AVAILABLE"));
+        return mongoTemplate.count(query, Seat.class) == seatIds.size();
+    }
+
+    private List<Seat> findInShowtime(String showtimeId, String status) {
+        Criteria criteria = SeatIds.inShowtime(showtimeId);
+        if (status != null) {
+            criteria.and("status").is(status);
+        } else {
+            criteria.and("status").ne("RETIRED");
+        }
+        List<Seat> seats = mongoTemplate.find(new Query(criteria).with(Sort.by("id")), Seat.class);
+
+        // Seat maps show the current dynamic price; the stored price is the base it applies to
+        PriceQuote quote = pricingEngine.quote(showtimeId);
+        seats.forEach(seat -> seat.setPrice(quote.apply(seat.getPrice())));
+        return seats;
+    }
+
+    private static Update availableAgain() {
+        return new Update().set("status", "AVAILABLE").unset("bookedBy").unset("bookingId");
     }
 }
@@ -0,0 +1,340 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.BookingStatusChangedEvent;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.Payment;
+import com.example.cinema.managing.system.model.Seat;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.ShowtimeCancellation;
+import com.example.cinema.managing.system.repository.BookingRepository;
+import com.example.cinema.managing.system.repository.ShowtimeCancellationRepository;
+import com.example.cinema.managing.system.repository.ShowtimeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels every booking of a showtime and refunds it.
+ * Bookings are walked page by page in {@code _id} order. Each page is one bulk booking update and
+ * one bulk seat release, then its refunds fan out to {@link PaymentService} with bounded concurrency
+ * and a rate limit. The page boundary is checkpointed in {@link ShowtimeCancellation}, so a restart
+ * resumes where the job stopped. Refunds are safe to repeat: they use idempotency keys and only
+ * SUCCESS payments are picked.
+ * Each job runs under a {@link JobLeaseService} lease keyed by its showtime and renewed per page,
+ * so only one node works on it; jobs whose node died are picked up by the periodic resume.
+ */
+@Service
+public class ShowtimeCancellationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShowtimeCancellationService.class);
+
+    private static final List<String> ACTIVE_BOOKING_STATUSES = List.of("PENDING", "CONFIRMED");
+    private static final int MAX_REFUND_ATTEMPTS = 4;
+    private static final int MAX_RECORDED_FAILURES = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ShowtimeCancellationRepository cancellationRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Value("${app.showtimes.cancellation.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.showtimes.cancellation.refund-concurrency:10}")
+    private int refundConcurrency;
+
+    @Value("${app.showtimes.cancellation.refunds-per-second:25}")
+    private double refundsPerSecond;
+
+    @Value("${app.showtimes.cancellation.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService jobExecutor;
+    private Semaphore refundPermits;
+    private TokenBucket refundRate;
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        // Shared by all running jobs, so cancelling two shows at once does not double the load on Stripe
+        refundPermits = new Semaphore(refundConcurrency);
+        refundRate = new TokenBucket(refundsPerSecond);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs stay RUNNING and are resumed from their checkpoint on the next start
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Stops sales for the showtime and starts (or returns) its cancellation job.
+     */
+    public ShowtimeCancellation cancelShowtime(String showtimeId, String reason, String requestedBy) {
+        if (!showtimeRepository.existsById(showtimeId)) {
+            throw new RuntimeException("Showtime not found");
+        }
+
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(showtimeId)),
+                new Update().set("active", false), Showtime.class);
+        eventPublisher.publishEvent(new ShowtimeChangedEvent(showtimeId, "CANCELLED"));
+
+        ShowtimeCancellation job = new ShowtimeCancellation();
+        job.setId(showtimeId);
+        job.setReason(reason);
+        job.setRequestedBy(requestedBy);
+        job.setTotalBookings((int) bookingRepository.countByShowtimeId(showtimeId));
+        try {
+            mongoTemplate.insert(job);
+            logger.info("Cancelling showtime {} ({} booking(s))", showtimeId, job.getTotalBookings());
+        } catch (DuplicateKeyException e) {
+            job = getProgress(showtimeId);
+        }
+
+        if ("RUNNING".equals(job.getStatus())) {
+            submit(showtimeId);
+        }
+        return job;
+    }
+
+    public ShowtimeCancellation getProgress(String showtimeId) {
+        return cancellationRepository.findById(showtimeId)
+                .orElseThrow(() -> new RuntimeException("No cancellation found for this showtime"));
+    }
+
+    /**
+     * Resumes RUNNING jobs nobody holds the lease for: on start, and periodically for jobs whose node died.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.showtimes.cancellation.resume-interval-ms:60000}",
+            fixedDelayString = "${app.showtimes.cancellation.resume-interval-ms:60000}")
+    public void resumeInterruptedJobs() {
+        List<ShowtimeCancellation> interrupted = cancellationRepository.findByStatus("RUNNING");
+        interrupted.stream()
+                .filter(job -> !runningJobs.contains(job.getId()))
+                .forEach(job -> submit(job.getId()));
+    }
+
+    private void submit(String showtimeId) {
+        if (!runningJobs.add(showtimeId)) {
+            return;
+        }
+        jobExecutor.execute(() -> {
+            String lease = leaseName(showtimeId);
+            if (!jobLeaseService.tryAcquire(lease, lease())) {
+                // Another node is running this job
+                runningJobs.remove(showtimeId);
+                return;
+            }
+            String result = "FAILED";
+            try {
+                logger.info("Running cancellation of showtime {}", showtimeId);
+                run(showtimeId);
+                result = "COMPLETED";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.info("Cancellation of showtime {} paused; it will resume on restart", showtimeId);
+            } catch (RuntimeException e) {
+                logger.error("Cancellation of showtime {} stopped; it will be resumed", showtimeId, e);
+            } finally {
+                jobLeaseService.release(lease, result);
+                runningJobs.remove(showtimeId);
+            }
+        });
+    }
+
+    private void run(String showtimeId) throws InterruptedException {
+        ShowtimeCancellation job = getProgress(showtimeId);
+        if (!"RUNNING".equals(job.getStatus())) {
+            return; // finished by another node between our read and taking the lease
+        }
+        Query jobQuery = new Query(Criteria.where("id").is(showtimeId));
+
+        // A crash between cancelling a page and refunding it leaves the page in flight
+        if (job.getInFlightBookingIds() != null && !job.getInFlightBookingIds().isEmpty()) {
+            processPage(showtimeId, job.getInFlightBookingIds());
+        }
+
+        String lastBookingId = job.getLastBookingId();
+        while (true) {
+            renewLease(showtimeId);
+            Criteria criteria = Criteria.where("showtimeId").is(showtimeId);
+            if (lastBookingId != null) {
+                criteria.and("id").gt(new ObjectId(lastBookingId));
+            }
+            Query page = new Query(criteria).with(Sort.by("id")).limit(pageSize);
+            page.fields().include("id").include("status");
+            List<Booking> bookings = mongoTemplate.find(page, Booking.class);
+            if (bookings.isEmpty()) {
+                break;
+            }
+
+            lastBookingId = bookings.get(bookings.size() - 1).getId();
+            List<String> toCancel = bookings.stream()
+                    .filter(booking -> ACTIVE_BOOKING_STATUSES.contains(booking.getStatus()))
+                    .map(Booking::getId)
+                    .toList();
+
+            // Checkpoint before touching anything, so the page is finished rather than skipped after a crash
+            mongoTemplate.updateFirst(jobQuery, new Update()
+                    .set("lastBookingId", lastBookingId)
+                    .set("inFlightBookingIds", toCancel)
+                    .set("updatedAt", LocalDateTime.now()), ShowtimeCancellation.class);
+
+            if (!toCancel.isEmpty()) {
+                processPage(showtimeId, toCancel);
+            }
+        }
+
+        ShowtimeCancellation finished = getProgress(showtimeId);
+        String status = finished.getRefundsFailed() > 0 ? "COMPLETED_WITH_ERRORS" : "COMPLETED";
+        mongoTemplate.updateFirst(jobQuery, new Update()
+                .set("status", status)
+                .set("completedAt", LocalDateTime.now())
+                .set("updatedAt", LocalDateTime.now()), ShowtimeCancellation.class);
+        logger.info("Showtime {} cancelled: {} booking(s), {} refund(s), {} failed refund(s)", showtimeId,
+                finished.getBookingsCancelled(), finished.getRefundsIssued(), finished.getRefundsFailed());
+    }
+
+    private void processPage(String showtimeId, List<String> bookingIds) throws InterruptedException {
+        long cancelled = mongoTemplate.updateMulti(
+                new Query(Criteria.where("id").in(bookingIds).and("status").in(ACTIVE_BOOKING_STATUSES)),
+                // Unposting hands the bookings back to loyalty, which reverses their points
+                new Update().set("status", "CANCELLED").unset("loyaltyPostedAt"), Booking.class).getModifiedCount();
+        // Posting is idempotent, so ids of a replayed page that were already cancelled are harmless
+        bookingIds.forEach(id -> eventPublisher.publishEvent(new BookingStatusChangedEvent(id, "CANCELLED")));
+
+        long released = mongoTemplate.updateMulti(
+                new Query(SeatIds.inShowtime(showtimeId).and("bookingId").in(bookingIds)),
+                new Update().set("status", "AVAILABLE").unset("bookedBy").unset("bookingId"),
+                Seat.class).getModifiedCount();
+        if (released > 0) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(showtimeId)),
+                    new Update().inc("availableSeats", (int) released), Showtime.class);
+            eventPublisher.publishEvent(new ShowtimeChangedEvent(showtimeId, "SEATS"));
+        }
+
+        Query paymentQuery = new Query(Criteria.where("bookingId").in(bookingIds).and("status").is("SUCCESS"));
+        paymentQuery.fields().include("id");
+        List<String> paymentIds = mongoTemplate.find(paymentQuery, Payment.class).stream()
+                .map(Payment::getId)
+                .toList();
+
+        List<CompletableFuture<Boolean>> refunds = new ArrayList<>(paymentIds.size());
+        for (String paymentId : paymentIds) {
+            refundPermits.acquire();
+            refundRate.acquire();
+            refunds.add(refund(paymentId, 1).whenComplete((refunded, error) -> refundPermits.release()));
+        }
+        CompletableFuture.allOf(refunds.toArray(new CompletableFuture[0])).join();
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < refunds.size(); i++) {
+            if (!refunds.get(i).join()) {
+                failed.add(paymentIds.get(i));
+            }
+        }
+
+        Update progress = new Update()
+                .set("inFlightBookingIds", List.of())
+                .inc("bookingsCancelled", (int) cancelled)
+                .inc("seatsReleased", (int) released)
+                .inc("refundsIssued", refunds.size() - failed.size())
+                .inc("refundsFailed", failed.size())
+                .set("updatedAt", LocalDateTime.now());
+        if (!failed.isEmpty()) {
+            progress.push("failedPaymentIds").slice(MAX_RECORDED_FAILURES).each(failed.toArray());
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(showtimeId)), progress,
+                ShowtimeCancellation.class);
+    }
+
+    // Fails only if our lease expired and another node took the job over
+    private void renewLease(String showtimeId) {
+        if (!jobLeaseService.tryAcquire(leaseName(showtimeId), lease())) {
+            throw new RuntimeException("Lost the cancellation lease of showtime " + showtimeId);
+        }
+    }
+
+    private static String leaseName(String showtimeId) {
+        return "showtime-cancellation:" + showtimeId;
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    /**
+     * Refunds one payment, backing off while the provider is unavailable. Never completes exceptionally.
+     */
+    private CompletableFuture<Boolean> refund(String paymentId, int attempt) {
+        CompletableFuture<Payment> call;
+        try {
+            call = paymentService.refundPayment(paymentId);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        return call
+                // Card refunds may still be pending at Stripe; the charge.refunded webhook settles those
+                .thenApply(payment -> true)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof PaymentGatewayUnavailableException && attempt < MAX_REFUND_ATTEMPTS) {
+                        return CompletableFuture.runAsync(() -> { },
+                                        CompletableFuture.delayedExecutor(1L << attempt, TimeUnit.SECONDS))
+                                .thenCompose(ignored -> refund(paymentId, attempt + 1));
+                    }
+                    logger.warn("Refund of payment {} failed: {}", paymentId, cause.getMessage());
+                    return CompletableFuture.completedFuture(false);
+                });
+    }
+}
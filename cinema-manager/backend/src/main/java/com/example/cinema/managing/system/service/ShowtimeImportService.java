@@ -0,0 +1,287 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ImportReport;
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.Showtime;
+import com.example.cinema.managing.system.model.SystemConfig;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports a schedule exported from a spreadsheet, as CSV with a header row or as NDJSON (one
+ * object per line). The upload is read line by line; valid rows are collected into batches that
+ * go through {@link SchedulingEngine#reserveAll} and are written with their seats in one bulk
+ * insert each, so heap use is bounded by the batch size whatever the file size.
+ * Fields: {@code date} and {@code time} (or {@code showDateTime}), {@code screen}, {@code movie}
+ * (id or title, ignoring case), {@code price}, and optionally {@code format}. Capacity always comes
+ * from the seat layout.
+ * Quoted CSV values may contain commas but not line breaks.
+ */
+@Service
+public class ShowtimeImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShowtimeImportService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SchedulingEngine schedulingEngine;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+    public ImportReport importShowtimes(InputStream input, boolean ndjson) throws IOException {
+        Lookups lookups = lookups();
+        ImportReport report = new ImportReport();
+        List<Showtime> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!ndjson && header == null) {
+                    header = splitCsv(line).stream().map(ShowtimeImportService::normalizeName).toList();
+                    continue;
+                }
+
+                report.setRows(report.getRows() + 1);
+                try {
+                    Map<String, String> fields = ndjson ? readJson(line) : readCsv(header, line);
+                    batch.add(toShowtime(fields, lookups));
+                    batchLines.add(lineNumber);
+                } catch (RuntimeException e) {
+                    report.addError(lineNumber, e.getMessage(), maxErrors);
+                }
+                if (batch.size() >= batchSize) {
+                    flush(batch, batchLines, report);
+                }
+            }
+        }
+        flush(batch, batchLines, report);
+
+        logger.info("Imported {} of {} showtime row(s) with {} seat(s); {} failed",
+                report.getImported(), report.getRows(), report.getSeats(), report.getFailed());
+        return report;
+    }
+
+    private void flush(List<Showtime> batch, List<Long> batchLines, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<String> conflicts = schedulingEngine.reserveAll(batch);
+        List<Showtime> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (conflicts.get(i) != null) {
+                report.addError(batchLines.get(i), conflicts.get(i), maxErrors);
+            } else {
+                accepted.add(batch.get(i));
+            }
+        }
+        if (!accepted.isEmpty()) {
+            report.setSeats(report.getSeats() + schedulingEngine.insertReserved(accepted));
+            report.setImported(report.getImported() + accepted.size());
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private Showtime toShowtime(Map<String, String> fields, Lookups lookups) {
+        String movie = required(fields, "movie");
+        String movieId = lookups.movieIds.get(movie.toLowerCase(Locale.ROOT));
+        if (movieId == null) {
+            throw new RuntimeException("Unknown movie: " + movie);
+        }
+        String screen = required(fields, "screen");
+        if (!lookups.screens.isEmpty() && !lookups.screens.contains(screen)) {
+            throw new RuntimeException("Unknown screen: " + screen);
+        }
+        String format = fields.get("format");
+        if (format != null && !lookups.formats.isEmpty() && !lookups.formats.contains(format)) {
+            throw new RuntimeException("Unknown format: " + format);
+        }
+
+        LocalDateTime showDateTime;
+        try {
+            showDateTime = fields.get("showdatetime") != null
+                    ? LocalDateTime.parse(fields.get("showdatetime"))
+                    : LocalDate.parse(required(fields, "date")).atTime(LocalTime.parse(required(fields, "time")));
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid date or time: " + e.getParsedString());
+        }
+        if (!showDateTime.isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("Show time is in the past: " + showDateTime);
+        }
+
+        Double price = number(fields, "price", lookups.defaultPrice);
+        if (price == null || price <= 0) {
+            throw new RuntimeException("Price must be positive");
+        }
+
+        Showtime showtime = new Showtime();
+        showtime.setId(new ObjectId().toHexString());
+        showtime.setMovieId(movieId);
+        showtime.setScreenNumber(screen);
+        showtime.setShowDateTime(showDateTime);
+        showtime.setFormat(format);
+        showtime.setPrice(price);
+        showtime.setActive(true);
+        showtime.setCreatedAt(LocalDateTime.now());
+        return showtime;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Lookups lookups() {
+        Lookups lookups = new Lookups();
+        Query query = new Query();
+        query.fields().include("id").include("title");
+        for (Movie movie : mongoTemplate.find(query, Movie.class)) {
+            if (movie.getTitle() != null) {
+                lookups.movieIds.putIfAbsent(movie.getTitle().toLowerCase(Locale.ROOT), movie.getId());
+            }
+            // Ids win over a title that happens to look like one
+            lookups.movieIds.put(movie.getId().toLowerCase(Locale.ROOT), movie.getId());
+        }
+        lookups.screens.addAll((List<String>) systemConfigService.getConfigValue(SystemConfig.SCREEN_NUMBERS, List.of()));
+        lookups.formats.addAll((List<String>) systemConfigService.getConfigValue(SystemConfig.TICKET_FORMATS, List.of()));
+        Object defaultPrice = systemConfigService.getConfigValue(SystemConfig.DEFAULT_TICKET_PRICE, null);
+        lookups.defaultPrice = defaultPrice instanceof Number number ? number.doubleValue() : null;
+        return lookups;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> readJson(String line) {
+        Map<String, Object> object;
+        try {
+            object = objectMapper.readValue(line, Map.class);
+        } catch (JacksonException e) {
+            throw new RuntimeException("Invalid JSON: " + e.getOriginalMessage());
+        }
+        Map<String, String> fields = new HashMap<>();
+        object.forEach((name, value) -> {
+            if (value != null && !value.toString().isBlank()) {
+                fields.put(canonical(normalizeName(name)), value.toString().trim());
+            }
+        });
+        return fields;
+    }
+
+    private static Map<String, String> readCsv(List<String> header, String line) {
+        List<String> values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(canonical(header.get(i)), value);
+            }
+        }
+        return fields;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String normalizeName(String name) {
+        return name.replaceAll("[^A-Za-z]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String canonical(String name) {
+        return switch (name) {
+            case "screennumber" -> "screen";
+            case "movieid", "movietitle", "title" -> "movie";
+            default -> name;
+        };
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new RuntimeException("Missing " + name);
+        }
+        return value;
+    }
+
+    private static Double number(Map<String, String> fields, String name, Double defaultValue) {
+        String value = fields.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static class Lookups {
+        private final Map<String, String> movieIds = new HashMap<>(); // lower-case id or title -> id
+        private final Set<String> screens = new HashSet<>();
+        private final Set<String> formats = new HashSet<>();
+        private Double defaultPrice;
+    }
+}
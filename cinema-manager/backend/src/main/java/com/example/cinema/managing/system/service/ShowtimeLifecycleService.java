@@ -0,0 +1,191 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.Seat;
+import com.example.cinema.managing.system.model.Showtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Moves showtimes, bookings and seats along in time, so the hot collections only hold what is
+ * still ahead:
+ * - sales close a few minutes before a show starts;
+ * - once a show is over it becomes inactive and its confirmed bookings COMPLETED;
+ * - unsold seat documents of finished shows are deleted (booked ones are left to archiving).
+ * Every job takes ids in bounded batches and applies them with one updateMulti/remove per batch,
+ * and runs under a {@link JobLeaseService} lease so only one node does it.
+ * A show counts as over {@code app.lifecycle.finished-after-minutes} after its start, which must
+ * be longer than any feature plus its cleaning time.
+ */
+@Service
+public class ShowtimeLifecycleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShowtimeLifecycleService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.lifecycle.sales-close-minutes:15}")
+    private long salesCloseMinutes;
+
+    @Value("${app.lifecycle.finished-after-minutes:240}")
+    private long finishedAfterMinutes;
+
+    @Value("${app.lifecycle.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.lifecycle.lease-seconds:300}")
+    private long leaseSeconds;
+
+    /**
+     * Open bookings made before showDate was taken from the showtime may carry whatever date the
+     * client sent; this resets them to their showtime's start, one bulk write per batch of showtimes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alignShowDates() {
+        jobLeaseService.runExclusively("align-show-dates", lease(), () -> {
+            List<String> showtimeIds = mongoTemplate.findDistinct(new Query(Criteria.where("status").is("CONFIRMED")),
+                    "showtimeId", Booking.class, String.class);
+            long aligned = 0;
+            for (int from = 0; from < showtimeIds.size(); from += batchSize) {
+                Query query = new Query(Criteria.where("id").in(showtimeIds.subList(from, Math.min(from + batchSize, showtimeIds.size()))));
+                query.fields().include("id").include("showDateTime");
+                List<Showtime> showtimes = mongoTemplate.find(query, Showtime.class);
+                if (showtimes.isEmpty()) {
+                    continue;
+                }
+                BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+                showtimes.forEach(showtime -> operations.updateMulti(
+                        new Query(Criteria.where("showtimeId").is(showtime.getId()).and("status").is("CONFIRMED")
+                                .and("showDate").ne(showtime.getShowDateTime())),
+                        new Update().set("showDate", showtime.getShowDateTime())));
+                aligned += operations.execute().getModifiedCount();
+            }
+            if (aligned > 0) {
+                logger.info("Reset the show date of {} booking(s) to their showtime", aligned);
+            }
+            return "aligned " + aligned + " booking(s)";
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.sales-interval-ms:60000}")
+    public void closeSales() {
+        jobLeaseService.runExclusively("close-sales", lease(), () -> {
+            LocalDateTime now = LocalDateTime.now();
+            Criteria due = Criteria.where("active").is(true)
+                    .and("salesClosedAt").is(null)
+                    .and("showDateTime").gt(now.minusMinutes(finishedAfterMinutes)).lte(now.plusMinutes(salesCloseMinutes));
+            long closed = inBatches(due, Showtime.class, Showtime::getId, ids -> {
+                long modified = mongoTemplate.updateMulti(new Query(Criteria.where("id").in(ids).and("salesClosedAt").is(null)),
+                        new Update().set("salesClosedAt", now), Showtime.class).getModifiedCount();
+                // Cached seat maps, prices and schedules show the show as bookable until told
+                ids.forEach(id -> eventPublisher.publishEvent(new ShowtimeChangedEvent(id, "UPDATED")));
+                return modified;
+            });
+            return "closed sales of " + closed + " showtime(s)";
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.interval-ms:300000}")
+    public void finishShowtimes() {
+        jobLeaseService.runExclusively("finish-showtimes", lease(), () -> {
+            LocalDateTime now = LocalDateTime.now();
+            Criteria due = Criteria.where("active").is(true)
+                    .and("showDateTime").lt(now.minusMinutes(finishedAfterMinutes));
+            long finished = inBatches(due, Showtime.class, Showtime::getId, ids -> mongoTemplate.updateMulti(
+                    new Query(Criteria.where("id").in(ids).and("active").is(true)),
+                    new Update().set("active", false).set("finishedAt", now), Showtime.class).getModifiedCount());
+            if (finished > 0) {
+                logger.info("Marked {} past showtime(s) finished", finished);
+            }
+            return "finished " + finished + " showtime(s)";
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.interval-ms:300000}")
+    public void completeBookings() {
+        jobLeaseService.runExclusively("complete-bookings", lease(), () -> {
+            Criteria due = Criteria.where("status").is("CONFIRMED")
+                    .and("showDate").lt(LocalDateTime.now().minusMinutes(finishedAfterMinutes));
+            long completed = inBatches(due, Booking.class, Booking::getId, ids -> mongoTemplate.updateMulti(
+                    new Query(Criteria.where("id").in(ids).and("status").is("CONFIRMED")),
+                    new Update().set("status", "COMPLETED"), Booking.class).getModifiedCount());
+            if (completed > 0) {
+                logger.info("Completed {} booking(s) of past shows", completed);
+            }
+            return "completed " + completed + " booking(s)";
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.interval-ms:300000}")
+    public void purgeSeats() {
+        jobLeaseService.runExclusively("purge-seats", lease(), () -> {
+            Criteria due = Criteria.where("finishedAt").ne(null).and("seatsPurgedAt").is(null);
+            long[] removed = {0};
+            long showtimes = inBatches(due, Showtime.class, Showtime::getId, ids -> {
+                removed[0] += mongoTemplate.remove(new Query(Criteria.where("showtimeId").in(ids)
+                        .and("status").ne("BOOKED")), Seat.class).getDeletedCount();
+                return mongoTemplate.updateMulti(new Query(Criteria.where("id").in(ids)),
+                        new Update().set("seatsPurgedAt", LocalDateTime.now()), Showtime.class).getModifiedCount();
+            });
+            if (showtimes > 0) {
+                logger.info("Removed {} unsold seat(s) of {} finished showtime(s)", removed[0], showtimes);
+            }
+            return "removed " + removed[0] + " seat(s) of " + showtimes + " showtime(s)";
+        });
+    }
+
+    /**
+     * Applies {@code batch} to the ids matching {@code due}, {@code batchSize} at a time, until
+     * none are left. Each batch must take its ids out of {@code due}, or the loop would not end.
+     */
+    private <T> long inBatches(Criteria due, Class<T> type, Function<T, String> idOf, BatchUpdate batch) {
+        long total = 0;
+        while (true) {
+            Query query = new Query(due).limit(batchSize);
+            query.fields().include("id");
+            List<String> ids = mongoTemplate.find(query, type).stream().map(idOf).toList();
+            if (ids.isEmpty()) {
+                return total;
+            }
+            long applied = batch.apply(ids);
+            total += applied;
+            if (applied == 0 || ids.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    @FunctionalInterface
+    private interface BatchUpdate {
+        long apply(List<String> ids);
+    }
+}
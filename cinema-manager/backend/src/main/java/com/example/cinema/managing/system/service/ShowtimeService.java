@@ -1,19 +1,27 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.dto.PriceQuote;
+import com.example.cinema.managing.system.dto.RepriceResult;
+import com.example.cinema.managing.system.dto.ScheduleResult;
+import com.example.cinema.managing.system.dto.SeatLayoutResult;
+import com.example.cinema.managing.system.dto.WeekScheduleRequest;
+import com.example.cinema.managing.system.event.ShowtimeChangedEvent;
 import com.example.cinema.managing.system.model.Showtime;
-import com.example.cinema.managing.system.model.Seat;
-import com.example.cinema.managing.system.model.SystemConfig;
 import com.example.cinema.managing.system.repository.ShowtimeRepository;
-import com.example.cinema.managing.system.repository.SeatRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 public class ShowtimeService {
@@ -22,16 +30,28 @@ public class ShowtimeService {
     private ShowtimeRepository showtimeRepository;
 
     @Autowired
-    private SeatRepository seatRepository;
-    
+    private SeatLayoutService seatLayoutService;
+
+    @Autowired
+    private SeatPricingService seatPricingService;
+
+    @Autowired
+    private ShowtimeCancellationService showtimeCancellationService;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private MovieShowtimeSyncService movieShowtimeSyncService;
+
     @Autowired
-    private SystemConfigService systemConfigService;
+    private SchedulingEngine schedulingEngine;
 
-    @Value("${app.seats.rows:A,B,C,D,E,F,G,H,I,J}")
-    private String seatRowsConfig;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    @Value("${app.seats.per-row:10}")
-    private int seatsPerRowConfig;
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     public List<Showtime> getAllShowtimes() {
         return showtimeRepository.findAll();
@@ -55,88 +75,111 @@ public class ShowtimeService {
         showtime.setCreatedAt(LocalDateTime.now());
         showtime.setActive(true);
         showtime.setAvailableSeats(showtime.getTotalSeats());
-        
+        showtime.setId(new ObjectId().toHexString());
+
+        // Claims the screen for the show's running time, or throws ScheduleConflictException
+        schedulingEngine.reserve(showtime);
+
         // Save showtime
-        Showtime savedShowtime = showtimeRepository.save(showtime);
+        Showtime savedShowtime;
+        try {
+            savedShowtime = showtimeRepository.save(showtime);
+        } catch (RuntimeException e) {
+            schedulingEngine.release(showtime.getId());
+            throw e;
+        }
         
         // Generate seats for this showtime
-        generateSeats(savedShowtime);
+        seatLayoutService.applyLayout(savedShowtime);
+        eventPublisher.publishEvent(new ShowtimeChangedEvent(savedShowtime.getId(), "CREATED"));
         
         return savedShowtime;
     }
 
-    private void generateSeats(Showtime showtime) {
-        List<Seat> seats = new ArrayList<>();
-        
-        // Get seat configuration from SystemConfig or environment variable
-        List<String> rows = (List<String>) systemConfigService.getConfigValue(
-            SystemConfig.SEAT_ROWS, 
-            Arrays.asList(seatRowsConfig.split(","))
-        );
-        
-        int seatsPerRow = ((Number) systemConfigService.getConfigValue(
-            SystemConfig.SEATS_PER_ROW, 
-            seatsPerRowConfig
-        )).intValue();
-        
-        List<String> seatTypes = (List<String>) systemConfigService.getConfigValue(
-            SystemConfig.SEAT_TYPES,
-            Arrays.asList("STANDARD")
-        );
-        
-        String defaultSeatType = seatTypes.isEmpty() ? "STANDARD" : seatTypes.get(0);
+    public Showtime updateShowtime(String id, Showtime showtime) {
+        Showtime existingShowtime = getShowtimeById(id);
         
-        for (int i = 0; i < rows.size(); i++) {
-            for (int j = 1; j <= seatsPerRow; j++) {
-                Seat seat = new Seat();
-                seat.setShowtimeId(showtime.getId());
-                seat.setSeatNumber(String.valueOf(j));
-                seat.setRow(rows.get(i));
-                seat.setColumn(j);
-                seat.setStatus("AVAILABLE");
-                seat.setType(defaultSeatType);
-                seat.setPrice(showtime.getPrice());
-                
-                seats.add(seat);
+        showtime.setId(id);
+        // A finished show stays finished; ShowtimeLifecycleService owns that state
+        if (existingShowtime.getFinishedAt() != null) {
+            showtime.setActive(false);
+        }
+
+        if (showtime.isActive()) {
+            schedulingEngine.reserve(showtime);
+        } else {
+            schedulingEngine.release(id);
+        }
+
+        // Admin-editable fields only: availableSeats moves by $inc, capacity follows the seat layout,
+        // and lifecycle fields belong to ShowtimeLifecycleService
+        Update update = new Update()
+                .set("movieId", showtime.getMovieId())
+                .set("screenNumber", showtime.getScreenNumber())
+                .set("showDateTime", showtime.getShowDateTime())
+                .set("price", showtime.getPrice())
+                .set("format", showtime.getFormat())
+                .set("active", showtime.isActive());
+        if (!Objects.equals(existingShowtime.getShowDateTime(), showtime.getShowDateTime())) {
+            // A moved show reopens for sale and is closed again on time by the lifecycle job
+            update.unset("salesClosedAt");
+        }
+
+        Showtime savedShowtime;
+        try {
+            savedShowtime = mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), update,
+                    FindAndModifyOptions.options().returnNew(true), Showtime.class);
+            if (savedShowtime == null) {
+                throw new RuntimeException("Showtime not found");
+            }
+        } catch (RuntimeException e) {
+            if (existingShowtime.isActive()) {
+                schedulingEngine.reserve(existingShowtime);
+            } else {
+                schedulingEngine.release(id);
             }
+            throw e;
         }
-        
-        seatRepository.saveAll(seats);
+        eventPublisher.publishEvent(new ShowtimeChangedEvent(id, "UPDATED"));
+        if (!Objects.equals(existingShowtime.getMovieId(), savedShowtime.getMovieId())) {
+            // The event only leads to the new movie; the old one must drop the show as well
+            movieShowtimeSyncService.markDirty(existingShowtime.getMovieId());
+        }
+
+        // Seats carry their own price; bring the unsold ones along in one bulk write
+        if (!Objects.equals(existingShowtime.getPrice(), savedShowtime.getPrice())) {
+            seatPricingService.repriceShowtime(savedShowtime);
+        }
+        return savedShowtime;
     }
 
-    public Showtime updateShowtime(String id, Showtime showtime) {
-        Showtime existingShowtime = getShowtimeById(id);
-        
-        showtime.setId(id);
-        showtime.setCreatedAt(existingShowtime.getCreatedAt());
-        showtime.setAvailableSeats(existingShowtime.getAvailableSeats());
-        
-        return showtimeRepository.save(showtime);
+    public ScheduleResult createWeekSchedule(WeekScheduleRequest request) {
+        return schedulingEngine.createWeek(request);
     }
 
     public void deleteShowtime(String id) {
-        Showtime showtime = getShowtimeById(id);
-        showtime.setActive(false);
-        showtimeRepository.save(showtime);
+        // Deactivates the showtime and cancels/refunds its bookings in the background
+        showtimeCancellationService.cancelShowtime(id, "Showtime deleted", null);
     }
 
-    public void regenerateSeatsForShowtime(String showtimeId) {
-        Showtime showtime = getShowtimeById(showtimeId);
+    public SeatLayoutResult regenerateSeatsForShowtime(String showtimeId) {
+        // Diffs against the current layout; booked seats are never touched
+        return seatLayoutService.applyLayout(getShowtimeById(showtimeId));
+    }
 
-        // Delete existing seats for this showtime
-        List<Seat> existingSeats = seatRepository.findByShowtimeId(showtimeId);
-        if (!existingSeats.isEmpty()) {
-            seatRepository.deleteAll(existingSeats);
-        }
+    public SeatLayoutResult regenerateSeatsForAllShowtimes() {
+        return seatLayoutService.applyLayoutToUpcomingShowtimes();
+    }
 
-        // Generate new seats
-        generateSeats(showtime);
+    public PriceQuote getPriceQuote(String showtimeId) {
+        return pricingEngine.quote(showtimeId);
     }
 
-    public void regenerateSeatsForAllShowtimes() {
-        List<Showtime> showtimes = showtimeRepository.findAll();
-        for (Showtime showtime : showtimes) {
-            regenerateSeatsForShowtime(showtime.getId());
-        }
+    public RepriceResult repriceSeatsForShowtime(String showtimeId) {
+        return seatPricingService.repriceShowtime(getShowtimeById(showtimeId));
+    }
+
+    public RepriceResult repriceSeatsForShowtimes(LocalDateTime from, LocalDateTime to) {
+        return seatPricingService.repriceShowtimes(from, to);
     }
 }
@@ -0,0 +1,66 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.PaymentIntentResult;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Value("${app.payments.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.payments.timeout-ms:8000}")
+    private int readTimeoutMs;
+
+    @Override
+    public PaymentIntentResult createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata)
+            throws StripeException {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amountInCents)
+                .setCurrency(currency.toLowerCase())
+                .putAllMetadata(metadata)
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                )
+                .build();
+
+        PaymentIntent intent = PaymentIntent.create(params, requestOptions().build());
+        return new PaymentIntentResult(intent.getId(), intent.getClientSecret(), intent.getStatus(), intent.getAmount());
+    }
+
+    @Override
+    public PaymentIntentResult retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId, requestOptions().build());
+        return new PaymentIntentResult(intent.getId(), null, intent.getStatus(), intent.getAmount());
+    }
+
+    @Override
+    public String refund(String paymentIntentId, String idempotencyKey) throws StripeException {
+        RefundCreateParams params = RefundCreateParams.builder()
+                .setPaymentIntent(paymentIntentId)
+                .build();
+
+        Refund refund = Refund.create(params, requestOptions().setIdempotencyKey(idempotencyKey).build());
+        return refund.getStatus();
+    }
+
+    // Socket timeouts sit below the gateway deadline so timed-out calls still free their thread
+    private RequestOptions.RequestOptionsBuilder requestOptions() {
+        return RequestOptions.builder()
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs);
+    }
+}
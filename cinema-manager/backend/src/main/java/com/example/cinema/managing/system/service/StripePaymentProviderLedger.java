@@ -0,0 +1,117 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.ProviderTransaction;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentRetrieveParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Reads PaymentIntents straight from Stripe, a page at a time with bounded parallelism.
+ * Deliberately does not go through {@link AsyncPaymentGateway}: a nightly batch must not use up
+ * the bulkhead or trip the circuit breaker that protects checkout.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payments.reconciliation.ledger", havingValue = "stripe")
+public class StripePaymentProviderLedger implements PaymentProviderLedger {
+
+    @Value("${app.payments.reconciliation.stripe-concurrency:16}")
+    private int concurrency;
+
+    @Value("${app.payments.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.payments.timeout-ms:8000}")
+    private int readTimeoutMs;
+
+    @Override
+    public String getName() {
+        return "stripe";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Map<String, ProviderTransaction> findTransactions(Collection<String> transactionIds) throws IOException {
+        Map<String, ProviderTransaction> found = new ConcurrentHashMap<>();
+        Semaphore permits = new Semaphore(concurrency);
+        List<Future<?>> lookups = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String transactionId : transactionIds) {
+                if (!transactionId.startsWith("pi_")) {
+                    continue;
+                }
+                permits.acquire();
+                lookups.add(executor.submit(() -> {
+                    try {
+                        ProviderTransaction transaction = retrieve(transactionId);
+                        if (transaction != null) {
+                            found.put(transactionId, transaction);
+                        }
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> lookup : lookups) {
+                lookup.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading from Stripe", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not read payment intents from Stripe: " + e.getCause().getMessage(), e.getCause());
+        }
+        return found;
+    }
+
+    private ProviderTransaction retrieve(String paymentIntentId) throws StripeException {
+        PaymentIntentRetrieveParams params = PaymentIntentRetrieveParams.builder()
+                .addExpand("latest_charge")
+                .build();
+        RequestOptions options = RequestOptions.builder()
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .build();
+
+        PaymentIntent intent;
+        try {
+            intent = PaymentIntent.retrieve(paymentIntentId, params, options);
+        } catch (InvalidRequestException e) {
+            if (e.getStatusCode() != null && e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+
+        Charge charge = intent.getLatestChargeObject();
+        String status = switch (intent.getStatus()) {
+            case "succeeded" -> charge != null && Boolean.TRUE.equals(charge.getRefunded()) ? "REFUNDED" : "SUCCESS";
+            case "canceled" -> "FAILED";
+            default -> "PENDING";
+        };
+        return new ProviderTransaction(intent.getId(), status, intent.getAmount());
+    }
+}
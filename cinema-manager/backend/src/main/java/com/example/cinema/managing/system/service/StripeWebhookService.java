@@ -0,0 +1,310 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Booking;
+import com.example.cinema.managing.system.model.Payment;
+import com.example.cinema.managing.system.model.StripeWebhookEvent;
+import com.example.cinema.managing.system.repository.StripeWebhookEventRepository;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Durable inbox for Stripe webhook events.
+ * The endpoint only verifies, dedupes (event id is the document id) and stores; a small worker
+ * pool applies events to {@link Payment} and the linked {@link Booking}. Events that arrive
+ * before the payment record knows its PaymentIntent are parked as UNMATCHED and applied when
+ * {@link PaymentService#processStripePayment} links the intent.
+ */
+@Service
+public class StripeWebhookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeWebhookService.class);
+
+    private static final Set<String> HANDLED_TYPES = Set.of(
+            "payment_intent.succeeded",
+            "payment_intent.payment_failed",
+            "payment_intent.canceled",
+            "charge.refunded");
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private StripeWebhookEventRepository webhookEventRepository;
+
+    @Value("${stripe.webhook.secret:}")
+    private String webhookSecret;
+
+    @Value("${app.stripe.webhook.workers:4}")
+    private int workers;
+
+    @Value("${app.stripe.webhook.lock-seconds:120}")
+    private long lockSeconds;
+
+    private ExecutorService workerPool;
+    private Semaphore capacity;
+
+    @PostConstruct
+    public void init() {
+        workerPool = Executors.newFixedThreadPool(workers);
+        // Never claim more events than the pool can start soon; the rest wait in Mongo
+        capacity = new Semaphore(workers * 4);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdown();
+    }
+
+    /**
+     * True when a real signing secret is configured, i.e. payment status arrives by webhook.
+     */
+    public boolean isEnabled() {
+        return webhookSecret != null && !webhookSecret.isBlank()
+                && !webhookSecret.startsWith("placeholder")
+                && !webhookSecret.equals("whsec_your_webhook_secret");
+    }
+
+    /**
+     * Verifies and stores an event. Returns false for redeliveries of an event already stored.
+     */
+    public boolean ingest(String payload, String signatureHeader) throws SignatureVerificationException {
+        Event event = Webhook.constructEvent(payload, signatureHeader, webhookSecret);
+        if (!HANDLED_TYPES.contains(event.getType())) {
+            return true;
+        }
+
+        StripeWebhookEvent inboxEvent = new StripeWebhookEvent();
+        inboxEvent.setId(event.getId());
+        inboxEvent.setType(event.getType());
+        inboxEvent.setPayload(payload);
+        describe(event, inboxEvent);
+
+        try {
+            mongoTemplate.insert(inboxEvent);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Applies events that arrived before the payment was linked to {@code paymentIntentId}.
+     * Only local reads and writes, no call to Stripe.
+     */
+    public void applyUnmatchedEvents(String paymentIntentId) {
+        List<StripeWebhookEvent> parked = webhookEventRepository
+                .findByPaymentIntentIdAndStatusOrderByReceivedAtAsc(paymentIntentId, "UNMATCHED");
+        for (StripeWebhookEvent event : parked) {
+            StripeWebhookEvent claimed = mongoTemplate.findAndModify(
+                    new Query(Criteria.where("id").is(event.getId()).and("status").is("UNMATCHED")),
+                    new Update().set("status", "PROCESSING")
+                            .set("lockedUntil", LocalDateTime.now().plusSeconds(lockSeconds))
+                            .inc("attempts", 1),
+                    FindAndModifyOptions.options().returnNew(true),
+                    StripeWebhookEvent.class);
+            if (claimed != null) {
+                process(claimed);
+            }
+        }
+    }
+
+    /**
+     * Picks up events left behind by a full pool, a crash or a failed attempt.
+     */
+    @Scheduled(fixedDelayString = "${app.stripe.webhook.poll-interval-ms:5000}")
+    public void dispatch() {
+        while (capacity.tryAcquire()) {
+            StripeWebhookEvent claimed = claimNext();
+            if (claimed == null) {
+                capacity.release();
+                return;
+            }
+            workerPool.execute(() -> {
+                try {
+                    process(claimed);
+                } finally {
+                    capacity.release();
+                }
+            });
+        }
+    }
+
+    public long countByStatus(String status) {
+        return webhookEventRepository.countByStatus(status);
+    }
+
+    private StripeWebhookEvent claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("status").is("PENDING").and("nextAttemptAt").lte(now),
+                Criteria.where("status").is("PROCESSING").and("lockedUntil").lt(now),
+                // Re-check parked events a few times in case the payment was linked while we looked
+                Criteria.where("status").is("UNMATCHED").and("nextAttemptAt").lte(now)
+                        .and("attempts").lt(MAX_ATTEMPTS));
+        Update claim = new Update()
+                .set("status", "PROCESSING")
+                .set("lockedUntil", now.plusSeconds(lockSeconds))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(new Query(due), claim,
+                FindAndModifyOptions.options().returnNew(true), StripeWebhookEvent.class);
+    }
+
+    private void process(StripeWebhookEvent event) {
+        try {
+            boolean matched = apply(event);
+            Update update = matched
+                    ? new Update().set("status", "PROCESSED").set("processedAt", LocalDateTime.now())
+                    : new Update().set("status", "UNMATCHED").set("nextAttemptAt", LocalDateTime.now().plusMinutes(1));
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(event.getId())),
+                    update.unset("lockedUntil"), StripeWebhookEvent.class);
+        } catch (RuntimeException e) {
+            int attempts = event.getAttempts() == null ? 1 : event.getAttempts();
+            boolean exhausted = attempts >= MAX_ATTEMPTS;
+            long backoffSeconds = Math.min(600, 1L << Math.min(attempts, 10));
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(event.getId())),
+                    new Update().set("status", exhausted ? "FAILED" : "PENDING")
+                            .set("nextAttemptAt", LocalDateTime.now().plusSeconds(backoffSeconds))
+                            .set("lastError", e.getMessage())
+                            .unset("lockedUntil"),
+                    StripeWebhookEvent.class);
+            logger.warn("Stripe event {} failed (attempt {}): {}", event.getId(), attempts, e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the payment forward with a single conditional update. Status only ever advances
+     * (PENDING -> SUCCESS/FAILED -> REFUNDED), so out-of-order deliveries are harmless.
+     */
+    private boolean apply(StripeWebhookEvent event) {
+        if (event.getPaymentIntentId() == null || event.getObjectStatus() == null) {
+            return true;
+        }
+
+        Criteria criteria = Criteria.where("transactionId").is(event.getPaymentIntentId());
+        Update update = new Update();
+        switch (event.getObjectStatus()) {
+            case "succeeded" -> {
+                if (!amountMatches(event)) {
+                    // Left PENDING; reconciliation reports the mismatch for a human
+                    logger.warn("Stripe intent {} succeeded for {} cents, which is not its payment's amount",
+                            event.getPaymentIntentId(), event.getAmountInCents());
+                    return true;
+                }
+                criteria.and("status").in("PENDING", "FAILED");
+                update.set("status", "SUCCESS").set("paymentMethod", "CARD");
+            }
+            case "failed" -> {
+                criteria.and("status").is("PENDING");
+                update.set("status", "FAILED");
+            }
+            case "refunded" -> {
+                criteria.and("status").in("PENDING", "SUCCESS");
+                update.set("status", "REFUNDED");
+            }
+            default -> {
+                return true;
+            }
+        }
+
+        Payment payment = mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Payment.class);
+        if (payment == null) {
+            // Either already in a later state, or no payment carries this intent yet
+            return mongoTemplate.exists(new Query(Criteria.where("transactionId").is(event.getPaymentIntentId())),
+                    Payment.class);
+        }
+
+        linkBooking(payment);
+        return true;
+    }
+
+    private boolean amountMatches(StripeWebhookEvent event) {
+        Payment payment = mongoTemplate.findOne(
+                new Query(Criteria.where("transactionId").is(event.getPaymentIntentId())), Payment.class);
+        // No payment linked yet: nothing is written, and the event is parked until one is
+        return payment == null || amountMatches(payment, event.getAmountInCents());
+    }
+
+    /**
+     * True if {@code amountInCents} is exactly the payment's amount; an unknown amount never matches.
+     */
+    public static boolean amountMatches(Payment payment, Long amountInCents) {
+        return amountInCents != null && payment.getAmount() != null
+                && Math.round(payment.getAmount() * 100) == amountInCents;
+    }
+
+    /**
+     * Points the payment's booking at it and confirms a still-pending booking once the payment
+     * succeeded. Safe to repeat; also used by reconciliation when it settles a payment itself.
+     */
+    public void linkBooking(Payment payment) {
+        if (payment.getBookingId() == null) {
+            return;
+        }
+        Update bookingUpdate = new Update().set("paymentId", payment.getId());
+        Query bookingQuery = new Query(Criteria.where("id").is(payment.getBookingId()));
+        mongoTemplate.updateFirst(bookingQuery, bookingUpdate, Booking.class);
+        if ("SUCCESS".equals(payment.getStatus())) {
+            mongoTemplate.updateFirst(
+                    new Query(Criteria.where("id").is(payment.getBookingId()).and("status").is("PENDING")),
+                    new Update().set("status", "CONFIRMED"), Booking.class);
+        }
+    }
+
+    private void describe(Event event, StripeWebhookEvent inboxEvent) {
+        EventDataObjectDeserializer deserializer = event.getDataObjectDeserializer();
+        StripeObject object = deserializer.getObject().orElse(null);
+        if (object == null) {
+            // Event rendered with a different API version than the library; fields we read are stable
+            try {
+                object = deserializer.deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                logger.warn("Could not read data object of Stripe event {}", event.getId());
+                return;
+            }
+        }
+
+        if (object instanceof PaymentIntent intent) {
+            inboxEvent.setPaymentIntentId(intent.getId());
+            inboxEvent.setAmountInCents(intent.getAmount());
+            inboxEvent.setObjectStatus(switch (event.getType()) {
+                case "payment_intent.succeeded" -> "succeeded";
+                default -> "failed";
+            });
+        } else if (object instanceof Charge charge) {
+            inboxEvent.setPaymentIntentId(charge.getPaymentIntent());
+            inboxEvent.setObjectStatus(Boolean.TRUE.equals(charge.getRefunded()) ? "refunded" : null);
+        }
+    }
+}
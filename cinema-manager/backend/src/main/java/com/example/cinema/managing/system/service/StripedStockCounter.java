@@ -0,0 +1,93 @@
+package com.example.cinema.managing.system.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stock front for a single hot SKU.
+ * Units are leased out of Mongo in batches and spread over several stripes so that
+ * concurrent buyers mostly CAS on different counters instead of one hot document.
+ * A stripe never goes below zero, so the counter can never hand out more than it was given.
+ */
+class StripedStockCounter {
+
+    private final AtomicInteger[] stripes;
+
+    StripedStockCounter(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new AtomicInteger[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new AtomicInteger();
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int home = homeIndex();
+        for (int i = 0; i < stripes.length; i++) {
+            if (takeFromStripe(stripes[(home + i) & (stripes.length - 1)], quantity)) {
+                return true;
+            }
+        }
+        return gather(quantity);
+    }
+
+    void add(int quantity) {
+        if (quantity > 0) {
+            stripes[homeIndex()].addAndGet(quantity);
+        }
+    }
+
+    int available() {
+        int total = 0;
+        for (AtomicInteger stripe : stripes) {
+            total += stripe.get();
+        }
+        return total;
+    }
+
+    /**
+     * Removes up to {@code max} units from the counter and returns how many were removed.
+     */
+    int drain(int max) {
+        int drained = 0;
+        for (AtomicInteger stripe : stripes) {
+            while (drained < max) {
+                int current = stripe.get();
+                if (current == 0) {
+                    break;
+                }
+                int taken = Math.min(current, max - drained);
+                if (stripe.compareAndSet(current, current - taken)) {
+                    drained += taken;
+                    break;
+                }
+            }
+        }
+        return drained;
+    }
+
+    // No single stripe holds enough: collect from several and give back on failure
+    private boolean gather(int quantity) {
+        int collected = drain(quantity);
+        if (collected >= quantity) {
+            return true;
+        }
+        add(collected);
+        return false;
+    }
+
+    private boolean takeFromStripe(AtomicInteger stripe, int quantity) {
+        while (true) {
+            int current = stripe.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (stripe.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private int homeIndex() {
+        return (int) Thread.currentThread().threadId() & (stripes.length - 1);
+    }
+}
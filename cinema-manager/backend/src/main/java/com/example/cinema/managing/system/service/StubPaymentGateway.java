@@ -0,0 +1,56 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.PaymentIntentResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for Stripe, enabled with {@code app.payments.gateway=stub}.
+ * Every intent it created succeeds for the amount it was created with, after an optional
+ * artificial delay, which makes it usable for tests and load benchmarks without network access.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "stub")
+public class StubPaymentGateway implements PaymentGateway {
+
+    @Value("${app.payments.stub.latency-ms:0}")
+    private long latencyMs;
+
+    private final Map<String, Long> amounts = new ConcurrentHashMap<>();
+
+    @Override
+    public PaymentIntentResult createPaymentIntent(long amountInCents, String currency, Map<String, String> metadata) {
+        simulateLatency();
+        String id = "pi_stub_" + UUID.randomUUID().toString().replace("-", "");
+        amounts.put(id, amountInCents);
+        return new PaymentIntentResult(id, id + "_secret_stub", "requires_payment_method", amountInCents);
+    }
+
+    @Override
+    public PaymentIntentResult retrievePaymentIntent(String paymentIntentId) {
+        simulateLatency();
+        Long amountInCents = amounts.get(paymentIntentId);
+        return new PaymentIntentResult(paymentIntentId, null, amountInCents != null ? "succeeded" : "canceled", amountInCents);
+    }
+
+    @Override
+    public String refund(String paymentIntentId, String idempotencyKey) {
+        simulateLatency();
+        return "succeeded";
+    }
+
+    private void simulateLatency() {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
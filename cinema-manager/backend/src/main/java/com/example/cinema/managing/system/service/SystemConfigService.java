@@ -1,8 +1,10 @@
 package com.example.cinema.managing.system.service;
 
+import com.example.cinema.managing.system.event.SystemConfigChangedEvent;
 import com.example.cinema.managing.system.model.SystemConfig;
 import com.example.cinema.managing.system.repository.SystemConfigRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -13,6 +15,9 @@ public class SystemConfigService {
     @Autowired
     private SystemConfigRepository systemConfigRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<SystemConfig> getAllConfigs() {
         return systemConfigRepository.findAll();
     }
@@ -29,7 +34,9 @@ public class SystemConfigService {
 
     public SystemConfig saveConfig(SystemConfig config) {
         config.setUpdatedAt(LocalDateTime.now());
-        return systemConfigRepository.save(config);
+        SystemConfig saved = systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(saved.getConfigKey()));
+        return saved;
     }
 
     public SystemConfig updateConfig(String configKey, Object value) {
@@ -38,11 +45,15 @@ public class SystemConfigService {
         
         config.setValue(value);
         config.setUpdatedAt(LocalDateTime.now());
-        return systemConfigRepository.save(config);
+        SystemConfig saved = systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(configKey));
+        return saved;
     }
 
     public void deleteConfig(String id) {
+        String configKey = systemConfigRepository.findById(id).map(SystemConfig::getConfigKey).orElse(null);
         systemConfigRepository.deleteById(id);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(configKey));
     }
 
     // Initialize default configs if they don't exist
@@ -83,6 +94,24 @@ public class SystemConfigService {
             Arrays.asList("STANDARD", "VIP", "PREMIUM"),
             "Available seat types");
             
+        initializeIfNotExists(SystemConfig.SEAT_TYPE_MULTIPLIERS, "OBJECT",
+            Map.of("STANDARD", 1.0, "VIP", 1.5, "PREMIUM", 1.25),
+            "Seat price multiplier per seat type, applied to the showtime price");
+
+        initializeIfNotExists(SystemConfig.DYNAMIC_PRICING_RULES, "OBJECT",
+            Map.of(
+                "occupancy", List.of(
+                    Map.of("from", 0.0, "multiplier", 1.0),
+                    Map.of("from", 0.7, "multiplier", 1.1),
+                    Map.of("from", 0.9, "multiplier", 1.2)),
+                "hoursToShow", List.of(
+                    Map.of("from", 0, "multiplier", 1.0),
+                    Map.of("from", 72, "multiplier", 0.95)),
+                "formats", Map.of("2D", 1.0, "3D", 1.0, "IMAX", 1.0),
+                "minMultiplier", 0.8,
+                "maxMultiplier", 1.5),
+            "Dynamic pricing tiers: the highest 'from' not above the show's occupancy (0-1) and hours to show applies");
+
         initializeIfNotExists(SystemConfig.WELCOME_BONUS, "NUMBER",
             100,
             "Welcome bonus points for new users");
@@ -0,0 +1,272 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.TicketImage;
+import com.example.cinema.managing.system.model.Booking;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Renders ticket QR codes once, when the booking is made, and serves the stored PNG afterwards.
+ * Images are 1-bit PNGs of a few hundred bytes, kept in a sharded directory under
+ * {@code app.tickets.storage-dir}. The most recently used ones are also held in a bounded LRU.
+ * A ticket opened before its image exists is rendered on demand, once, however many requests
+ * arrive together.
+ * File names, ETags and URLs carry {@link #IMAGE_VERSION}, so when the encoded payload changes,
+ * images rendered under the old one are neither served nor kept in client caches.
+ */
+@Service
+public class TicketImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketImageService.class);
+
+    // Bump whenever the QR content changes (t1: signed ticket token, replacing the plain booking code)
+    static final String IMAGE_VERSION = "t1";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TicketTokenService ticketTokenService;
+
+    @Value("${app.tickets.storage-dir:./data/tickets}")
+    private String storageDir;
+
+    @Value("${app.tickets.qr-size:320}")
+    private int qrSize;
+
+    @Value("${app.tickets.cache-entries:2000}")
+    private int cacheEntries;
+
+    @Value("${app.tickets.render-threads:2}")
+    private int renderThreads;
+
+    @Value("${app.tickets.render-queue:10000}")
+    private int renderQueue;
+
+    private final Map<String, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+
+    private Map<String, byte[]> recentImages;
+    private ExecutorService renderer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(storageDir));
+        recentImages = new LinkedHashMap<>(cacheEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > cacheEntries;
+            }
+        };
+        // Bounded queue: if a burst overflows it, those tickets are simply rendered on first view
+        renderer = new ThreadPoolExecutor(renderThreads, renderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(renderQueue));
+    }
+
+    /**
+     * Deletes images of earlier versions and points stale booking URLs at the current one.
+     * Runs on the render pool so startup does not wait for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void retireOldImages() {
+        renderer.execute(() -> {
+            String current = "." + IMAGE_VERSION + ".png";
+            long deleted = 0;
+            try (Stream<Path> files = Files.walk(Paths.get(storageDir))) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".png") && !name.endsWith(current) && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not clean up old ticket images: {}", e.getMessage());
+            }
+
+            long updated = 0;
+            Query stale = new Query(Criteria.where("qrCodeUrl").ne(null).not().regex("v=" + IMAGE_VERSION + "$")).limit(500);
+            stale.fields().include("id");
+            List<Booking> bookings;
+            while (!(bookings = mongoTemplate.find(stale, Booking.class)).isEmpty()) {
+                BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+                bookings.forEach(booking -> operations.updateOne(new Query(Criteria.where("id").is(booking.getId())),
+                        new Update().set("qrCodeUrl", urlFor(booking.getId()))));
+                operations.execute();
+                updated += bookings.size();
+            }
+            if (deleted > 0 || updated > 0) {
+                logger.info("Retired {} old ticket image(s) and updated {} ticket URL(s) to version {}", deleted, updated, IMAGE_VERSION);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderer.shutdown();
+    }
+
+    /**
+     * Queues rendering of the booking's ticket. Never blocks the caller.
+     */
+    public void renderAsync(Booking booking) {
+        try {
+            renderer.execute(() -> {
+                try {
+                    render(booking);
+                } catch (RuntimeException e) {
+                    logger.warn("Could not render ticket for booking {}: {}", booking.getId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Ticket render queue full, booking {} will render on first view", booking.getId());
+        }
+    }
+
+    /**
+     * Validator for the booking's current image; changes whenever {@link #IMAGE_VERSION} does.
+     */
+    public String etag(String bookingId) {
+        return "\"" + bookingId + "." + IMAGE_VERSION + "\"";
+    }
+
+    public TicketImage getTicketImage(Booking booking) {
+        String bookingId = booking.getId();
+        byte[] cached = cacheGet(bookingId);
+        if (cached != null) {
+            return new TicketImage(cached, null, cached.length);
+        }
+
+        Path file = pathFor(bookingId);
+        if (Files.exists(file)) {
+            try {
+                return new TicketImage(null, file, Files.size(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] png = render(booking);
+        return new TicketImage(png, null, png.length);
+    }
+
+    /**
+     * Content encoded in the QR code: a signed token gates can verify offline.
+     */
+    private String ticketPayload(Booking booking) {
+        return ticketTokenService.issue(booking);
+    }
+
+    private byte[] render(Booking booking) {
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = rendering.putIfAbsent(booking.getId(), mine);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            byte[] png = encode(ticketPayload(booking));
+            store(booking.getId(), png);
+            cachePut(booking.getId(), png);
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(booking.getId())),
+                    new Update().set("qrCodeUrl", urlFor(booking.getId())), Booking.class);
+            mine.complete(png);
+            return png;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(booking.getId());
+        }
+    }
+
+    private byte[] encode(String content) {
+        try {
+            BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, qrSize, qrSize,
+                    Map.of(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M, EncodeHintType.MARGIN, 2));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+            // Writes a 1-bit image, which keeps the PNG tiny
+            MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+            return out.toByteArray();
+        } catch (WriterException e) {
+            throw new RuntimeException("Could not encode ticket QR code", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void store(String bookingId, byte[] png) {
+        Path target = pathFor(bookingId);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), bookingId, ".tmp");
+            Files.write(temp, png);
+            // Readers never see a half-written file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path pathFor(String bookingId) {
+        if (!bookingId.matches("[A-Za-z0-9]+")) {
+            throw new RuntimeException("Invalid booking id");
+        }
+        // ObjectIds end in a counter, so the last two characters spread files evenly
+        String shard = bookingId.substring(Math.max(0, bookingId.length() - 2));
+        return Paths.get(storageDir, shard, bookingId + "." + IMAGE_VERSION + ".png");
+    }
+
+    private static String urlFor(String bookingId) {
+        // The version in the query string keeps clients from reusing an immutable image of an older one
+        return "/api/tickets/" + bookingId + "/qr.png?v=" + IMAGE_VERSION;
+    }
+
+    private byte[] cacheGet(String bookingId) {
+        synchronized (recentImages) {
+            return recentImages.get(bookingId);
+        }
+    }
+
+    private void cachePut(String bookingId, byte[] png) {
+        synchronized (recentImages) {
+            recentImages.put(bookingId, png);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.TicketClaims;
+import com.example.cinema.managing.system.model.Booking;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Issues and verifies the signed token printed in a ticket's QR code.
+ * Layout before base64url: version (1 byte), booking id (12), showtime id (12), expiry in epoch
+ * seconds (4), seats as comma-separated UTF-8 (2-byte length + bytes), then the first 12 bytes of
+ * HMAC-SHA256 over everything before it. A gate can check a ticket without reaching the database.
+ */
+@Service
+public class TicketTokenService {
+
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 12;
+    private static final int ID_LENGTH = 12;
+
+    // Deliberately separate from the JWT key: neither secret should be able to mint the other's tokens
+    @Value("${app.tickets.signing-secret}")
+    private String signingSecret;
+
+    @Value("${app.tickets.token-grace-hours:6}")
+    private long graceHours;
+
+    // Mac instances are not thread-safe; one per thread avoids both locking and re-initialising
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public String issue(Booking booking) {
+        byte[] seats = booking.getSeatNumbers() == null ? new byte[0]
+                : String.join(",", booking.getSeatNumbers()).getBytes(StandardCharsets.UTF_8);
+        LocalDateTime showDate = booking.getShowDate() != null ? booking.getShowDate() : LocalDateTime.now();
+        long expiresAt = showDate.plusHours(graceHours).atZone(ZoneId.systemDefault()).toEpochSecond();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 * ID_LENGTH + 4 + 2 + seats.length + MAC_LENGTH);
+        buffer.put(VERSION)
+                .put(new ObjectId(booking.getId()).toByteArray())
+                .put(new ObjectId(booking.getShowtimeId()).toByteArray())
+                .putInt((int) expiresAt)
+                .putShort((short) seats.length)
+                .put(seats);
+        byte[] token = buffer.array();
+        buffer.put(sign(token, buffer.position()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Returns the claims of a genuine, unexpired token; throws for anything else.
+     */
+    public TicketClaims verify(String token) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token.trim());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid ticket");
+        }
+        if (raw.length < 1 + 2 * ID_LENGTH + 4 + 2 + MAC_LENGTH || raw[0] != VERSION) {
+            throw new RuntimeException("Invalid ticket");
+        }
+
+        int signedLength = raw.length - MAC_LENGTH;
+        byte[] expected = sign(raw, signedLength);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(raw, signedLength, raw.length))) {
+            throw new RuntimeException("Invalid ticket");
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(raw, 1, signedLength - 1);
+            byte[] bookingId = new byte[ID_LENGTH];
+            byte[] showtimeId = new byte[ID_LENGTH];
+            buffer.get(bookingId).get(showtimeId);
+            Instant expiresAt = Instant.ofEpochSecond(Integer.toUnsignedLong(buffer.getInt()));
+            byte[] seats = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(seats);
+
+            if (Instant.now().isAfter(expiresAt)) {
+                throw new RuntimeException("Ticket has expired");
+            }
+            String seatList = new String(seats, StandardCharsets.UTF_8);
+            return new TicketClaims(
+                    new ObjectId(bookingId).toHexString(),
+                    new ObjectId(showtimeId).toHexString(),
+                    seatList.isEmpty() ? List.of() : List.of(seatList.split(",")),
+                    expiresAt);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid ticket");
+        }
+    }
+
+    private byte[] sign(byte[] data, int length) {
+        Mac mac = macs.get();
+        mac.update(data, 0, length);
+        return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
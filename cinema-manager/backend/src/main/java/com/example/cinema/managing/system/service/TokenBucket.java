@@ -0,0 +1,43 @@
+package com.example.cinema.managing.system.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking token bucket: {@code permitsPerSecond} steady rate with bursts of up to one second's worth.
+ */
+class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, permitsPerSecond);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryTake()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token if one is available and returns 0, otherwise returns how long to wait for the next one.
+     */
+    private synchronized long tryTake() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerSecond / 1_000_000_000d);
+        lastRefillNanos = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) ((1 - tokens) * 1_000_000_000d / permitsPerSecond);
+    }
+}
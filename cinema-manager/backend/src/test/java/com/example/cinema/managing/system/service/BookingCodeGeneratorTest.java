@@ -0,0 +1,124 @@
+package com.example.cinema.managing.system.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookingCodeGeneratorTest {
+
+    private static final String SYMBOLS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    private BookingCodeGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new BookingCodeGenerator();
+        // A pinned node id keeps the generator away from the lease collection
+        ReflectionTestUtils.setField(generator, "configuredNodeId", 5);
+        generator.init();
+    }
+
+    @Test
+    void generatedCodesPassTheirOwnCheckSymbol() {
+        for (int i = 0; i < 1000; i++) {
+            String code = generator.nextCode();
+            assertThat(code).hasSize(11);
+            assertThat(BookingCodeGenerator.normalize(code)).isEqualTo(code);
+        }
+    }
+
+    @Test
+    void normalizeReadsLowerCaseSeparatorsAndLookAlikes() {
+        String code = "0123456789" + checkSymbolOf("0123456789");
+        String typed = "oI23-4567 89" + code.charAt(10);
+
+        assertThat(BookingCodeGenerator.normalize(typed.toLowerCase())).isEqualTo(code);
+        assertThat(BookingCodeGenerator.normalize("OL23456789" + code.charAt(10))).isEqualTo(code);
+    }
+
+    @Test
+    void normalizeRejectsAnyMistypedSymbol() {
+        String code = generator.nextCode();
+        for (int i = 0; i < 10; i++) {
+            for (char symbol : SYMBOLS.toCharArray()) {
+                if (symbol == code.charAt(i)) {
+                    continue;
+                }
+                String typo = code.substring(0, i) + symbol + code.substring(i + 1);
+                assertThat(BookingCodeGenerator.normalize(typo)).as(typo).isNull();
+            }
+        }
+    }
+
+    @Test
+    void normalizeRejectsSwappedNeighbours() {
+        String code = "7K3M9QX2BD";
+        code = code + checkSymbolOf(code);
+        for (int i = 0; i < 9; i++) {
+            char[] chars = code.toCharArray();
+            chars[i] = code.charAt(i + 1);
+            chars[i + 1] = code.charAt(i);
+            assertThat(BookingCodeGenerator.normalize(new String(chars))).isNull();
+        }
+    }
+
+    @Test
+    void normalizePassesLegacyHexCodes() {
+        assertThat(BookingCodeGenerator.normalize("a1b2c3d4")).isEqualTo("A1B2C3D4");
+        assertThat(BookingCodeGenerator.normalize("ab-12-cd-34")).isEqualTo("AB12CD34");
+        assertThat(BookingCodeGenerator.normalize("deadbeel")).isEqualTo("DEADBEE1");
+        assertThat(BookingCodeGenerator.normalize("ABCDEFGH")).isNull();
+    }
+
+    @Test
+    void normalizeRejectsOtherInput() {
+        assertThat(BookingCodeGenerator.normalize(null)).isNull();
+        assertThat(BookingCodeGenerator.normalize("")).isNull();
+        assertThat(BookingCodeGenerator.normalize("ABC")).isNull();
+        assertThat(BookingCodeGenerator.normalize("0123456789AB")).isNull();
+        // U is only ever a check symbol
+        assertThat(BookingCodeGenerator.normalize("U123456789" + checkSymbolOf("0123456789"))).isNull();
+    }
+
+    @Test
+    void codesAreUniqueAcrossThreads() throws Exception {
+        // Stays below what the generator may borrow ahead of the clock, so no thread has to wait
+        int threads = 8;
+        int perThread = 1200;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = IntStream.range(0, threads)
+                    .<Future<?>>mapToObj(t -> executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            codes.add(generator.nextCode());
+                        }
+                    }))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(codes).hasSize(threads * perThread);
+    }
+
+    private static char checkSymbolOf(String code) {
+        int remainder = 0;
+        for (char c : code.toCharArray()) {
+            remainder = (remainder * 32 + SYMBOLS.indexOf(c)) % 37;
+        }
+        return (SYMBOLS + "*~$=U").charAt(remainder);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.model.Movie;
+import com.example.cinema.managing.system.model.Showtime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SchedulingEngineTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 14, 0, 0);
+
+    private final List<Showtime> stored = new ArrayList<>();
+
+    private SchedulingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        // 100 and 280 minutes of film; with 20 minutes of cleaning a slot is 2 or 5 hours
+        when(mongoTemplate.find(any(Query.class), eq(Movie.class)))
+                .thenReturn(List.of(movie("short", 100), movie("long", 280)));
+        when(mongoTemplate.find(any(Query.class), eq(Showtime.class))).thenReturn(stored);
+
+        engine = new SchedulingEngine();
+        ReflectionTestUtils.setField(engine, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(engine, "cleaningBufferMinutes", 20L);
+        ReflectionTestUtils.setField(engine, "defaultDurationMinutes", 120L);
+    }
+
+    @Test
+    void showMayStartExactlyWhenThePreviousOneIsCleaned() {
+        stored.add(showtime("evening", "short", DAY.withHour(18)));
+
+        assertThatCode(() -> engine.reserve(showtime("next", "short", DAY.withHour(20)))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void showMayEndExactlyWhenTheNextOneStarts() {
+        stored.add(showtime("evening", "short", DAY.withHour(18)));
+
+        assertThatCode(() -> engine.reserve(showtime("before", "short", DAY.withHour(16)))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void oneMinuteOfOverlapOnEitherSideConflicts() {
+        stored.add(showtime("evening", "short", DAY.withHour(18)));
+
+        assertThatThrownBy(() -> engine.reserve(showtime("late", "short", DAY.withHour(19).withMinute(59))))
+                .isInstanceOf(ScheduleConflictException.class)
+                .hasMessageContaining("evening");
+        assertThatThrownBy(() -> engine.reserve(showtime("early", "short", DAY.withHour(16).withMinute(1))))
+                .isInstanceOf(ScheduleConflictException.class)
+                .hasMessageContaining("evening");
+    }
+
+    @Test
+    void longShowIsFoundBehindOverlappingLegacyShows() {
+        // Written before overlaps were checked: the long show runs 10:00-15:00, across both short ones
+        stored.add(showtime("long-matinee", "long", DAY.withHour(10)));
+        stored.add(showtime("legacy-1", "short", DAY.withHour(11)));
+        stored.add(showtime("legacy-2", "short", DAY.withHour(11).withMinute(30)));
+
+        assertThatThrownBy(() -> engine.reserve(showtime("afternoon", "short", DAY.withHour(14))))
+                .isInstanceOf(ScheduleConflictException.class)
+                .hasMessageContaining("long-matinee");
+        assertThatCode(() -> engine.reserve(showtime("after", "short", DAY.withHour(15)))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void movingAShowDoesNotConflictWithItself() {
+        stored.add(showtime("evening", "short", DAY.withHour(18)));
+
+        assertThatCode(() -> engine.reserve(showtime("evening", "short", DAY.withHour(18).withMinute(30))))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void batchIsCheckedAgainstItselfAndEarlierReservations() {
+        engine.reserve(showtime("reserved", "short", DAY.withHour(9)));
+
+        List<String> conflicts = engine.reserveAll(List.of(
+                showtime("batch-a", "short", DAY.withHour(10)),
+                showtime("batch-b", "short", DAY.withHour(11)),
+                showtime("batch-c", "short", DAY.withHour(13)),
+                showtime("batch-d", "short", DAY.withHour(14)),
+                showtime("batch-e", "missing", DAY.withHour(20))));
+
+        assertThat(conflicts.get(0)).contains("overlaps showtime reserved");
+        assertThat(conflicts.get(1)).isNull();
+        assertThat(conflicts.get(2)).isNull();
+        assertThat(conflicts.get(3)).contains("overlaps showtime batch-c");
+        assertThat(conflicts.get(4)).startsWith("Movie not found");
+    }
+
+    private static Movie movie(String id, int duration) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setDuration(duration);
+        return movie;
+    }
+
+    private static Showtime showtime(String id, String movieId, LocalDateTime start) {
+        Showtime showtime = new Showtime();
+        showtime.setId(id);
+        showtime.setMovieId(movieId);
+        showtime.setScreenNumber("1");
+        showtime.setShowDateTime(start);
+        return showtime;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cinema.managing.system.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedStockCounterTest {
+
+    @Test
+    void parallelTakesNeverOversell() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Added from several threads so the stock is spread over the stripes
+            List<Future<?>> adds = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                adds.add(executor.submit(() -> counter.add(100)));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+            assertThat(counter.available()).isEqualTo(1600);
+
+            // Far more demand than stock, in mixed quantities so gathering across stripes is exercised
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> takes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int quantity = t % 3 + 1;
+                takes.add(executor.submit(() -> {
+                    start.await();
+                    int taken = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (counter.tryTake(quantity)) {
+                            taken += quantity;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            start.countDown();
+            int taken = 0;
+            for (Future<Integer> take : takes) {
+                taken += take.get();
+            }
+
+            assertThat(taken).isLessThanOrEqualTo(1600);
+            assertThat(taken + counter.available()).isEqualTo(1600);
+            for (AtomicInteger stripe : (AtomicInteger[]) ReflectionTestUtils.getField(counter, "stripes")) {
+                assertThat(stripe.get()).isNotNegative();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void takeGathersFromSeveralStripes() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        // Units land on the stripe of the thread that added them, so a take may have to collect them
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> counter.add(1));
+            thread.start();
+            thread.join();
+        }
+
+        assertThat(counter.tryTake(3)).isTrue();
+        assertThat(counter.available()).isEqualTo(1);
+    }
+
+    @Test
+    void failedGatherGivesEverythingBack() {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.add(2);
+
+        assertThat(counter.tryTake(3)).isFalse();
+        assertThat(counter.available()).isEqualTo(2);
+        assertThat(counter.tryTake(2)).isTrue();
+        assertThat(counter.available()).isZero();
+    }
+
+    @Test
+    void drainStopsAtTheRequestedAmount() {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.add(10);
+
+        assertThat(counter.drain(4)).isEqualTo(4);
+        assertThat(counter.available()).isEqualTo(6);
+        assertThat(counter.drain(100)).isEqualTo(6);
+        assertThat(counter.available()).isZero();
+    }
+}
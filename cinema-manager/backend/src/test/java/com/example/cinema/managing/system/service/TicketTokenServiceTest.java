@@ -0,0 +1,118 @@
+package com.example.cinema.managing.system.service;
+
+import com.example.cinema.managing.system.dto.TicketClaims;
+import com.example.cinema.managing.system.model.Booking;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TicketTokenServiceTest {
+
+    private TicketTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService("test-signing-secret");
+    }
+
+    @Test
+    void verifiesItsOwnTokens() {
+        Booking booking = booking(LocalDateTime.now().plusDays(1));
+
+        TicketClaims claims = service.verify(service.issue(booking));
+
+        assertThat(claims.getBookingId()).isEqualTo(booking.getId());
+        assertThat(claims.getShowtimeId()).isEqualTo(booking.getShowtimeId());
+        assertThat(claims.getSeats()).containsExactly("A1", "A2");
+        assertThat(claims.getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    void rejectsAnyFlippedByte() {
+        byte[] raw = decode(service.issue(booking(LocalDateTime.now().plusDays(1))));
+        for (int i = 0; i < raw.length; i++) {
+            byte[] tampered = raw.clone();
+            tampered[i] ^= 0x01;
+            String token = encode(tampered);
+            assertThatThrownBy(() -> service.verify(token)).as("byte %d", i)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Invalid ticket");
+        }
+    }
+
+    @Test
+    void rejectsTruncatedTokens() {
+        byte[] raw = decode(service.issue(booking(LocalDateTime.now().plusDays(1))));
+        for (int length = 0; length < raw.length; length++) {
+            String token = encode(Arrays.copyOf(raw, length));
+            assertThatThrownBy(() -> service.verify(token)).as("length %d", length)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Invalid ticket");
+        }
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherSecret() {
+        String token = newService("another-secret").issue(booking(LocalDateTime.now().plusDays(1)));
+
+        assertThatThrownBy(() -> service.verify(token)).hasMessage("Invalid ticket");
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThatThrownBy(() -> service.verify("not a token!")).hasMessage("Invalid ticket");
+        assertThatThrownBy(() -> service.verify("")).hasMessage("Invalid ticket");
+    }
+
+    @Test
+    void rejectsTokensPastTheGracePeriod() {
+        // Grace is six hours after the show starts
+        String expired = service.issue(booking(LocalDateTime.now().minusHours(7)));
+        String stillValid = service.issue(booking(LocalDateTime.now().minusHours(5)));
+
+        assertThatThrownBy(() -> service.verify(expired)).hasMessage("Ticket has expired");
+        assertThat(service.verify(stillValid).getSeats()).hasSize(2);
+    }
+
+    @Test
+    void acceptsBookingsWithoutSeatNumbers() {
+        Booking booking = booking(LocalDateTime.now().plusDays(1));
+        booking.setSeatNumbers(null);
+
+        assertThat(service.verify(service.issue(booking)).getSeats()).isEmpty();
+    }
+
+    private static TicketTokenService newService(String secret) {
+        TicketTokenService service = new TicketTokenService();
+        ReflectionTestUtils.setField(service, "signingSecret", secret);
+        ReflectionTestUtils.setField(service, "graceHours", 6L);
+        return service;
+    }
+
+    private static Booking booking(LocalDateTime showDate) {
+        Booking booking = new Booking();
+        booking.setId(new ObjectId().toHexString());
+        booking.setShowtimeId(new ObjectId().toHexString());
+        booking.setSeatNumbers(List.of("A1", "A2"));
+        booking.setShowDate(showDate);
+        return booking;
+    }
+
+    private static byte[] decode(String token) {
+        return Base64.getUrlDecoder().decode(token);
+    }
+
+    private static String encode(byte[] raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+}
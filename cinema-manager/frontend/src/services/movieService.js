@@ -16,6 +16,12 @@ const movieService = {
     return response.data;
   },
 
+  // Price, show count and seats left for every now-showing movie, in one call
+  getAvailability: async () => {
+    const response = await API.get('/movies/availability');
+    return response.data;
+  },
+
   getComingSoon: async () => {
     const response = await API.get('/movies/coming-soon');
     return response.data;
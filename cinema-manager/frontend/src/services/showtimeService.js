@@ -25,12 +25,34 @@ const showtimeService = {
     return response.data;
   },
 
+  // Get the whole programme of a day (yyyy-MM-dd, defaults to today), grouped by movie
+  getSchedule: async (date) => {
+    const response = await API.get('/showtimes/schedule', { params: date ? { date } : {} });
+    return response.data;
+  },
+
   // Create showtime (admin only)
   createShowtime: async (showtimeData) => {
     const response = await API.post('/showtimes', showtimeData);
     return response.data;
   },
 
+  // Create a block of days from daily slots, seats included (admin only)
+  createWeekSchedule: async (template) => {
+    const response = await API.post('/showtimes/schedule/week', template);
+    return response.data;
+  },
+
+  // Import a CSV or NDJSON schedule file; returns a per-row error report (admin only)
+  importShowtimes: async (file) => {
+    const formData = new FormData();
+    formData.append('file', file);
+    const response = await API.post('/showtimes/import', formData, {
+      headers: { 'Content-Type': 'multipart/form-data' }
+    });
+    return response.data;
+  },
+
   // Update showtime (admin only)
   updateShowtime: async (id, showtimeData) => {
     const response = await API.put(`/showtimes/${id}`, showtimeData);